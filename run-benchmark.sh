@@ -0,0 +1,19 @@
+#!/bin/bash
+
+# Compiles the viewer and the benchmarks, then runs one benchmark.
+# Example: ./run-benchmark.sh PackageTreeBenchmark
+cd "$(dirname "$0")" || exit 1
+
+if [ -z "$1" ]; then
+  echo "Usage: $0 <benchmark class>   (see src/bench/java)"
+  exit 1
+fi
+
+JAVAFX_PATH="${JAVAFX_PATH:-$PWD/javafx-sdk-21.0.5/lib}"
+
+mkdir -p target/bench
+javac -encoding UTF-8 -cp "lib/*:$JAVAFX_PATH/*" -d target/bench \
+  $(find src/main/java src/bench/java -name "*.java") || {
+  echo "Compilation failed"; exit 1; }
+
+exec java -cp "target/bench:lib/*:$JAVAFX_PATH/*" "$@"
@@ -0,0 +1,17 @@
+#!/bin/bash
+
+# Headless command line; needs no display and no JavaFX SDK.
+# Example: ./run-jarviewer-cli.sh grep app.jar "jdbc:" -i
+DIR="$(cd "$(dirname "$0")" && pwd)"
+
+# Compile the CLI and the classes it uses (none of them need JavaFX) when a
+# source is newer than the last build. CfrWorker is started by name, so it is listed too.
+if [ ! -f "$DIR/target/cli/JarViewerCli.class" ] || \
+   [ -n "$(find "$DIR/src/main/java" -name "*.java" -newer "$DIR/target/cli/JarViewerCli.class")" ]; then
+  mkdir -p "$DIR/target/cli"
+  javac -encoding UTF-8 -cp "$DIR/lib/*" -sourcepath "$DIR/src/main/java" -d "$DIR/target/cli" \
+    "$DIR/src/main/java/JarViewerCli.java" "$DIR/src/main/java/CfrWorker.java" >&2 || {
+    echo "Compilation failed" >&2; exit 2; }
+fi
+
+exec java -cp "$DIR/target/cli:$DIR/lib/*" JarViewerCli "$@"
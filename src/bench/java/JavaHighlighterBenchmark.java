@@ -0,0 +1,118 @@
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link JavaHighlighter} with the regex highlighter it replaced, on
+ * about 2 MB of Java source (the viewer's own sources repeated, or the files
+ * under a directory given as the first argument).
+ *
+ * <p>Run with {@code ./run-benchmark.sh JavaHighlighterBenchmark [dir]}.
+ */
+public class JavaHighlighterBenchmark {
+
+    private static final int TARGET_CHARS = 2 * 1024 * 1024;
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 10;
+
+    // The former JarViewerFX.JAVA_PATTERN, unchanged
+    private static final String[] JAVA_KEYWORDS = {
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while"
+    };
+
+    private static final Pattern JAVA_PATTERN = Pattern.compile(
+            "(?<KEYWORD>\\b(" + String.join("|", JAVA_KEYWORDS) + ")\\b)" +
+                    "|(?<STRING>\"[^\"\\\\]*(\\\\.[^\"\\\\]*)*\")" +
+                    "|(?<NUMBER>\\b\\d+\\b)" +
+                    "|(?<COMMENT>//[^\\n]*)|(?<MULTICOMMENT>/\\*[^*]*\\*+(?:[^*/][^*]*\\*+)*/)" +
+                    "|(?<ANNOTATION>@[\\w]+)"
+    );
+
+    public static void main(String[] args) throws IOException {
+        String text = loadSource(Paths.get(args.length > 0 ? args[0] : "src/main/java"));
+        System.out.println("Input: " + text.length() + " chars");
+
+        JavaHighlighter lexer = new JavaHighlighter();
+        report("Regex (former JAVA_PATTERN)", text, JavaHighlighterBenchmark::computeRegexHighlighting);
+        report("JavaHighlighter lexer", text, lexer::computeHighlighting);
+    }
+
+    private static String loadSource(Path directory) throws IOException {
+        String sources;
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> javaFiles = files.filter(f -> f.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+            StringBuilder all = new StringBuilder();
+            for (Path file : javaFiles) {
+                all.append(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).append('\n');
+            }
+            sources = all.toString();
+        }
+        if (sources.isEmpty()) {
+            throw new IOException("No .java files under " + directory);
+        }
+        StringBuilder text = new StringBuilder(TARGET_CHARS + sources.length());
+        while (text.length() < TARGET_CHARS) {
+            text.append(sources);
+        }
+        return text.toString();
+    }
+
+    /**
+     * The former JarViewerFX.computeJavaHighlighting, unchanged.
+     */
+    private static StyleSpans<Collection<String>> computeRegexHighlighting(String text) {
+        Matcher matcher = JAVA_PATTERN.matcher(text);
+        int lastKwEnd = 0;
+        StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
+
+        while (matcher.find()) {
+            String styleClass = null;
+            if (matcher.group("KEYWORD") != null) styleClass = "keyword";
+            else if (matcher.group("STRING") != null) styleClass = "string";
+            else if (matcher.group("NUMBER") != null) styleClass = "number";
+            else if (matcher.group("COMMENT") != null) styleClass = "comment";
+            else if (matcher.group("MULTICOMMENT") != null) styleClass = "comment";
+            else if (matcher.group("ANNOTATION") != null) styleClass = "annotation";
+
+            spansBuilder.add(Collections.emptyList(), matcher.start() - lastKwEnd);
+            spansBuilder.add(Collections.singleton(styleClass), matcher.end() - matcher.start());
+            lastKwEnd = matcher.end();
+        }
+
+        spansBuilder.add(Collections.emptyList(), text.length() - lastKwEnd);
+        return spansBuilder.create();
+    }
+
+    private static void report(String name, String text, SyntaxHighlighter highlighter) {
+        int spans = 0;
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            spans = highlighter.computeHighlighting(text).getSpanCount();
+        }
+        long[] millis = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            highlighter.computeHighlighting(text);
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-30s median %4d ms  (min %d, max %d), %d spans%n",
+                name, millis[MEASURED_RUNS / 2], millis[0], millis[MEASURED_RUNS - 1], spans);
+    }
+}
@@ -0,0 +1,162 @@
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds the package tree for a synthetic 100k-entry JAR (50 packages of 2000
+ * classes) in each of the ways the viewer has done it: a linear scan over the
+ * siblings for every path segment (the original), eager items that look their
+ * children up by hash (the first fix), and a {@link JarEntryIndex} with lazily
+ * created items (what the viewer does now).
+ *
+ * <p>Needs JavaFX on the classpath for {@code TreeItem}, but no display.
+ * Run with {@code ./run-benchmark.sh PackageTreeBenchmark}.
+ */
+public class PackageTreeBenchmark {
+
+    private static final int PACKAGES = 50;
+    private static final int CLASSES_PER_PACKAGE = 2000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        List<String> paths = syntheticPaths();
+        System.out.println("Entries: " + paths.size());
+
+        report("Linear scan per segment (original)", paths, PackageTreeBenchmark::buildByScanning);
+        report("Hash lookup per segment, eager items", paths, PackageTreeBenchmark::buildByHashLookup);
+        report("JarEntryIndex, root items only", paths, PackageTreeBenchmark::buildIndex);
+        report("JarEntryIndex, every package expanded", paths, PackageTreeBenchmark::buildIndexExpanded);
+    }
+
+    private static List<String> syntheticPaths() {
+        List<String> paths = new ArrayList<>();
+        for (int p = 0; p < PACKAGES; p++) {
+            for (int c = 0; c < CLASSES_PER_PACKAGE; c++) {
+                paths.add("com/acme/module" + p + "/impl/Class" + c + ".class");
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * The original {@code addTreePath}: split the path and scan the children for each segment.
+     */
+    private static Object buildByScanning(List<String> paths) {
+        TreeItem<String> root = new TreeItem<>("root");
+        for (String path : paths) {
+            TreeItem<String> currentItem = root;
+            for (String part : path.split("/")) {
+                if (part.isEmpty()) continue;
+                Optional<TreeItem<String>> existingChild = currentItem.getChildren().stream()
+                        .filter(child -> child.getValue().equals(part))
+                        .findFirst();
+                if (existingChild.isPresent()) {
+                    currentItem = existingChild.get();
+                } else {
+                    TreeItem<String> newItem = new TreeItem<>(part);
+                    currentItem.getChildren().add(newItem);
+                    currentItem = newItem;
+                }
+            }
+        }
+        return root;
+    }
+
+    /**
+     * The first fix: the same eager tree, but each item keeps a name -> child
+     * map, and paths are walked with {@code indexOf} instead of {@code split}.
+     */
+    private static Object buildByHashLookup(List<String> paths) {
+        HashedTreeItem root = new HashedTreeItem("root");
+        for (String path : paths) {
+            HashedTreeItem currentItem = root;
+            int start = 0;
+            while (start < path.length()) {
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = path.length();
+                }
+                if (end > start) {
+                    currentItem = currentItem.getOrCreateChild(path.substring(start, end));
+                }
+                start = end + 1;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * The tree item of the first fix, since replaced by {@link LazyTreeItem}.
+     */
+    private static final class HashedTreeItem extends TreeItem<String> {
+        private Map<String, HashedTreeItem> childIndex;
+
+        HashedTreeItem(String name) {
+            super(name);
+        }
+
+        HashedTreeItem getOrCreateChild(String name) {
+            if (childIndex == null) {
+                childIndex = new HashMap<>();
+            }
+            HashedTreeItem child = childIndex.get(name);
+            if (child == null) {
+                child = new HashedTreeItem(name);
+                childIndex.put(name, child);
+                getChildren().add(child);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * What opening a JAR does now: index every path, then show the root's children.
+     */
+    private static Object buildIndex(List<String> paths) {
+        JarEntryIndex index = new JarEntryIndex();
+        for (String path : paths) {
+            index.addPath(path, null);
+        }
+        LazyTreeItem root = LazyTreeItem.createRoot(index, "root");
+        root.getChildren();
+        return root;
+    }
+
+    /**
+     * Worst case for the lazy tree: every item is created, as by "expand all".
+     */
+    private static Object buildIndexExpanded(List<String> paths) {
+        LazyTreeItem root = (LazyTreeItem) buildIndex(paths);
+        List<TreeItem<String>> pending = new ArrayList<>(root.getChildren());
+        while (!pending.isEmpty()) {
+            TreeItem<String> item = pending.remove(pending.size() - 1);
+            pending.addAll(item.getChildren());
+        }
+        return root;
+    }
+
+    private interface Builder {
+        Object build(List<String> paths);
+    }
+
+    private static void report(String name, List<String> paths, Builder builder) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            builder.build(paths);
+        }
+        long[] millis = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            builder.build(paths);
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-40s median %5d ms  (min %d, max %d)%n",
+                name, millis[MEASURED_RUNS / 2], millis[0], millis[MEASURED_RUNS - 1]);
+    }
+}
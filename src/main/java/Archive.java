@@ -0,0 +1,64 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.stream.Stream;
+
+/**
+ * An open JAR (or any ZIP) whose entries can be listed and read. This is the
+ * subset of {@link java.util.jar.JarFile} the viewer uses, so the backend can
+ * be chosen per file.
+ */
+public interface Archive extends Closeable {
+
+    /**
+     * Files at least this large are memory-mapped instead of opened as a {@link java.util.jar.JarFile}.
+     */
+    long MAPPED_THRESHOLD = 32L * 1024 * 1024;
+
+    /**
+     * Opens the file with the backend suited to its size.
+     */
+    static Archive open(File file) throws IOException {
+        if (file.length() >= MAPPED_THRESHOLD) {
+            return new MappedArchive(file);
+        }
+        return new JarFileArchive(file);
+    }
+
+    /**
+     * Path of the archive file.
+     */
+    String getName();
+
+    /**
+     * Returns the entry with the given name, or null if there is none. Like
+     * {@link java.util.zip.ZipFile#getEntry}, "dir" also finds "dir/".
+     */
+    JarEntry getJarEntry(String name);
+
+    InputStream getInputStream(JarEntry entry) throws IOException;
+
+    /**
+     * Entries in central directory order.
+     */
+    Enumeration<JarEntry> entries();
+
+    Stream<JarEntry> stream();
+
+    int size();
+
+    /**
+     * Returns the entry's uncompressed bytes. Positioned at 0 and in big-endian
+     * order; it may be a read-only view of the archive, so don't keep it past
+     * {@link #close()}.
+     */
+    default ByteBuffer readBuffer(JarEntry entry) throws IOException {
+        try (InputStream is = getInputStream(entry)) {
+            return ByteBuffer.wrap(is.readAllBytes());
+        }
+    }
+}
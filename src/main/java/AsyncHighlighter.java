@@ -0,0 +1,169 @@
+import javafx.application.Platform;
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes syntax highlighting for a {@link CodeArea} on a background thread,
+ * following the RichTextFX async highlighting pattern: text changes are
+ * observed through the area's reactfx event streams and each burst of changes
+ * schedules one highlighting job.
+ *
+ * <p>A job first styles the paragraphs around the viewport so what the user is
+ * looking at is colored almost immediately, then highlights the whole document
+ * and applies it chunk by chunk, one chunk per FX event, starting at the
+ * viewport. {@link ChunkedHighlighter}s are instead streamed from the start of
+ * the document. Any newer text change makes the running job stop.
+ *
+ * <p>An {@link Overlay} (e.g. search matches) is merged into every chunk as it
+ * is applied, so later chunks don't paint over it.
+ */
+public class AsyncHighlighter {
+
+    private static final int WINDOW_MARGIN_PARAGRAPHS = 20;
+    private static final int WINDOW_PARAGRAPHS = 150;
+    private static final int APPLY_CHUNK_CHARS = 64 * 1024;
+
+    private final CodeArea area;
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "highlighter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private SyntaxHighlighter highlighter; // Only touched on the FX thread
+    private Overlay overlay; // Only touched on the FX thread
+
+    /**
+     * Styles layered over the syntax spans of [from, to) before they are applied.
+     */
+    public interface Overlay {
+        StyleSpans<Collection<String>> apply(StyleSpans<Collection<String>> spans, int from, int to);
+    }
+
+    public AsyncHighlighter(CodeArea area) {
+        this.area = area;
+        // Invalidate running jobs on every change, but only start a new one once a burst of changes is over
+        area.plainTextChanges().subscribe(change -> generation.incrementAndGet());
+        area.multiPlainChanges()
+                .successionEnds(Duration.ofMillis(20))
+                .subscribe(changes -> schedule());
+    }
+
+    /**
+     * Sets the highlighter used for the next text change; null leaves the text unstyled.
+     */
+    public void setHighlighter(SyntaxHighlighter highlighter) {
+        this.highlighter = highlighter;
+    }
+
+    /**
+     * Sets the styles merged into each chunk of syntax spans; null for none.
+     */
+    public void setOverlay(Overlay overlay) {
+        this.overlay = overlay;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule() {
+        long jobGeneration = generation.incrementAndGet();
+        SyntaxHighlighter jobHighlighter = highlighter;
+        if (jobHighlighter == null || area.getLength() == 0) {
+            return;
+        }
+
+        // Snapshot the text and the viewport window while we are on the FX thread
+        String text = area.getText();
+        int paragraphs = area.getParagraphs().size();
+        int firstVisible = firstVisibleParagraph();
+        int windowFirst = Math.max(0, firstVisible - WINDOW_MARGIN_PARAGRAPHS);
+        int windowLast = Math.min(paragraphs - 1, firstVisible + WINDOW_PARAGRAPHS);
+        int windowStart = area.getAbsolutePosition(windowFirst, 0);
+        int windowEnd = area.getAbsolutePosition(windowLast, area.getParagraphLength(windowLast));
+
+        executor.submit(() -> {
+            try {
+                // 1. The visible window, highlighted on its own so it shows up right away. Constructs
+                //    crossing the window edges may be off; the full pass below corrects them.
+                StyleSpans<Collection<String>> window = jobHighlighter.computeHighlighting(text.substring(windowStart, windowEnd));
+                if (!applyOnFxThread(jobGeneration, windowStart, window)) {
+                    return;
+                }
+
+                // 2. The whole document. Chunked highlighters are streamed from the start, so
+                //    only one chunk of spans exists at a time
+                if (jobHighlighter instanceof ChunkedHighlighter) {
+                    streamChunks(jobGeneration, ((ChunkedHighlighter) jobHighlighter).cursor(text));
+                    return;
+                }
+                // Others are computed at once and applied from the viewport to the end, then from the start
+                StyleSpans<Collection<String>> all = jobHighlighter.computeHighlighting(text);
+                if (!applyChunks(jobGeneration, all, windowStart, text.length())) {
+                    return;
+                }
+                applyChunks(jobGeneration, all, 0, windowStart);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | RuntimeException e) {
+                System.err.println("Highlighting failed: " + e);
+            }
+        });
+    }
+
+    private boolean applyChunks(long jobGeneration, StyleSpans<Collection<String>> spans, int from, int to)
+            throws InterruptedException, ExecutionException {
+        for (int start = from; start < to; start += APPLY_CHUNK_CHARS) {
+            int end = Math.min(to, start + APPLY_CHUNK_CHARS);
+            if (!applyOnFxThread(jobGeneration, start, spans.subView(start, end))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void streamChunks(long jobGeneration, ChunkedHighlighter.Cursor cursor)
+            throws InterruptedException, ExecutionException {
+        while (cursor.hasNext()) {
+            int position = cursor.position();
+            if (!applyOnFxThread(jobGeneration, position, cursor.next(APPLY_CHUNK_CHARS))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies spans on the FX thread and waits for it, so each chunk gets its own
+     * turn and rendering can happen in between. Returns false if the job is stale.
+     */
+    private boolean applyOnFxThread(long jobGeneration, int position, StyleSpans<Collection<String>> spans)
+            throws InterruptedException, ExecutionException {
+        CompletableFuture<Boolean> applied = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            boolean current = jobGeneration == generation.get();
+            if (current) {
+                area.setStyleSpans(position, overlay == null ? spans
+                        : overlay.apply(spans, position, position + spans.length()));
+            }
+            applied.complete(current);
+        });
+        return applied.get();
+    }
+
+    private int firstVisibleParagraph() {
+        try {
+            return area.getVisibleParagraphs().isEmpty() ? 0 : area.visibleParToAllParIndex(0);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return 0; // Viewport not laid out yet for the new text
+        }
+    }
+}
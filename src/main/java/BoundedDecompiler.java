@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.JarEntry;
+
+/**
+ * Runs an in-process decompiler with a deadline and hands what it can't finish
+ * to an isolated fallback, normally a {@link CfrWorkerPool}.
+ *
+ * <p>In-process CFR ignores interrupts, so a job past its deadline keeps its
+ * thread until CFR gives up. Classes that did this are remembered and go
+ * straight to the fallback from then on, and the in-process jobs are capped:
+ * when {@code maxThreads} are running, a class waits up to the deadline for one
+ * to finish before it goes to the fallback as well. A run of classes that make
+ * CFR spin therefore costs at most {@code maxThreads} cores.
+ *
+ * <p>Each caller with its own pace (the viewer's foreground, prefetch, export,
+ * search) should have its own instance, so one can't use up another's threads.
+ */
+public class BoundedDecompiler implements DecompilerEngine {
+
+    private final DecompilerEngine inProcess;
+    private final DecompilerEngine fallback;
+    private final long deadlineMillis;
+    private final int maxThreads;
+    private final Semaphore running; // One permit per in-process job that may run, released when CFR returns
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "cfr-in-process");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<String> overran = ConcurrentHashMap.newKeySet(); // DecompiledSourceCache keys
+
+    public BoundedDecompiler(DecompilerEngine inProcess, DecompilerEngine fallback, long deadlineMillis, int maxThreads) {
+        this.inProcess = inProcess;
+        this.fallback = fallback;
+        this.deadlineMillis = deadlineMillis;
+        this.maxThreads = maxThreads;
+        this.running = new Semaphore(maxThreads);
+    }
+
+    @Override
+    public String getName() {
+        return inProcess.getName();
+    }
+
+    /**
+     * Decompiles in process if possible and with the fallback otherwise, including
+     * when the in-process engine fails with an error such as StackOverflowError.
+     */
+    @Override
+    public String decompile(Archive jarFile, JarEntry entry) throws Exception {
+        try {
+            return decompileInProcess(jarFile, entry);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable e) {
+            try {
+                return fallback.decompile(jarFile, entry);
+            } catch (Exception fallbackFailure) {
+                fallbackFailure.addSuppressed(e);
+                throw fallbackFailure;
+            }
+        }
+    }
+
+    /**
+     * Decompiles in process only. Throws an IOException without trying when the class
+     * overran the deadline before or no in-process job finished within the deadline to
+     * make room, and when the class runs past the deadline now.
+     */
+    public String decompileInProcess(Archive jarFile, JarEntry entry) throws Exception {
+        String key = DecompiledSourceCache.keyFor(jarFile, entry);
+        if (overran.contains(key)) {
+            throw new IOException("ran past " + deadlineMillis + " ms before, not retried in process");
+        }
+        if (!running.tryAcquire(deadlineMillis, TimeUnit.MILLISECONDS)) {
+            throw new IOException("all " + maxThreads + " in-process decompiler threads stayed busy");
+        }
+        Future<String> job;
+        try {
+            job = executor.submit(() -> {
+                try {
+                    return inProcess.decompile(jarFile, entry);
+                } finally {
+                    running.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.release();
+            throw new IOException("in-process decompiler is shut down");
+        }
+        // Abandoned jobs are left to run out rather than cancelled: CFR ignores interrupts,
+        // and a job cancelled before it started would never return its permit
+        try {
+            return job.get(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            overran.add(key);
+            throw new IOException("still running after " + deadlineMillis + " ms");
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.jar.JarEntry;
+import java.util.zip.ZipEntry;
+
+/**
+ * Random access to the bytes of an entry, for viewers that only look at a
+ * small window of it at a time.
+ *
+ * <p>Stored entries of a mapped archive, and small entries, are served from a
+ * buffer. Large compressed entries are inflated on demand into a small cache
+ * of chunks, so even a 500 MB resource costs a few MB of heap. Reads may come
+ * from several threads.
+ */
+public interface ByteSource extends Closeable {
+
+    /**
+     * Compressed entries up to this size are inflated into one buffer.
+     */
+    long INFLATE_IN_MEMORY_LIMIT = 4L * 1024 * 1024;
+
+    long length();
+
+    /**
+     * Reads up to {@code length} bytes at {@code position}; returns how many
+     * were read, which is less only at the end.
+     */
+    int read(long position, byte[] dst, int offset, int length) throws IOException;
+
+    /**
+     * True if reading the range now is cheap enough for the FX thread.
+     */
+    default boolean isFast(long position, int length) {
+        return true;
+    }
+
+    /**
+     * A stream over all bytes from the start, for sequential scans that should
+     * not disturb random access.
+     */
+    InputStream openStream() throws IOException;
+
+    @Override
+    default void close() {
+    }
+
+    static ByteSource of(ByteBuffer buffer) {
+        return new BufferSource(buffer);
+    }
+
+    /**
+     * Opens an entry in the way best suited to its size and compression.
+     */
+    static ByteSource open(Archive archive, JarEntry entry) throws IOException {
+        if (entry.getMethod() == ZipEntry.STORED || entry.getSize() <= INFLATE_IN_MEMORY_LIMIT) {
+            return of(archive.readBuffer(entry));
+        }
+        return new InflatingSource(archive, entry);
+    }
+
+    /**
+     * Bytes already in memory or mapped.
+     */
+    final class BufferSource implements ByteSource {
+        private final ByteBuffer buffer;
+
+        BufferSource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public long length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public int read(long position, byte[] dst, int offset, int length) {
+            if (position >= buffer.limit()) {
+                return 0;
+            }
+            int n = (int) Math.min(length, buffer.limit() - position);
+            // Absolute bulk get leaves the shared buffer's position alone
+            buffer.get((int) position, dst, offset, n);
+            return n;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new MappedArchive.ByteBufferInputStream(buffer.duplicate());
+        }
+    }
+
+    /**
+     * A compressed entry inflated in chunks. Deflate streams can only be read
+     * forwards, so the source keeps one open stream. It serves reads ahead of
+     * that stream by inflating up to them, and reopens it for reads behind it
+     * that miss the chunk cache. Chunks passed on the way are cached too, so
+     * scrolling back up after a jump is fast.
+     */
+    final class InflatingSource implements ByteSource {
+        static final int CHUNK_SIZE = 64 * 1024;
+        static final int MAX_CHUNKS = 64; // 4 MB
+        private static final long FAST_DISTANCE = 1024 * 1024; // How far ahead of the stream inflating is still cheap
+
+        private final Archive archive;
+        private final JarEntry entry;
+        private final long length;
+        // Guarded by its own monitor, so the FX thread never waits for an inflate in progress
+        private final Map<Long, byte[]> chunks = new LinkedHashMap<>(MAX_CHUNKS * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > MAX_CHUNKS;
+            }
+        };
+        private final ReentrantLock streamLock = new ReentrantLock(); // Held while reading from the stream
+        private volatile InputStream stream;
+        private volatile long streamPosition; // Offset of the next byte the stream returns
+        private volatile boolean closed;
+
+        InflatingSource(Archive archive, JarEntry entry) {
+            this.archive = archive;
+            this.entry = entry;
+            this.length = entry.getSize();
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public int read(long position, byte[] dst, int offset, int length) throws IOException {
+            streamLock.lock();
+            try {
+                int read = 0;
+                while (read < length && position + read < this.length) {
+                    long chunkIndex = (position + read) / CHUNK_SIZE;
+                    byte[] chunk = chunk(chunkIndex);
+                    int start = (int) (position + read - chunkIndex * CHUNK_SIZE);
+                    if (start >= chunk.length) {
+                        break; // Entry is shorter than its header claims
+                    }
+                    int n = Math.min(length - read, chunk.length - start);
+                    System.arraycopy(chunk, start, dst, offset + read, n);
+                    read += n;
+                }
+                return read;
+            } finally {
+                if (closed) {
+                    closeStream(); // close() came in while we were reading
+                }
+                streamLock.unlock();
+            }
+        }
+
+        /**
+         * Never waits for a read in progress; the stream position it looks at may
+         * be slightly stale, which only affects the estimate.
+         */
+        @Override
+        public boolean isFast(long position, int length) {
+            long first = position / CHUNK_SIZE;
+            long last = (Math.min(position + length, this.length) - 1) / CHUNK_SIZE;
+            for (long index = first; index <= last; index++) {
+                boolean cached;
+                synchronized (chunks) {
+                    cached = chunks.containsKey(index);
+                }
+                if (!cached) {
+                    long start = index * CHUNK_SIZE;
+                    long streamAt = streamPosition;
+                    // Misses are served from the open stream if it is behind them, otherwise from a new one
+                    long from = stream != null && start >= streamAt ? streamAt : 0;
+                    return start - from <= FAST_DISTANCE;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return archive.getInputStream(entry);
+        }
+
+        private byte[] chunk(long index) throws IOException {
+            byte[] chunk;
+            synchronized (chunks) {
+                chunk = chunks.get(index);
+            }
+            if (chunk != null) {
+                return chunk;
+            }
+            long start = index * CHUNK_SIZE;
+            if (stream == null || streamPosition > start) {
+                closeStream();
+                stream = archive.getInputStream(entry);
+                streamPosition = 0;
+            }
+            while (true) {
+                long current = streamPosition / CHUNK_SIZE;
+                chunk = stream.readNBytes(CHUNK_SIZE);
+                streamPosition += chunk.length;
+                synchronized (chunks) {
+                    chunks.put(current, chunk);
+                }
+                if (current == index) {
+                    return chunk;
+                }
+                if (chunk.length < CHUNK_SIZE) {
+                    return new byte[0]; // Entry is shorter than its header claims
+                }
+            }
+        }
+
+        /**
+         * Closes the stream now, or leaves it to the read in progress so the
+         * caller (usually the FX thread) does not wait for it.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            if (streamLock.tryLock()) {
+                try {
+                    closeStream();
+                } finally {
+                    streamLock.unlock();
+                }
+            }
+        }
+
+        private void closeStream() {
+            InputStream current = stream;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException ignored) {
+                }
+                stream = null;
+            }
+        }
+    }
+}
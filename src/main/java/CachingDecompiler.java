@@ -0,0 +1,55 @@
+import java.io.InputStream;
+import java.util.jar.JarEntry;
+
+/**
+ * Wraps a {@link DecompilerEngine} with the in-memory and on-disk source caches,
+ * for background users (prefetch, search) that want a source and don't care
+ * where it came from. Lookups here don't count towards the status bar hit/miss
+ * counters, which track what the user clicked.
+ */
+public class CachingDecompiler implements DecompilerEngine {
+
+    private final DecompilerEngine engine;
+    private final DecompiledSourceCache memoryCache;
+    private final DiskSourceCache diskCache;
+
+    public CachingDecompiler(DecompilerEngine engine, DecompiledSourceCache memoryCache, DiskSourceCache diskCache) {
+        this.engine = engine;
+        this.memoryCache = memoryCache;
+        this.diskCache = diskCache;
+    }
+
+    @Override
+    public String getName() {
+        return engine.getName();
+    }
+
+    /**
+     * Returns true if the entry's source is already in the in-memory cache.
+     */
+    public boolean isCached(Archive jarFile, JarEntry entry) {
+        return memoryCache.contains(DecompiledSourceCache.keyFor(jarFile, entry));
+    }
+
+    @Override
+    public String decompile(Archive jarFile, JarEntry entry) throws Exception {
+        String key = DecompiledSourceCache.keyFor(jarFile, entry);
+        String source = memoryCache.peek(key);
+        if (source != null) {
+            return source;
+        }
+
+        byte[] classBytes;
+        try (InputStream is = jarFile.getInputStream(entry)) {
+            classBytes = is.readAllBytes();
+        }
+        String diskKey = DiskSourceCache.keyFor(jarFile, entry, classBytes);
+        source = diskCache.get(diskKey);
+        if (source == null) {
+            source = engine.decompile(jarFile, entry);
+            diskCache.put(diskKey, source);
+        }
+        memoryCache.put(key, source);
+        return source;
+    }
+}
@@ -0,0 +1,143 @@
+import org.benf.cfr.reader.api.CfrDriver;
+import org.benf.cfr.reader.api.ClassFileSource;
+import org.benf.cfr.reader.api.OutputSinkFactory;
+import org.benf.cfr.reader.api.SinkReturns;
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+
+/**
+ * Decompiles classes in-process through CFR's {@link CfrDriver} API.
+ * Class bytes are read straight from the open {@link Archive}, so no temp files
+ * or extra JVMs are involved.
+ */
+public class CfrDecompiler implements DecompilerEngine {
+
+    /**
+     * CFR options used for every decompilation. Kept in one place so anything that
+     * depends on the output (e.g. caches) can key on them.
+     */
+    static final Map<String, String> OPTIONS = Collections.emptyMap();
+
+    @Override
+    public String getName() {
+        return "CFR (in-process)";
+    }
+
+    @Override
+    public String decompile(Archive jarFile, JarEntry entry) throws Exception {
+        return decompile(new BytesClassFileSource(name -> readClass(jarFile, name)), entry.getName());
+    }
+
+    /**
+     * Decompiles the class at {@code path}, reading it and the classes it refers
+     * to through {@code source}. Shared with {@link CfrWorker}, which serves the
+     * bytes from its parent process instead of a JAR.
+     */
+    static String decompile(ClassFileSource source, String path) throws IOException {
+        StringBuilder java = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+
+        OutputSinkFactory sinkFactory = new OutputSinkFactory() {
+            @Override
+            public List<SinkClass> getSupportedSinks(SinkType sinkType, Collection<SinkClass> available) {
+                if (sinkType == SinkType.JAVA && available.contains(SinkClass.DECOMPILED)) {
+                    return Collections.singletonList(SinkClass.DECOMPILED);
+                }
+                if (sinkType == SinkType.EXCEPTION && available.contains(SinkClass.EXCEPTION_MESSAGE)) {
+                    return Collections.singletonList(SinkClass.EXCEPTION_MESSAGE);
+                }
+                return Collections.singletonList(SinkClass.STRING);
+            }
+
+            @Override
+            public <T> Sink<T> getSink(SinkType sinkType, SinkClass sinkClass) {
+                if (sinkType == SinkType.JAVA && sinkClass == SinkClass.DECOMPILED) {
+                    return x -> java.append(((SinkReturns.Decompiled) x).getJava());
+                }
+                if (sinkType == SinkType.EXCEPTION && sinkClass == SinkClass.EXCEPTION_MESSAGE) {
+                    // The plain message is "null" for exceptions without one, so name the type instead
+                    return x -> {
+                        Exception thrown = ((SinkReturns.ExceptionMessage) x).getThrownException();
+                        errors.append(thrown != null ? thrown.toString() : ((SinkReturns.ExceptionMessage) x).getMessage())
+                                .append('\n');
+                    };
+                }
+                if (sinkType == SinkType.EXCEPTION) {
+                    return x -> errors.append(x).append('\n');
+                }
+                // Progress and summary output is not interesting here
+                return x -> { };
+            }
+        };
+
+        CfrDriver driver = new CfrDriver.Builder()
+                // The "override" variant chains our source in front of CFR's default class path lookup
+                .withOverrideClassFileSource(source)
+                .withOutputSink(sinkFactory)
+                .withOptions(OPTIONS)
+                .build();
+        driver.analyse(Collections.singletonList(path));
+
+        if (java.length() == 0) {
+            throw new IOException(errors.length() > 0 ? errors.toString().trim() : "CFR produced no output");
+        }
+        return java.toString();
+    }
+
+    private static byte[] readClass(Archive jarFile, String path) throws IOException {
+        JarEntry entry = jarFile.getJarEntry(path);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream is = jarFile.getInputStream(entry)) {
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * Looks up class file bytes by path, returning null for unknown classes.
+     */
+    interface ClassBytes {
+        byte[] read(String path) throws IOException;
+    }
+
+    /**
+     * Serves class bytes to CFR from a {@link ClassBytes} lookup. Classes it does
+     * not know (e.g. JDK types) are left to CFR's default class path lookup.
+     */
+    static class BytesClassFileSource implements ClassFileSource {
+        private final ClassBytes classBytes;
+
+        BytesClassFileSource(ClassBytes classBytes) {
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        public void informAnalysisRelativePathDetail(String usePath, String classFilePath) {
+        }
+
+        @Override
+        public Collection<String> addJar(String jarPath) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String getPossiblyRenamedPath(String path) {
+            return path;
+        }
+
+        @Override
+        public Pair<byte[], String> getClassFileContent(String path) throws IOException {
+            byte[] bytes = classBytes.read(path);
+            // Returning null lets CFR fall through to its default source
+            return bytes == null ? null : Pair.make(bytes, path);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Main class of the long-lived CFR worker JVMs started by {@link CfrWorkerPool}.
+ *
+ * <p>Talks to its parent over stdin/stdout in length-prefixed frames. A job
+ * names one class; while CFR runs, the worker asks the parent for every class
+ * file CFR wants (the class itself, inner classes, supertypes) and the parent
+ * answers with the bytes or "not found". The job ends with the source or an
+ * error message. Anything CFR prints goes to stderr so stdout stays framed.
+ */
+public class CfrWorker {
+
+    // Parent -> worker
+    static final int JOB = 1;
+    static final int CLASS = 2;
+    // Worker -> parent
+    static final int READY = 3;
+    static final int NEED_CLASS = 4;
+    static final int SOURCE = 5;
+    static final int ERROR = 6;
+
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    CfrWorker(InputStream in, DataOutputStream out) {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024));
+        System.setOut(System.err);
+        warmUp();
+        new CfrWorker(System.in, out).run();
+    }
+
+    /**
+     * Decompiles this class once so CFR is loaded and partly compiled before the
+     * first real job arrives.
+     */
+    private static void warmUp() {
+        try (InputStream is = CfrWorker.class.getResourceAsStream("CfrWorker.class")) {
+            if (is != null) {
+                byte[] bytes = is.readAllBytes();
+                CfrDecompiler.decompile(new CfrDecompiler.BytesClassFileSource(
+                        path -> path.equals("CfrWorker.class") ? bytes : null), "CfrWorker.class");
+            }
+        } catch (Exception e) {
+            System.err.println("CFR worker warm-up failed: " + e.getMessage());
+        }
+    }
+
+    private void run() throws IOException {
+        out.writeInt(READY);
+        out.flush();
+        while (true) {
+            int type;
+            try {
+                type = in.readInt();
+            } catch (EOFException e) {
+                return; // Parent closed our stdin
+            }
+            if (type != JOB) {
+                throw new IOException("Unexpected frame " + type);
+            }
+            String path = readString(in);
+            try {
+                String source = CfrDecompiler.decompile(new CfrDecompiler.BytesClassFileSource(this::requestClass), path);
+                out.writeInt(SOURCE);
+                writeString(out, source);
+            } catch (IOException e) {
+                if (e instanceof ProtocolException) {
+                    throw e;
+                }
+                out.writeInt(ERROR);
+                writeString(out, String.valueOf(e.getMessage()));
+            } catch (RuntimeException | StackOverflowError e) {
+                out.writeInt(ERROR);
+                writeString(out, e.toString());
+            }
+            out.flush();
+        }
+    }
+
+    private byte[] requestClass(String path) throws IOException {
+        out.writeInt(NEED_CLASS);
+        writeString(out, path);
+        out.flush();
+        if (in.readInt() != CLASS) {
+            throw new ProtocolException("Expected class bytes for " + path);
+        }
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        // Not writeUTF, which is limited to 64 KB
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * The conversation with the parent broke; the worker cannot continue.
+     */
+    private static class ProtocolException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ProtocolException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarEntry;
+
+/**
+ * Decompiles in a small pool of long-lived {@link CfrWorker} JVMs, so a class
+ * that makes CFR spin or run out of memory cannot take the viewer down.
+ *
+ * <p>Workers are started once and reused, so only the first job pays JVM
+ * startup. Each runs with its own heap limit. A job that exceeds its timeout or
+ * is cancelled kills its worker. So does a worker that crashes or breaks the
+ * protocol, or isn't ready within {@link #STARTUP_TIMEOUT_MILLIS} of starting.
+ * Either way the worker is replaced on the next job. A class that CFR
+ * merely fails on leaves the worker in the pool. Workers are also
+ * retired after {@link #MAX_JOBS_PER_WORKER} jobs to keep their heaps small.
+ */
+public class CfrWorkerPool implements DecompilerEngine {
+
+    static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+    static final String DEFAULT_MAX_HEAP = "512m";
+    static final int MAX_JOBS_PER_WORKER = 1000;
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+    private static final long WATCHDOG_MILLIS = 100;
+    private static final long EXIT_WAIT_MILLIS = 1000;
+    private static final long CANCEL_GRACE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int size;
+    private final long timeoutMillis;
+    private final String maxHeap;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Semaphore permits; // One per worker that is idle or not started yet
+    private final List<Worker> all = new ArrayList<>();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cfr-worker-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean shutdown;
+
+    /**
+     * A worker JVM and the framed streams to it.
+     */
+    private static final class Worker {
+        final Process process;
+        final DataOutputStream out;
+        final DataInputStream in;
+        int jobs;
+
+        Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 64 * 1024));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream(), 64 * 1024));
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+
+    public CfrWorkerPool() {
+        this(Math.min(2, Runtime.getRuntime().availableProcessors()), DEFAULT_TIMEOUT_MILLIS, DEFAULT_MAX_HEAP);
+    }
+
+    /**
+     * @param maxHeap heap limit of each worker in {@code -Xmx} syntax, e.g. "512m"
+     */
+    public CfrWorkerPool(int size, long timeoutMillis, String maxHeap) {
+        this.size = Math.max(1, size);
+        this.timeoutMillis = timeoutMillis;
+        this.maxHeap = maxHeap;
+        this.permits = new Semaphore(this.size);
+    }
+
+    @Override
+    public String getName() {
+        return "CFR (worker process)";
+    }
+
+    /**
+     * Starts the missing workers in the background, so the first jobs don't wait for them.
+     */
+    public void prestart() {
+        Thread starter = new Thread(() -> {
+            List<Worker> started = new ArrayList<>();
+            try {
+                while (!shutdown && liveWorkers() < size && permits.tryAcquire()) {
+                    started.add(start());
+                }
+            } catch (IOException e) {
+                System.err.println("Could not start CFR worker: " + e.getMessage());
+            } finally {
+                for (Worker worker : started) {
+                    release(worker);
+                }
+            }
+        }, "cfr-worker-start");
+        starter.setDaemon(true);
+        starter.start();
+    }
+
+    @Override
+    public String decompile(Archive jarFile, JarEntry entry) throws Exception {
+        if (shutdown) {
+            throw new IllegalStateException("CFR worker pool is shut down");
+        }
+        permits.acquire();
+        Worker worker = idle.poll();
+        boolean healthy = false;
+        try {
+            if (worker == null) {
+                worker = start();
+            }
+            String source = runJob(worker, jarFile, entry);
+            healthy = true;
+            return source;
+        } catch (JobFailedException e) {
+            // CFR gave up on this class, but the worker answered properly and can take the next job
+            healthy = worker.process.isAlive();
+            throw e;
+        } finally {
+            if (worker != null && (!healthy || ++worker.jobs >= MAX_JOBS_PER_WORKER)) {
+                retire(worker);
+                worker = null;
+            }
+            release(worker);
+        }
+    }
+
+    private String runJob(Worker worker, Archive jarFile, JarEntry entry) throws Exception {
+        Thread caller = Thread.currentThread();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        AtomicBoolean timedOut = new AtomicBoolean();
+        long[] cancelledAt = new long[1]; // Only touched by the watchdog thread
+        // Blocking pipe reads can't be interrupted, so the watchdog kills the worker instead.
+        // Cancelled jobs get a short grace period first, so quick clicking through
+        // classes doesn't throw away warm workers.
+        ScheduledFuture<?> check = watchdog.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            if (now - deadline > 0) {
+                timedOut.set(true);
+                worker.kill();
+            } else if (shutdown) {
+                worker.kill();
+            } else if (caller.isInterrupted()) {
+                if (cancelledAt[0] == 0) {
+                    cancelledAt[0] = now;
+                } else if (now - cancelledAt[0] > CANCEL_GRACE_NANOS) {
+                    worker.kill();
+                }
+            }
+        }, WATCHDOG_MILLIS, WATCHDOG_MILLIS, TimeUnit.MILLISECONDS);
+        String error;
+        try {
+            worker.out.writeInt(CfrWorker.JOB);
+            CfrWorker.writeString(worker.out, entry.getName());
+            worker.out.flush();
+            while (true) {
+                int type = worker.in.readInt();
+                if (type == CfrWorker.NEED_CLASS) {
+                    sendClass(worker, jarFile, CfrWorker.readString(worker.in));
+                } else if (type == CfrWorker.SOURCE) {
+                    return CfrWorker.readString(worker.in);
+                } else if (type == CfrWorker.ERROR) {
+                    error = CfrWorker.readString(worker.in);
+                    break;
+                } else {
+                    throw new IOException("CFR worker sent unexpected frame " + type);
+                }
+            }
+        } catch (IOException e) {
+            throw failure(worker, timedOut.get(), caller, e);
+        } finally {
+            check.cancel(false);
+        }
+        throw new JobFailedException(error);
+    }
+
+    /**
+     * The worker reported that CFR could not decompile the class.
+     */
+    private static class JobFailedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        JobFailedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Explains why the conversation with a worker broke off in the middle of a job.
+     */
+    private Exception failure(Worker worker, boolean timedOut, Thread caller, IOException e) {
+        if (timedOut) {
+            return new IOException("CFR worker timed out after " + timeoutMillis + " ms");
+        }
+        if (caller.isInterrupted()) {
+            return new InterruptedException("Decompilation cancelled");
+        }
+        // A JVM that runs out of memory prints to stdout before exiting, which
+        // reads as a garbled frame, so give it a moment to finish dying
+        try {
+            if (!worker.process.waitFor(EXIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return e;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return new InterruptedException("Decompilation cancelled");
+        }
+        return new IOException("CFR worker crashed (exit code " + worker.process.exitValue()
+                + "); it may have run out of memory (-Xmx" + maxHeap + ")", e);
+    }
+
+    private static void sendClass(Worker worker, Archive jarFile, String path) throws IOException {
+        JarEntry entry = path.endsWith(".class") ? jarFile.getJarEntry(path) : null;
+        worker.out.writeInt(CfrWorker.CLASS);
+        if (entry == null) {
+            worker.out.writeInt(-1);
+        } else {
+            byte[] bytes;
+            try (InputStream is = jarFile.getInputStream(entry)) {
+                bytes = is.readAllBytes();
+            }
+            worker.out.writeInt(bytes.length);
+            worker.out.write(bytes);
+        }
+        worker.out.flush();
+    }
+
+    private Worker start() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-Xmx" + maxHeap);
+        command.add("-Xss4m"); // CFR recurses deeply on large methods
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("CfrWorker");
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Worker worker = new Worker(process);
+        // The handshake read can't be interrupted either, so a worker that wedges before
+        // it is killed by the watchdog, which ends the read
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> check = watchdog.schedule(() -> {
+            timedOut.set(true);
+            worker.kill();
+        }, STARTUP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            if (worker.in.readInt() != CfrWorker.READY) {
+                throw new IOException("CFR worker did not start properly");
+            }
+        } catch (IOException e) {
+            worker.kill();
+            throw new IOException("Could not start CFR worker: " + (timedOut.get()
+                    ? "not ready after " + STARTUP_TIMEOUT_MILLIS + " ms" : e.getMessage()), e);
+        } finally {
+            check.cancel(false);
+        }
+        synchronized (all) {
+            all.add(worker);
+        }
+        if (shutdown) {
+            retire(worker);
+            throw new IllegalStateException("CFR worker pool is shut down");
+        }
+        return worker;
+    }
+
+    /**
+     * Returns a worker to the pool, or just the permit if the worker was retired.
+     */
+    private void release(Worker worker) {
+        if (worker != null) {
+            if (shutdown) {
+                retire(worker);
+            } else {
+                idle.add(worker);
+            }
+        }
+        permits.release();
+    }
+
+    private int liveWorkers() {
+        synchronized (all) {
+            return all.size();
+        }
+    }
+
+    private void retire(Worker worker) {
+        synchronized (all) {
+            all.remove(worker);
+        }
+        worker.kill();
+    }
+
+    /**
+     * Stops all workers. Jobs in progress fail.
+     */
+    public void shutdown() {
+        shutdown = true;
+        watchdog.shutdownNow();
+        List<Worker> workers;
+        synchronized (all) {
+            workers = new ArrayList<>(all);
+        }
+        for (Worker worker : workers) {
+            retire(worker);
+        }
+        idle.clear();
+    }
+}
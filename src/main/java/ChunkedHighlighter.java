@@ -0,0 +1,33 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * A highlighter that can produce its spans a chunk at a time, carrying its lexer
+ * state from one chunk to the next. {@link AsyncHighlighter} streams such
+ * highlighters into the code area so only one chunk of spans is held in memory,
+ * instead of the spans of the whole document.
+ */
+public interface ChunkedHighlighter extends SyntaxHighlighter {
+
+    Cursor cursor(String text);
+
+    /**
+     * Walks a text from the start in consecutive chunks.
+     */
+    interface Cursor {
+
+        /**
+         * Start of the next chunk.
+         */
+        int position();
+
+        boolean hasNext();
+
+        /**
+         * Spans for the next chunk of about {@code maxChars} characters (slightly
+         * more if a delimiter straddles the boundary), starting at {@link #position()}.
+         */
+        StyleSpans<Collection<String>> next(int maxChars);
+    }
+}
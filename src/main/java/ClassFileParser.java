@@ -0,0 +1,710 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight class file parser working directly on a {@link ByteBuffer}.
+ *
+ * <p>Construction only records the offset of every constant pool entry and of
+ * the fields, methods and attributes tables. Strings are decoded on demand and
+ * then remembered, so asking for the class name of a large class doesn't decode
+ * its whole constant pool. Attributes and annotations are likewise only walked
+ * when asked for.
+ */
+public class ClassFileParser {
+
+    public static final int CONSTANT_UTF8 = 1;
+    public static final int CONSTANT_INTEGER = 3;
+    public static final int CONSTANT_FLOAT = 4;
+    public static final int CONSTANT_LONG = 5;
+    public static final int CONSTANT_DOUBLE = 6;
+    public static final int CONSTANT_CLASS = 7;
+    public static final int CONSTANT_STRING = 8;
+    public static final int CONSTANT_FIELDREF = 9;
+    public static final int CONSTANT_METHODREF = 10;
+    public static final int CONSTANT_INTERFACE_METHODREF = 11;
+    public static final int CONSTANT_NAME_AND_TYPE = 12;
+    public static final int CONSTANT_METHOD_HANDLE = 15;
+    public static final int CONSTANT_METHOD_TYPE = 16;
+    public static final int CONSTANT_DYNAMIC = 17;
+    public static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    public static final int CONSTANT_MODULE = 19;
+    public static final int CONSTANT_PACKAGE = 20;
+
+    private final ByteBuffer buffer;
+    private final int base; // Position of the magic number within the buffer
+    private final int minorVersion;
+    private final int majorVersion;
+    private final int[] constantOffsets; // Absolute offset of each entry's tag byte, 0 for unusable slots
+    private final String[] utf8Cache;
+    private final int accessFlags;
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+    private final int fieldsOffset;
+    private final int methodsOffset;
+    private final int attributesOffset;
+
+    /**
+     * A field or method. Name and descriptor are decoded lazily from the constant pool.
+     */
+    public final class Member {
+        private final int accessFlags;
+        private final int nameIndex;
+        private final int descriptorIndex;
+        private final int attributesOffset;
+
+        private Member(int accessFlags, int nameIndex, int descriptorIndex, int attributesOffset) {
+            this.accessFlags = accessFlags;
+            this.nameIndex = nameIndex;
+            this.descriptorIndex = descriptorIndex;
+            this.attributesOffset = attributesOffset;
+        }
+
+        public int getAccessFlags() {
+            return accessFlags;
+        }
+
+        public String getName() {
+            return getUtf8(nameIndex);
+        }
+
+        public String getDescriptor() {
+            return getUtf8(descriptorIndex);
+        }
+
+        /**
+         * Absolute buffer offset of this member's attributes_count.
+         */
+        public int getAttributesOffset() {
+            return attributesOffset;
+        }
+
+        public List<Attribute> getAttributes() {
+            return readAttributes(attributesOffset);
+        }
+    }
+
+    /**
+     * An attribute of the class, a field or a method. Only its position is
+     * recorded; the contents stay in the buffer until asked for.
+     */
+    public final class Attribute {
+        private final int nameIndex;
+        private final int offset;
+        private final int length;
+
+        private Attribute(int nameIndex, int offset, int length) {
+            this.nameIndex = nameIndex;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getName() {
+            return getUtf8(nameIndex);
+        }
+
+        /**
+         * Absolute buffer offset of the attribute's info, after its name and length.
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * A runtime visible or invisible annotation. Its element values are only
+     * decoded when it is rendered.
+     */
+    public final class Annotation {
+        private final int offset; // Absolute offset of type_index
+        private final boolean visible;
+
+        private Annotation(int offset, boolean visible) {
+            this.offset = offset;
+            this.visible = visible;
+        }
+
+        /**
+         * Type descriptor, e.g. {@code Ljava/lang/Deprecated;}.
+         */
+        public String getType() {
+            return getUtf8(u2(offset));
+        }
+
+        /**
+         * False for annotations with class retention, which only the class file keeps.
+         */
+        public boolean isRuntimeVisible() {
+            return visible;
+        }
+
+        /**
+         * Java-like rendering, e.g. {@code @Retention(RetentionPolicy.RUNTIME)}.
+         */
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            appendAnnotation(offset, out);
+            return out.toString();
+        }
+    }
+
+    public ClassFileParser(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        this.base = buffer.position();
+        try {
+            int pos = base;
+            if (buffer.getInt(pos) != 0xCAFEBABE) {
+                throw new IOException("Not a class file (bad magic number)");
+            }
+            minorVersion = u2(pos + 4);
+            majorVersion = u2(pos + 6);
+            int count = u2(pos + 8);
+            pos += 10;
+
+            constantOffsets = new int[count];
+            utf8Cache = new String[count];
+            for (int i = 1; i < count; i++) {
+                constantOffsets[i] = pos;
+                int tag = u1(pos);
+                switch (tag) {
+                    case CONSTANT_UTF8:
+                        pos += 3 + u2(pos + 1);
+                        break;
+                    case CONSTANT_CLASS: case CONSTANT_STRING: case CONSTANT_METHOD_TYPE:
+                    case CONSTANT_MODULE: case CONSTANT_PACKAGE:
+                        pos += 3;
+                        break;
+                    case CONSTANT_METHOD_HANDLE:
+                        pos += 4;
+                        break;
+                    case CONSTANT_INTEGER: case CONSTANT_FLOAT: case CONSTANT_FIELDREF: case CONSTANT_METHODREF:
+                    case CONSTANT_INTERFACE_METHODREF: case CONSTANT_NAME_AND_TYPE: case CONSTANT_DYNAMIC:
+                    case CONSTANT_INVOKE_DYNAMIC:
+                        pos += 5;
+                        break;
+                    case CONSTANT_LONG: case CONSTANT_DOUBLE:
+                        pos += 9;
+                        i++; // Takes two slots
+                        break;
+                    default:
+                        throw new IOException("Bad constant pool tag " + tag + " at index " + i);
+                }
+            }
+
+            accessFlags = u2(pos);
+            thisClass = u2(pos + 2);
+            superClass = u2(pos + 4);
+            int interfaceCount = u2(pos + 6);
+            pos += 8;
+            interfaces = new int[interfaceCount];
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces[i] = u2(pos);
+                pos += 2;
+            }
+
+            fieldsOffset = pos;
+            pos = skipMembers(pos);
+            methodsOffset = pos;
+            pos = skipMembers(pos);
+            attributesOffset = pos;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+    }
+
+    public static ClassFileParser parse(byte[] classBytes) throws IOException {
+        return new ClassFileParser(ByteBuffer.wrap(classBytes));
+    }
+
+    public int getMinorVersion() {
+        return minorVersion;
+    }
+
+    public int getMajorVersion() {
+        return majorVersion;
+    }
+
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Internal name of this class, e.g. {@code com/acme/Foo$Bar}.
+     */
+    public String getClassName() {
+        return getClassConstant(thisClass);
+    }
+
+    /**
+     * Internal name of the superclass, or null for {@code java/lang/Object} and module-info.
+     */
+    public String getSuperClassName() {
+        return superClass == 0 ? null : getClassConstant(superClass);
+    }
+
+    public List<String> getInterfaceNames() {
+        List<String> names = new ArrayList<>(interfaces.length);
+        for (int index : interfaces) {
+            names.add(getClassConstant(index));
+        }
+        return names;
+    }
+
+    public int getConstantCount() {
+        return constantOffsets.length;
+    }
+
+    /**
+     * Tag of a constant pool entry, or 0 for index 0 and the unused slot after a long/double.
+     */
+    public int getConstantTag(int index) {
+        int offset = constantOffsets[index];
+        return offset == 0 ? 0 : u1(offset);
+    }
+
+    /**
+     * Absolute buffer offset of a constant pool entry's tag byte.
+     */
+    public int getConstantOffset(int index) {
+        return constantOffsets[index];
+    }
+
+    public String getUtf8(int index) {
+        String value = utf8Cache[index];
+        if (value == null) {
+            int offset = constantOffsets[index];
+            if (offset == 0 || u1(offset) != CONSTANT_UTF8) {
+                throw new IllegalArgumentException("Constant " + index + " is not a Utf8 entry");
+            }
+            value = decodeModifiedUtf8(offset + 3, u2(offset + 1));
+            utf8Cache[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Name of a CONSTANT_Class entry.
+     */
+    public String getClassConstant(int index) {
+        return getUtf8(u2(constantOffsets[index] + 1));
+    }
+
+    /**
+     * All CONSTANT_Utf8 values (names, descriptors, string literals, ...).
+     */
+    public List<String> getUtf8Constants() {
+        List<String> values = new ArrayList<>();
+        for (int i = 1; i < constantOffsets.length; i++) {
+            if (getConstantTag(i) == CONSTANT_UTF8) {
+                values.add(getUtf8(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Values of the CONSTANT_String entries, i.e. string literals used by the code.
+     */
+    public List<String> getStringConstants() {
+        List<String> values = new ArrayList<>();
+        for (int i = 1; i < constantOffsets.length; i++) {
+            if (getConstantTag(i) == CONSTANT_STRING) {
+                values.add(getUtf8(u2(constantOffsets[i] + 1)));
+            }
+        }
+        return values;
+    }
+
+    public List<Member> getFields() {
+        return readMembers(fieldsOffset);
+    }
+
+    public List<Member> getMethods() {
+        return readMembers(methodsOffset);
+    }
+
+    /**
+     * Absolute buffer offset of the class attributes_count.
+     */
+    public int getAttributesOffset() {
+        return attributesOffset;
+    }
+
+    public List<Attribute> getAttributes() {
+        return readAttributes(attributesOffset);
+    }
+
+    /**
+     * Reads an attributes table starting at its attributes_count.
+     */
+    public List<Attribute> readAttributes(int pos) {
+        int count = u2(pos);
+        pos += 2;
+        List<Attribute> attributes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt(pos + 2);
+            attributes.add(new Attribute(u2(pos), pos + 6, length));
+            pos += 6 + length;
+        }
+        return attributes;
+    }
+
+    /**
+     * The first attribute with the given name in an attributes table, or null.
+     */
+    public Attribute findAttribute(int attributesOffset, String name) {
+        for (Attribute attribute : readAttributes(attributesOffset)) {
+            if (attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Annotations from the RuntimeVisible/InvisibleAnnotations attributes of an
+     * attributes table, e.g. {@link #getAttributesOffset()} for the class.
+     */
+    public List<Annotation> getAnnotations(int attributesOffset) {
+        List<Annotation> annotations = new ArrayList<>();
+        for (Attribute attribute : readAttributes(attributesOffset)) {
+            String name = attribute.getName();
+            boolean visible = name.equals("RuntimeVisibleAnnotations");
+            if (!visible && !name.equals("RuntimeInvisibleAnnotations")) {
+                continue;
+            }
+            int pos = attribute.getOffset();
+            int count = u2(pos);
+            pos += 2;
+            for (int i = 0; i < count; i++) {
+                annotations.add(new Annotation(pos, visible));
+                pos = skipAnnotation(pos);
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * Value of a SourceFile or Signature style attribute, which is a single Utf8
+     * index, or null if the table has no such attribute.
+     */
+    public String getUtf8Attribute(int attributesOffset, String name) {
+        Attribute attribute = findAttribute(attributesOffset, name);
+        return attribute == null ? null : getUtf8(u2(attribute.getOffset()));
+    }
+
+    /**
+     * Class names from a method's Exceptions attribute.
+     */
+    public List<String> getExceptionNames(Member method) {
+        Attribute attribute = findAttribute(method.getAttributesOffset(), "Exceptions");
+        if (attribute == null) {
+            return List.of();
+        }
+        int pos = attribute.getOffset();
+        int count = u2(pos);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(getClassConstant(u2(pos + 2 + 2 * i)));
+        }
+        return names;
+    }
+
+    /**
+     * Length of a method's bytecode, or -1 for abstract and native methods.
+     */
+    public int getCodeLength(Member method) {
+        Attribute code = findAttribute(method.getAttributesOffset(), "Code");
+        return code == null ? -1 : buffer.getInt(code.getOffset() + 4);
+    }
+
+    /**
+     * Readable form of a constant pool entry, e.g. {@code Methodref java/lang/Object.<init>:()V}.
+     */
+    public String describeConstant(int index) {
+        int offset = constantOffsets[index];
+        switch (getConstantTag(index)) {
+            case 0:
+                return "(unused)";
+            case CONSTANT_UTF8:
+                return "Utf8 " + getUtf8(index);
+            case CONSTANT_INTEGER:
+                return "Integer " + buffer.getInt(offset + 1);
+            case CONSTANT_FLOAT:
+                return "Float " + buffer.getFloat(offset + 1) + "f";
+            case CONSTANT_LONG:
+                return "Long " + buffer.getLong(offset + 1) + "L";
+            case CONSTANT_DOUBLE:
+                return "Double " + buffer.getDouble(offset + 1) + "d";
+            case CONSTANT_CLASS:
+                return "Class " + getClassConstant(index);
+            case CONSTANT_STRING:
+                return "String \"" + getUtf8(u2(offset + 1)) + "\"";
+            case CONSTANT_FIELDREF:
+                return "Fieldref " + describeMemberRef(offset);
+            case CONSTANT_METHODREF:
+                return "Methodref " + describeMemberRef(offset);
+            case CONSTANT_INTERFACE_METHODREF:
+                return "InterfaceMethodref " + describeMemberRef(offset);
+            case CONSTANT_NAME_AND_TYPE:
+                return "NameAndType " + describeNameAndType(offset);
+            case CONSTANT_METHOD_HANDLE:
+                return "MethodHandle kind " + u1(offset + 1) + " #" + u2(offset + 2);
+            case CONSTANT_METHOD_TYPE:
+                return "MethodType " + getUtf8(u2(offset + 1));
+            case CONSTANT_DYNAMIC:
+                return "Dynamic #" + u2(offset + 1) + ":" + describeNameAndType(constantOffsets[u2(offset + 3)]);
+            case CONSTANT_INVOKE_DYNAMIC:
+                return "InvokeDynamic #" + u2(offset + 1) + ":" + describeNameAndType(constantOffsets[u2(offset + 3)]);
+            case CONSTANT_MODULE:
+                return "Module " + getUtf8(u2(offset + 1));
+            case CONSTANT_PACKAGE:
+                return "Package " + getUtf8(u2(offset + 1));
+            default:
+                return "Tag " + getConstantTag(index);
+        }
+    }
+
+    private String describeMemberRef(int offset) {
+        return getClassConstant(u2(offset + 1)) + "." + describeNameAndType(constantOffsets[u2(offset + 3)]);
+    }
+
+    private String describeNameAndType(int offset) {
+        return getUtf8(u2(offset + 1)) + ":" + getUtf8(u2(offset + 3));
+    }
+
+    /**
+     * Skips one annotation starting at its type_index and returns the offset after it.
+     */
+    private int skipAnnotation(int pos) {
+        int pairs = u2(pos + 2);
+        pos += 4;
+        for (int i = 0; i < pairs; i++) {
+            pos = skipElementValue(pos + 2);
+        }
+        return pos;
+    }
+
+    private int skipElementValue(int pos) {
+        switch (u1(pos)) {
+            case 'e':
+                return pos + 5;
+            case '@':
+                return skipAnnotation(pos + 1);
+            case '[': {
+                int count = u2(pos + 1);
+                pos += 3;
+                for (int i = 0; i < count; i++) {
+                    pos = skipElementValue(pos);
+                }
+                return pos;
+            }
+            default:
+                return pos + 3; // Constant or class index
+        }
+    }
+
+    private int appendAnnotation(int pos, StringBuilder out) {
+        out.append('@').append(typeName(getUtf8(u2(pos))));
+        int pairs = u2(pos + 2);
+        pos += 4;
+        if (pairs > 0) {
+            out.append('(');
+            for (int i = 0; i < pairs; i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                String name = getUtf8(u2(pos));
+                // A single "value" element is written without its name, as in source
+                if (pairs > 1 || !name.equals("value")) {
+                    out.append(name).append(" = ");
+                }
+                pos = appendElementValue(pos + 2, out);
+            }
+            out.append(')');
+        }
+        return pos;
+    }
+
+    private int appendElementValue(int pos, StringBuilder out) {
+        int tag = u1(pos);
+        int index = u2(pos + 1);
+        switch (tag) {
+            case 'B': case 'I': case 'S':
+                out.append(buffer.getInt(constantOffsets[index] + 1));
+                return pos + 3;
+            case 'J':
+                out.append(buffer.getLong(constantOffsets[index] + 1)).append('L');
+                return pos + 3;
+            case 'F':
+                out.append(buffer.getFloat(constantOffsets[index] + 1)).append('f');
+                return pos + 3;
+            case 'D':
+                out.append(buffer.getDouble(constantOffsets[index] + 1));
+                return pos + 3;
+            case 'Z':
+                out.append(buffer.getInt(constantOffsets[index] + 1) != 0);
+                return pos + 3;
+            case 'C':
+                out.append('\'').append((char) buffer.getInt(constantOffsets[index] + 1)).append('\'');
+                return pos + 3;
+            case 's':
+                out.append('"').append(getUtf8(index)).append('"');
+                return pos + 3;
+            case 'c':
+                out.append(typeName(getUtf8(index))).append(".class");
+                return pos + 3;
+            case 'e': {
+                String type = typeName(getUtf8(index));
+                out.append(type.substring(type.lastIndexOf('.') + 1)).append('.').append(getUtf8(u2(pos + 3)));
+                return pos + 5;
+            }
+            case '@':
+                return appendAnnotation(pos + 1, out);
+            case '[': {
+                out.append('{');
+                pos += 3;
+                for (int i = 0; i < index; i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    pos = appendElementValue(pos, out);
+                }
+                out.append('}');
+                return pos;
+            }
+            default:
+                throw new IllegalArgumentException("Bad element value tag " + tag);
+        }
+    }
+
+    /**
+     * Java name of a field descriptor, e.g. {@code [Ljava/lang/String;} becomes
+     * {@code java.lang.String[]}.
+     */
+    public static String typeName(String descriptor) {
+        int dimensions = 0;
+        while (dimensions < descriptor.length() && descriptor.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        String name;
+        char c = dimensions < descriptor.length() ? descriptor.charAt(dimensions) : 'V';
+        switch (c) {
+            case 'B': name = "byte"; break;
+            case 'C': name = "char"; break;
+            case 'D': name = "double"; break;
+            case 'F': name = "float"; break;
+            case 'I': name = "int"; break;
+            case 'J': name = "long"; break;
+            case 'S': name = "short"; break;
+            case 'Z': name = "boolean"; break;
+            case 'V': name = "void"; break;
+            case 'L':
+                int end = descriptor.indexOf(';', dimensions);
+                name = descriptor.substring(dimensions + 1, end < 0 ? descriptor.length() : end).replace('/', '.');
+                break;
+            default:
+                name = descriptor.substring(dimensions);
+        }
+        return dimensions == 0 ? name : name + "[]".repeat(dimensions);
+    }
+
+    /**
+     * Java names of a method descriptor's parameter types.
+     */
+    public static List<String> parameterTypeNames(String methodDescriptor) {
+        List<String> names = new ArrayList<>();
+        int pos = 1;
+        int end = methodDescriptor.indexOf(')');
+        while (pos < end) {
+            int start = pos;
+            while (methodDescriptor.charAt(pos) == '[') {
+                pos++;
+            }
+            pos = methodDescriptor.charAt(pos) == 'L' ? methodDescriptor.indexOf(';', pos) + 1 : pos + 1;
+            names.add(typeName(methodDescriptor.substring(start, pos)));
+        }
+        return names;
+    }
+
+    /**
+     * Java name of a method descriptor's return type.
+     */
+    public static String returnTypeName(String methodDescriptor) {
+        return typeName(methodDescriptor.substring(methodDescriptor.indexOf(')') + 1));
+    }
+
+    private List<Member> readMembers(int pos) {
+        int count = u2(pos);
+        pos += 2;
+        List<Member> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(new Member(u2(pos), u2(pos + 2), u2(pos + 4), pos + 6));
+            pos = skipAttributes(pos + 6);
+        }
+        return members;
+    }
+
+    private int skipMembers(int pos) {
+        int count = u2(pos);
+        pos += 2;
+        for (int i = 0; i < count; i++) {
+            pos = skipAttributes(pos + 6);
+        }
+        return pos;
+    }
+
+    /**
+     * Skips an attributes table starting at its attributes_count and returns the offset after it.
+     */
+    int skipAttributes(int pos) {
+        int count = u2(pos);
+        pos += 2;
+        for (int i = 0; i < count; i++) {
+            pos += 6 + buffer.getInt(pos + 2);
+        }
+        return pos;
+    }
+
+    int u1(int pos) {
+        return buffer.get(pos) & 0xFF;
+    }
+
+    int u2(int pos) {
+        return buffer.getShort(pos) & 0xFFFF;
+    }
+
+    /**
+     * Decodes the JVM's "modified UTF-8" straight from the buffer.
+     */
+    private String decodeModifiedUtf8(int pos, int length) {
+        char[] chars = new char[length];
+        int count = 0;
+        int end = pos + length;
+        while (pos < end) {
+            int b = u1(pos++);
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (u1(pos++) & 0x3F));
+            } else {
+                int b2 = u1(pos++);
+                int b3 = u1(pos++);
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+}
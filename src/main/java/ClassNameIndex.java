@@ -0,0 +1,609 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Fuzzy class name search over a JAR's class entries, for "Go to class".
+ *
+ * <p>Two trigram indexes narrow the candidates before anything is scored: one
+ * over the lower-cased qualified names (for substrings and path fragments like
+ * {@code util.concurrent}) and one over each class's camel-hump initials (for
+ * {@code NPE} or {@code NulPoEx}). Characters are folded to 6-bit codes so a
+ * trigram fits in 18 bits, and each index is a compressed posting table
+ * ({@code start}/{@code postings} int arrays) with no per-trigram objects.
+ * Queries shorter than a trigram use a third table keyed by the first two
+ * characters of each simple name and of its hump initials.
+ *
+ * <p>Looser matches, where the query is only a subsequence of the name
+ * ({@code FoBa}, {@code hsmp}, {@code jucHashMap}), can't be found through
+ * trigrams. When the trigram indexes find nothing, or the fragments are too
+ * short for them, the lower-cased names are scanned for subsequence matches
+ * instead. Per-class character masks skip most names without looking at them.
+ * Simple names are tried before qualified names, and at most
+ * {@link #MAX_SUBSEQUENCE_SCORED} matches are scored, so common letters can't
+ * make a query score every class.
+ */
+public class ClassNameIndex {
+
+    private static final int TRIGRAM_COUNT = 1 << 18;
+    private static final int MIN_SCORE = Integer.MIN_VALUE;
+    static final int MAX_SUBSEQUENCE_SCORED = 2048;
+
+    private final String[] entryNames; // e.g. com/acme/Foo$Bar.class
+    private final String[] classNames; // e.g. com.acme.Foo$Bar
+    private final String[] lowerNames; // e.g. com.acme.foo$bar
+    private final long[] charMasks; // Bit per character code occurring in each lower-cased name
+    private final long[] simpleNameMasks; // The same for the simple name only
+    private final int[] nameStart;
+    private final int[] namePostings;
+    private final int[] humpStart;
+    private final int[] humpPostings;
+    private final int[] prefixStart;
+    private final int[] prefixPostings;
+
+    /**
+     * A ranked result.
+     */
+    public static final class Match {
+        public final String entryName;
+        public final String className;
+        final int score;
+
+        Match(String entryName, String className, int score) {
+            this.entryName = entryName;
+            this.className = className;
+            this.score = score;
+        }
+
+        public String getSimpleName() {
+            return className.substring(className.lastIndexOf('.') + 1);
+        }
+
+        public String getPackageName() {
+            int dot = className.lastIndexOf('.');
+            return dot < 0 ? "" : className.substring(0, dot);
+        }
+
+        @Override
+        public String toString() {
+            String packageName = getPackageName();
+            return packageName.isEmpty() ? getSimpleName() : getSimpleName() + "  (" + packageName + ")";
+        }
+    }
+
+    private ClassNameIndex(String[] entryNames, String[] classNames) {
+        this.entryNames = entryNames;
+        this.classNames = classNames;
+        this.lowerNames = new String[classNames.length];
+        this.charMasks = new long[classNames.length];
+        this.simpleNameMasks = new long[classNames.length];
+        String[] humps = new String[classNames.length];
+        for (int i = 0; i < classNames.length; i++) {
+            lowerNames[i] = classNames[i].toLowerCase();
+            charMasks[i] = charMask(lowerNames[i], 0);
+            simpleNameMasks[i] = charMask(lowerNames[i], lowerNames[i].lastIndexOf('.') + 1);
+            humps[i] = humpInitials(classNames[i]);
+        }
+        int[][] names = buildPostings(lowerNames);
+        nameStart = names[0];
+        namePostings = names[1];
+        int[][] humpTable = buildPostings(humps);
+        humpStart = humpTable[0];
+        humpPostings = humpTable[1];
+        int[][] prefixTable = buildPrefixPostings(lowerNames, humps);
+        prefixStart = prefixTable[0];
+        prefixPostings = prefixTable[1];
+    }
+
+    /**
+     * Builds the index over the {@code .class} entries among the given entry names.
+     */
+    public static ClassNameIndex build(List<String> entryNames) {
+        List<String> classEntries = new ArrayList<>();
+        for (String name : entryNames) {
+            if (name.endsWith(".class") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class")) {
+                classEntries.add(name);
+            }
+        }
+        String[] entries = classEntries.toArray(new String[0]);
+        String[] classes = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            classes[i] = entries[i].substring(0, entries[i].length() - 6).replace('/', '.');
+        }
+        return new ClassNameIndex(entries, classes);
+    }
+
+    public int size() {
+        return classNames.length;
+    }
+
+    /**
+     * The best {@code limit} classes for a query, best first. Spaces and
+     * {@code *} separate fragments, '/' and '.' are interchangeable.
+     */
+    public List<Match> search(String query, int limit) {
+        String normalized = query.trim().replace('/', '.');
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String[] fragments = normalized.split("[\\s*]+");
+
+        int[] candidates = findCandidates(fragments);
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        for (int id : candidates) {
+            offer(id, fragments, best, limit);
+        }
+        if (best.isEmpty() || (best.size() < limit && !hasTrigrams(fragments))) {
+            offerSubsequenceMatches(fragments, candidates, best, limit);
+        }
+
+        List<Match> results = new ArrayList<>(best);
+        results.sort(RANKING);
+        return results;
+    }
+
+    /**
+     * Scores a class and keeps it if it is among the best {@code limit} so far.
+     */
+    private void offer(int id, String[] fragments, PriorityQueue<Match> best, int limit) {
+        int score = score(classNames[id], fragments);
+        if (score == MIN_SCORE || (best.size() == limit && score < best.peek().score)) {
+            return;
+        }
+        best.add(new Match(entryNames[id], classNames[id], score));
+        if (best.size() > limit) {
+            best.poll(); // Drop the worst
+        }
+    }
+
+    /**
+     * Offers classes that match every fragment as a subsequence, except the
+     * already scored {@code scored} ids. The last fragment is looked for in the
+     * simple names first, where it scores higher; qualified names are only
+     * scanned if that finds fewer than {@code limit}.
+     */
+    private void offerSubsequenceMatches(String[] fragments, int[] scored, PriorityQueue<Match> best, int limit) {
+        String[] lower = new String[fragments.length];
+        long leadingMask = 0; // Characters of all fragments but the last
+        for (int f = 0; f < fragments.length; f++) {
+            lower[f] = fragments[f].toLowerCase();
+            if (f < fragments.length - 1) {
+                leadingMask |= charMask(lower[f], 0);
+            }
+        }
+        String last = lower[lower.length - 1];
+        long lastMask = charMask(last, 0);
+
+        int[] found = new int[MAX_SUBSEQUENCE_SCORED];
+        int count = collectSubsequenceMatches(lower, leadingMask, simpleNameMasks, lastMask, true, scored, found, 0);
+        if (count < limit) {
+            count = collectSubsequenceMatches(lower, leadingMask, charMasks, lastMask, false, scored, found, count);
+        }
+        for (int i = 0; i < count; i++) {
+            offer(found[i], fragments, best, limit);
+        }
+    }
+
+    /**
+     * Appends to {@code found} the ids whose qualified name contains the leading
+     * fragments and whose simple name (or, if not {@code inSimpleName}, only
+     * qualified name) contains the last one, each as a subsequence. Returns the
+     * new count, which stops at the array's length.
+     */
+    private int collectSubsequenceMatches(String[] lower, long leadingMask, long[] lastMasks, long lastMask,
+                                          boolean inSimpleName, int[] scored, int[] found, int count) {
+        String last = lower[lower.length - 1];
+        for (int id = 0; id < lowerNames.length && count < found.length; id++) {
+            if ((lastMasks[id] & lastMask) != lastMask || (charMasks[id] & leadingMask) != leadingMask) {
+                continue; // Lacks one of the query's characters
+            }
+            String name = lowerNames[id];
+            int simpleStart = name.lastIndexOf('.') + 1;
+            if (inSimpleName ? !isSubsequence(name, simpleStart, last)
+                    : isSubsequence(name, simpleStart, last) || !isSubsequence(name, 0, last)) {
+                continue; // Simple name matches were collected in the first scan
+            }
+            boolean matches = true;
+            for (int f = 0; f < lower.length - 1 && matches; f++) {
+                matches = isSubsequence(name, 0, lower[f]);
+            }
+            if (matches && Arrays.binarySearch(scored, id) < 0) {
+                found[count++] = id;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * True if the query has a fragment long enough for the trigram indexes.
+     */
+    private static boolean hasTrigrams(String[] fragments) {
+        for (String fragment : fragments) {
+            if (fragment.length() >= 3) {
+                return true;
+            }
+        }
+        return queryHumpInitials(fragments[fragments.length - 1]).length() >= 3;
+    }
+
+    private static long charMask(String lower, int from) {
+        long mask = 0;
+        for (int i = from; i < lower.length(); i++) {
+            mask |= 1L << charCode(lower.charAt(i));
+        }
+        return mask;
+    }
+
+    private static boolean isSubsequence(String lowerName, int from, String lowerPattern) {
+        int pos = from;
+        for (int i = 0; i < lowerPattern.length(); i++) {
+            pos = lowerName.indexOf(lowerPattern.charAt(i), pos);
+            if (pos < 0) {
+                return false;
+            }
+            pos++;
+        }
+        return true;
+    }
+
+    private static final Comparator<Match> RANKING = Comparator
+            .comparingInt((Match m) -> -m.score)
+            .thenComparingInt(m -> m.className.length())
+            .thenComparing(m -> m.className);
+
+    /**
+     * Ids from the indexes that likely match best, in increasing order.
+     */
+    private int[] findCandidates(String[] fragments) {
+        // Classes containing every trigram of every fragment (a fragment matches as a substring)
+        List<Integer> nameTrigrams = new ArrayList<>();
+        for (String fragment : fragments) {
+            String lower = fragment.toLowerCase();
+            for (int i = 0; i + 3 <= lower.length(); i++) {
+                nameTrigrams.add(trigram(lower, i));
+            }
+        }
+
+        // Classes whose hump initials contain the query's humps (NulPoEx -> npe)
+        List<Integer> humpTrigrams = new ArrayList<>();
+        String queryHumps = queryHumpInitials(fragments[fragments.length - 1]);
+        for (int i = 0; i + 3 <= queryHumps.length(); i++) {
+            humpTrigrams.add(trigram(queryHumps, i));
+        }
+
+        if (nameTrigrams.isEmpty() && humpTrigrams.isEmpty()) {
+            // Short fragments: the last one is matched against simple names first
+            String last = fragments[fragments.length - 1].toLowerCase();
+            return last.isEmpty() ? new int[0] : prefixCandidates(last);
+        }
+        if (nameTrigrams.isEmpty()) {
+            return intersectAll(humpStart, humpPostings, humpTrigrams);
+        }
+        if (humpTrigrams.isEmpty()) {
+            return intersectAll(nameStart, namePostings, nameTrigrams);
+        }
+        return union(intersectAll(nameStart, namePostings, nameTrigrams),
+                intersectAll(humpStart, humpPostings, humpTrigrams));
+    }
+
+    /**
+     * Classes whose simple name or hump initials start with a one or two character query.
+     */
+    private int[] prefixCandidates(String lower) {
+        int key = charCode(lower.charAt(0)) << 6;
+        int from = lower.length() > 1 ? key | charCode(lower.charAt(1)) : key;
+        int to = lower.length() > 1 ? from : key | 63;
+        int[] result = Arrays.copyOfRange(prefixPostings, prefixStart[from], prefixStart[to + 1]);
+        Arrays.sort(result);
+        // A class can be listed under both its name and its initials
+        int count = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[count++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Intersection of the posting lists of the given trigrams, smallest list first.
+     */
+    private static int[] intersectAll(int[] start, int[] postings, List<Integer> trigrams) {
+        trigrams.sort(Comparator.comparingInt(t -> start[t + 1] - start[t]));
+        int first = trigrams.get(0);
+        int[] result = Arrays.copyOfRange(postings, start[first], start[first + 1]);
+        int count = result.length;
+        for (int k = 1; k < trigrams.size() && count > 0; k++) {
+            int t = trigrams.get(k);
+            count = intersectInPlace(result, count, postings, start[t], start[t + 1]);
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Scores a class for all fragments; the last fragment is matched against the
+     * simple name first. Returns {@link #MIN_SCORE} if it doesn't match.
+     */
+    static int score(String className, String[] fragments) {
+        int simpleStart = className.lastIndexOf('.') + 1;
+        int total = 0;
+        for (int f = 0; f < fragments.length; f++) {
+            String fragment = fragments[f];
+            boolean last = f == fragments.length - 1;
+            int score = MIN_SCORE;
+            if (last && fragment.indexOf('.') < 0) {
+                score = matchScore(className, simpleStart, fragment);
+                if (score != MIN_SCORE) {
+                    score += 50; // Matched within the simple name
+                }
+            }
+            if (score == MIN_SCORE) {
+                score = matchScore(className, 0, fragment);
+            }
+            if (score == MIN_SCORE) {
+                return MIN_SCORE;
+            }
+            total += score;
+        }
+        String lastFragment = fragments[fragments.length - 1];
+        if (lastFragment.length() == className.length() - simpleStart
+                && className.regionMatches(true, simpleStart, lastFragment, 0, lastFragment.length())) {
+            total += 100; // Exact simple name
+        }
+        if (className.indexOf('$', simpleStart) >= 0) {
+            total -= 10; // Prefer top-level classes
+        }
+        return total - className.length() / 4;
+    }
+
+    /**
+     * Matches the pattern as a subsequence of {@code name} from {@code from}.
+     * Upper-case pattern characters prefer hump starts; consecutive matches,
+     * hump starts and a match at {@code from} score higher.
+     */
+    private static int matchScore(String name, int from, String pattern) {
+        int score = 0;
+        int pos = from;
+        int previous = -2;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            int found = -1;
+            if (Character.isUpperCase(c) && i > 0) {
+                found = nextHump(name, pos, c);
+                if (found >= 0 && !isSubsequenceIgnoreCase(name, found + 1, pattern, i + 1)) {
+                    found = -1; // Jumping to the hump would leave the rest unmatched
+                }
+            }
+            if (found < 0) {
+                found = nextChar(name, pos, c);
+            }
+            if (found < 0) {
+                return MIN_SCORE;
+            }
+            score += 10;
+            if (found == previous + 1) {
+                score += 8;
+            }
+            if (isHumpStart(name, found)) {
+                score += 12;
+            }
+            if (i == 0 && found == from) {
+                score += 25;
+            }
+            previous = found;
+            pos = found + 1;
+        }
+        return score;
+    }
+
+    private static boolean isSubsequenceIgnoreCase(String name, int from, String pattern, int patternFrom) {
+        int pos = from;
+        for (int i = patternFrom; i < pattern.length(); i++) {
+            pos = nextChar(name, pos, pattern.charAt(i));
+            if (pos < 0) {
+                return false;
+            }
+            pos++;
+        }
+        return true;
+    }
+
+    private static int nextChar(String name, int from, char c) {
+        char lower = Character.toLowerCase(c);
+        for (int i = from; i < name.length(); i++) {
+            if (Character.toLowerCase(name.charAt(i)) == lower) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int nextHump(String name, int from, char c) {
+        char lower = Character.toLowerCase(c);
+        for (int i = from; i < name.length(); i++) {
+            if (Character.toLowerCase(name.charAt(i)) == lower && isHumpStart(name, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isHumpStart(String name, int i) {
+        if (i == 0) {
+            return true;
+        }
+        char c = name.charAt(i);
+        char before = name.charAt(i - 1);
+        return before == '.' || before == '$' || before == '_'
+                || (Character.isUpperCase(c) && !Character.isUpperCase(before));
+    }
+
+    /**
+     * Lower-cased first letters of the simple name's humps: {@code NullPointerException} -> {@code npe}.
+     */
+    static String humpInitials(String className) {
+        int simpleStart = className.lastIndexOf('.') + 1;
+        StringBuilder initials = new StringBuilder();
+        for (int i = simpleStart; i < className.length(); i++) {
+            char c = className.charAt(i);
+            if (Character.isLetterOrDigit(c) && (i == simpleStart || isHumpStart(className, i))) {
+                initials.append(Character.toLowerCase(c));
+            }
+        }
+        return initials.toString();
+    }
+
+    /**
+     * Humps of a query, only when it is written in camel case (more than one upper-case letter or
+     * upper-case after the first character): {@code NPE}, {@code NulPoEx} -> {@code npe}.
+     */
+    private static String queryHumpInitials(String fragment) {
+        StringBuilder initials = new StringBuilder();
+        int upper = 0;
+        for (int i = 0; i < fragment.length(); i++) {
+            char c = fragment.charAt(i);
+            if (Character.isUpperCase(c)) {
+                upper++;
+                initials.append(Character.toLowerCase(c));
+            } else if (i == 0 && Character.isLetterOrDigit(c)) {
+                initials.append(c);
+            }
+        }
+        return upper >= 2 || (upper == 1 && !Character.isUpperCase(fragment.charAt(0))) ? initials.toString() : "";
+    }
+
+    private static int charCode(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        switch (c) {
+            case '$': return 37;
+            case '_': return 38;
+            case '.': return 39;
+            default: return 40 + (c % 23); // Fold everything else into the remaining codes
+        }
+    }
+
+    private static int trigram(String lower, int i) {
+        return (charCode(lower.charAt(i)) << 12) | (charCode(lower.charAt(i + 1)) << 6) | charCode(lower.charAt(i + 2));
+    }
+
+    /**
+     * Builds {start, postings} for the trigrams of each text. Postings per trigram are in id order.
+     */
+    private static int[][] buildPostings(String[] texts) {
+        int[] start = new int[TRIGRAM_COUNT + 1];
+        int[] lastId = new int[TRIGRAM_COUNT]; // Id + 1 of the last text counted, to skip repeats
+        for (int id = 0; id < texts.length; id++) {
+            String text = texts[id];
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                int t = trigram(text, i);
+                if (lastId[t] != id + 1) {
+                    lastId[t] = id + 1;
+                    start[t + 1]++;
+                }
+            }
+        }
+        for (int t = 0; t < TRIGRAM_COUNT; t++) {
+            start[t + 1] += start[t];
+        }
+        int[] postings = new int[start[TRIGRAM_COUNT]];
+        int[] fill = Arrays.copyOf(start, TRIGRAM_COUNT);
+        Arrays.fill(lastId, 0);
+        for (int id = 0; id < texts.length; id++) {
+            String text = texts[id];
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                int t = trigram(text, i);
+                if (lastId[t] != id + 1) {
+                    lastId[t] = id + 1;
+                    postings[fill[t]++] = id;
+                }
+            }
+        }
+        return new int[][] { start, postings };
+    }
+
+    /**
+     * Builds {start, postings} keyed by the codes of the first two characters of
+     * each simple name and of each hump initials string.
+     */
+    private static int[][] buildPrefixPostings(String[] lowerNames, String[] humps) {
+        int buckets = 1 << 12;
+        int[] keys = new int[lowerNames.length * 2];
+        for (int id = 0; id < lowerNames.length; id++) {
+            String name = lowerNames[id];
+            keys[2 * id] = prefixKey(name, name.lastIndexOf('.') + 1);
+            keys[2 * id + 1] = prefixKey(humps[id], 0);
+        }
+        int[] start = new int[buckets + 1];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] >= 0 && (i % 2 == 0 || keys[i] != keys[i - 1])) {
+                start[keys[i] + 1]++;
+            }
+        }
+        for (int k = 0; k < buckets; k++) {
+            start[k + 1] += start[k];
+        }
+        int[] postings = new int[start[buckets]];
+        int[] fill = Arrays.copyOf(start, buckets);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] >= 0 && (i % 2 == 0 || keys[i] != keys[i - 1])) {
+                postings[fill[keys[i]]++] = i / 2;
+            }
+        }
+        return new int[][] { start, postings };
+    }
+
+    private static int prefixKey(String text, int from) {
+        if (from >= text.length()) {
+            return -1;
+        }
+        int key = charCode(text.charAt(from)) << 6;
+        return from + 1 < text.length() ? key | charCode(text.charAt(from + 1)) : key;
+    }
+
+    /**
+     * Keeps the ids in {@code ids[0..count)} that also occur in {@code postings[from..to)}
+     * (both sorted) and returns the new count.
+     */
+    private static int intersectInPlace(int[] ids, int count, int[] postings, int from, int to) {
+        int kept = 0;
+        int j = from;
+        for (int i = 0; i < count && j < to; ) {
+            if (ids[i] < postings[j]) {
+                i++;
+            } else if (ids[i] > postings[j]) {
+                j++;
+            } else {
+                ids[kept++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+        return kept;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                result[count++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,325 @@
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structure of a class file, built straight from a {@link ClassFileParser}: the
+ * header, annotations, fields, methods, attributes and constant pool. It needs
+ * no decompiler, so it can be shown the moment a class is selected and stays
+ * useful for classes the decompiler gives up on.
+ *
+ * <p>The constant pool group is built only when its children are first asked
+ * for, as it can hold tens of thousands of entries.
+ */
+public class ClassOutline {
+
+    private static final int ACC_VARARGS = 0x0080;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final int ACC_ENUM = 0x4000;
+    private static final int ACC_MODULE = 0x8000;
+
+    public enum Kind { CLASS, GROUP, ANNOTATION, FIELD, METHOD, ATTRIBUTE, CONSTANT }
+
+    /**
+     * One line of the outline.
+     */
+    public static final class Node {
+        public final Kind kind;
+        public final String label;
+        public final String memberName; // Fields and methods only
+        public final String descriptor; // Fields and methods only
+        public final int offset; // Where the item starts in the parsed buffer, -1 if none
+        private List<Node> children;
+        private Supplier<List<Node>> childLoader;
+
+        Node(Kind kind, String label, String memberName, String descriptor, int offset) {
+            this.kind = kind;
+            this.label = label;
+            this.memberName = memberName;
+            this.descriptor = descriptor;
+            this.offset = offset;
+        }
+
+        Node(Kind kind, String label) {
+            this(kind, label, null, null, -1);
+        }
+
+        public List<Node> getChildren() {
+            if (children == null) {
+                children = childLoader != null ? childLoader.get() : new ArrayList<>();
+                childLoader = null;
+            }
+            return children;
+        }
+
+        /**
+         * False until the children of a lazily built node are first asked for.
+         */
+        public boolean isChildrenLoaded() {
+            return childLoader == null;
+        }
+
+        public boolean hasChildren() {
+            return childLoader != null || (children != null && !children.isEmpty());
+        }
+
+        Node add(Node child) {
+            getChildren().add(child);
+            return child;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private ClassOutline() {
+    }
+
+    /**
+     * Builds the outline of a parsed class.
+     */
+    public static Node build(ClassFileParser parser) {
+        int flags = parser.getAccessFlags();
+        String className = parser.getClassName();
+        Node root = new Node(Kind.CLASS, classHeader(parser), null, null, 0);
+
+        int classAttributes = parser.getAttributesOffset();
+        for (ClassFileParser.Annotation annotation : parser.getAnnotations(classAttributes)) {
+            root.add(new Node(Kind.ANNOTATION, annotation.toString()));
+        }
+
+        Node info = root.add(new Node(Kind.GROUP, "Class file"));
+        info.add(new Node(Kind.ATTRIBUTE, "Version " + parser.getMajorVersion() + "." + parser.getMinorVersion()
+                + " (Java " + (parser.getMajorVersion() - 44) + ")"));
+        info.add(new Node(Kind.ATTRIBUTE, String.format("Access flags 0x%04X", flags)));
+        String sourceFile = parser.getUtf8Attribute(classAttributes, "SourceFile");
+        if (sourceFile != null) {
+            info.add(new Node(Kind.ATTRIBUTE, "Source file " + sourceFile));
+        }
+        String signature = parser.getUtf8Attribute(classAttributes, "Signature");
+        if (signature != null) {
+            info.add(new Node(Kind.ATTRIBUTE, "Signature " + signature));
+        }
+
+        List<ClassFileParser.Member> fields = parser.getFields();
+        Node fieldGroup = root.add(new Node(Kind.GROUP, "Fields (" + fields.size() + ")"));
+        for (ClassFileParser.Member field : fields) {
+            Node node = fieldGroup.add(new Node(Kind.FIELD, fieldLabel(field), field.getName(), field.getDescriptor(),
+                    field.getAttributesOffset() - 6));
+            addMemberDetails(parser, field, node);
+        }
+
+        List<ClassFileParser.Member> methods = parser.getMethods();
+        Node methodGroup = root.add(new Node(Kind.GROUP, "Methods (" + methods.size() + ")"));
+        String simpleName = className.substring(Math.max(className.lastIndexOf('/'), className.lastIndexOf('$')) + 1);
+        for (ClassFileParser.Member method : methods) {
+            Node node = methodGroup.add(new Node(Kind.METHOD, methodLabel(parser, method, simpleName),
+                    method.getName(), method.getDescriptor(), method.getAttributesOffset() - 6));
+            addMemberDetails(parser, method, node);
+            int codeLength = parser.getCodeLength(method);
+            if (codeLength >= 0) {
+                node.add(new Node(Kind.ATTRIBUTE, "Code: " + codeLength + " bytes"));
+            }
+        }
+
+        List<ClassFileParser.Attribute> attributes = parser.getAttributes();
+        Node attributeGroup = root.add(new Node(Kind.GROUP, "Attributes (" + attributes.size() + ")"));
+        for (ClassFileParser.Attribute attribute : attributes) {
+            attributeGroup.add(attributeNode(attribute));
+        }
+
+        Node constants = root.add(new Node(Kind.GROUP, "Constant pool (" + (parser.getConstantCount() - 1) + ")"));
+        // Runs later, during tree layout on the UI thread, so a corrupt reference must
+        // become a node here rather than an exception
+        constants.childLoader = () -> {
+            List<Node> entries = new ArrayList<>(parser.getConstantCount());
+            for (int i = 1; i < parser.getConstantCount(); i++) {
+                try {
+                    if (parser.getConstantTag(i) != 0) {
+                        entries.add(new Node(Kind.CONSTANT, "#" + i + " = " + parser.describeConstant(i), null, null,
+                                parser.getConstantOffset(i)));
+                    }
+                } catch (RuntimeException e) {
+                    entries.add(new Node(Kind.CONSTANT, "#" + i + " = Unreadable constant: " + e.getMessage()));
+                }
+            }
+            return entries;
+        };
+        return root;
+    }
+
+    private static void addMemberDetails(ClassFileParser parser, ClassFileParser.Member member, Node node) {
+        for (ClassFileParser.Annotation annotation : parser.getAnnotations(member.getAttributesOffset())) {
+            node.add(new Node(Kind.ANNOTATION, annotation.toString()));
+        }
+        String signature = parser.getUtf8Attribute(member.getAttributesOffset(), "Signature");
+        if (signature != null) {
+            node.add(new Node(Kind.ATTRIBUTE, "Signature " + signature));
+        }
+    }
+
+    private static Node attributeNode(ClassFileParser.Attribute attribute) {
+        return new Node(Kind.ATTRIBUTE, attribute.getName() + " (" + attribute.getLength() + " bytes)", null, null,
+                attribute.getOffset() - 6);
+    }
+
+    private static String classHeader(ClassFileParser parser) {
+        int flags = parser.getAccessFlags();
+        StringBuilder header = new StringBuilder(Modifier.toString(flags & Modifier.classModifiers()
+                & ~((flags & ACC_INTERFACE) != 0 ? Modifier.ABSTRACT : 0)));
+        if (header.length() > 0) {
+            header.append(' ');
+        }
+        if ((flags & ACC_MODULE) != 0) {
+            header.append("module ");
+        } else if ((flags & ACC_ANNOTATION) != 0) {
+            header.append("@interface ");
+        } else if ((flags & ACC_INTERFACE) != 0) {
+            header.append("interface ");
+        } else if ((flags & ACC_ENUM) != 0) {
+            header.append("enum ");
+        } else {
+            header.append("class ");
+        }
+        header.append(parser.getClassName().replace('/', '.'));
+        String superName = parser.getSuperClassName();
+        if (superName != null && !superName.equals("java/lang/Object")) {
+            header.append(" extends ").append(superName.replace('/', '.'));
+        }
+        List<String> interfaces = parser.getInterfaceNames();
+        if (!interfaces.isEmpty()) {
+            header.append((flags & ACC_INTERFACE) != 0 ? " extends " : " implements ");
+            for (int i = 0; i < interfaces.size(); i++) {
+                header.append(i > 0 ? ", " : "").append(interfaces.get(i).replace('/', '.'));
+            }
+        }
+        return header.toString();
+    }
+
+    private static String fieldLabel(ClassFileParser.Member field) {
+        String modifiers = Modifier.toString(field.getAccessFlags() & Modifier.fieldModifiers());
+        return (modifiers.isEmpty() ? "" : modifiers + " ")
+                + ClassFileParser.typeName(field.getDescriptor()) + " " + field.getName();
+    }
+
+    private static String methodLabel(ClassFileParser parser, ClassFileParser.Member method, String simpleName) {
+        int flags = method.getAccessFlags();
+        String modifiers = Modifier.toString(flags & Modifier.methodModifiers());
+        String name = method.getName();
+        String descriptor = method.getDescriptor();
+        StringBuilder label = new StringBuilder(modifiers);
+        if (label.length() > 0) {
+            label.append(' ');
+        }
+        if (name.equals("<clinit>")) {
+            return label.append("{}").toString();
+        }
+        if (name.equals("<init>")) {
+            label.append(simpleName);
+        } else {
+            label.append(ClassFileParser.returnTypeName(descriptor)).append(' ').append(name);
+        }
+        label.append('(');
+        List<String> parameters = ClassFileParser.parameterTypeNames(descriptor);
+        for (int i = 0; i < parameters.size(); i++) {
+            String type = parameters.get(i);
+            if (i == parameters.size() - 1 && (flags & ACC_VARARGS) != 0 && type.endsWith("[]")) {
+                type = type.substring(0, type.length() - 2) + "...";
+            }
+            label.append(i > 0 ? ", " : "").append(type);
+        }
+        label.append(')');
+        List<String> exceptions = parser.getExceptionNames(method);
+        if (!exceptions.isEmpty()) {
+            label.append(" throws ");
+            for (int i = 0; i < exceptions.size(); i++) {
+                label.append(i > 0 ? ", " : "").append(exceptions.get(i).replace('/', '.'));
+            }
+        }
+        return label.toString();
+    }
+
+    /**
+     * Renders the outline as indented text, constant pool included. Used where
+     * the decompiled source would otherwise be.
+     */
+    public static String toText(Node root) {
+        StringBuilder text = new StringBuilder();
+        appendText(root, 0, text);
+        return text.toString();
+    }
+
+    private static void appendText(Node node, int depth, StringBuilder text) {
+        text.append("    ".repeat(depth)).append(node.label).append('\n');
+        for (Node child : node.getChildren()) {
+            appendText(child, depth + 1, text);
+        }
+    }
+
+    /**
+     * Finds where a field or method node is declared in decompiled source of the
+     * same class, or returns -1. The decompiler's output is not mapped back to
+     * the class file, so this matches declarations by name and, for overloads,
+     * by parameter count.
+     */
+    public static int findDeclaration(String source, Node node, String simpleClassName) {
+        if (node.memberName == null) {
+            return -1;
+        }
+        if (node.kind == Kind.FIELD) {
+            Matcher matcher = Pattern.compile("^[ \\t]+[\\w$<>\\[\\],.? ]*\\s(" + Pattern.quote(node.memberName)
+                    + ")\\s*[;=]", Pattern.MULTILINE).matcher(source);
+            return matcher.find() ? matcher.start(1) : -1;
+        }
+        if (node.memberName.equals("<clinit>")) {
+            Matcher matcher = Pattern.compile("^[ \\t]+(static) \\{", Pattern.MULTILINE).matcher(source);
+            return matcher.find() ? matcher.start(1) : -1;
+        }
+        String name = node.memberName.equals("<init>") ? simpleClassName : node.memberName;
+        // Modifiers and return type, the name, then parameters up to a body or a ';'
+        Matcher matcher = Pattern.compile("^[ \\t]+([\\w$<>\\[\\],.?@ ]*\\s)?(" + Pattern.quote(name)
+                + ")\\(([^)]*)\\)[^;{\\n]*([{;])", Pattern.MULTILINE).matcher(source);
+        int parameters = ClassFileParser.parameterTypeNames(node.descriptor).size();
+        int first = -1;
+        while (matcher.find()) {
+            String prefix = matcher.group(1);
+            if (prefix == null ? matcher.group(4).equals(";")
+                    : prefix.contains("=") || prefix.startsWith("return ") || prefix.startsWith("throw ")
+                    || prefix.startsWith("new ") || prefix.startsWith("else ")) {
+                continue; // A call, not a declaration
+            }
+            if (first < 0) {
+                first = matcher.start(2);
+            }
+            if (countParameters(matcher.group(3)) == parameters) {
+                return matcher.start(2);
+            }
+        }
+        return first;
+    }
+
+    private static int countParameters(String parameters) {
+        if (parameters.isBlank()) {
+            return 0;
+        }
+        int count = 1;
+        int depth = 0;
+        for (int i = 0; i < parameters.length(); i++) {
+            char c = parameters.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
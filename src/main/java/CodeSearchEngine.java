@@ -0,0 +1,337 @@
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds matches in the open document and turns them into highlight styles.
+ *
+ * <p>Literal searches compare in place (case-insensitively with
+ * {@link String#regionMatches}), so the document is never copied or
+ * lowercased. Matches are kept as sorted primitive offset arrays, and
+ * highlighting overlays them on the existing syntax styles in one pass instead
+ * of replacing the style of each match.
+ */
+public class CodeSearchEngine {
+
+    public static final String MATCH_STYLE = "search-highlight";
+    public static final String CURRENT_MATCH_STYLE = "search-highlight-current";
+    private static final int CHECK_INTERVAL = 1 << 14; // Reads or occurrences between cancellation checks
+
+    /**
+     * What to search for.
+     */
+    public static final class Query {
+        public final String text;
+        public final boolean caseSensitive;
+        public final boolean wholeWord;
+        public final boolean regex;
+        private final Pattern pattern; // Only for regex queries
+
+        /**
+         * @throws java.util.regex.PatternSyntaxException for an invalid regex
+         */
+        public Query(String text, boolean caseSensitive, boolean wholeWord, boolean regex) {
+            this.text = text;
+            this.caseSensitive = caseSensitive;
+            this.wholeWord = wholeWord;
+            this.regex = regex;
+            if (regex) {
+                String expression = wholeWord ? "\\b(?:" + text + ")\\b" : text;
+                pattern = Pattern.compile(expression,
+                        caseSensitive ? Pattern.MULTILINE : Pattern.MULTILINE | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            } else {
+                pattern = null;
+            }
+        }
+
+        public boolean isEmpty() {
+            return text.isEmpty();
+        }
+    }
+
+    /**
+     * Sorted, non-overlapping matches as [start, end) offsets.
+     */
+    public static final class Matches {
+        public static final Matches EMPTY = new Matches(new int[0], new int[0], 0);
+
+        private final int[] starts;
+        private final int[] ends;
+        private final int count;
+
+        Matches(int[] starts, int[] ends, int count) {
+            this.starts = starts;
+            this.ends = ends;
+            this.count = count;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        public int start(int index) {
+            return starts[index];
+        }
+
+        public int end(int index) {
+            return ends[index];
+        }
+
+        /**
+         * Index of the first match ending after {@code position}, or {@link #size()} if none.
+         */
+        public int firstEndingAfter(int position) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] <= position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Growable pair of offset arrays.
+     */
+    static final class MatchCollector {
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int count;
+
+        void add(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        Matches toMatches() {
+            return count == 0 ? Matches.EMPTY : new Matches(starts, ends, count);
+        }
+    }
+
+    /**
+     * Result of a search, kept so the next search can narrow it down.
+     */
+    public static final class Result {
+        public final Query query;
+        public final Matches matches;
+        private final String text;
+        private final int[] occurrences; // Every (possibly overlapping) literal occurrence, ignoring whole-word
+        private final int occurrenceCount;
+
+        Result(Query query, Matches matches, String text, int[] occurrences, int occurrenceCount) {
+            this.query = query;
+            this.matches = matches;
+            this.text = text;
+            this.occurrences = occurrences;
+            this.occurrenceCount = occurrenceCount;
+        }
+
+        /**
+         * Whether {@code query} can only match where this result's query occurs in the same
+         * text: both literal, same case mode, and the new text extends the old one.
+         */
+        boolean canNarrowTo(String text, Query query) {
+            return this.text == text && occurrences != null && !query.regex
+                    && query.caseSensitive == this.query.caseSensitive
+                    && query.text.length() >= this.query.text.length()
+                    && query.text.regionMatches(!query.caseSensitive, 0, this.query.text, 0, this.query.text.length());
+        }
+    }
+
+    /**
+     * Searches the text. If {@code previous} was a literal search in the same text
+     * for a prefix of this query, only its occurrences are re-checked instead of
+     * scanning the whole text again, which is what makes type-ahead cheap.
+     *
+     * @param cancelled polled while searching, also from inside the regex engine so
+     *                  a pattern that backtracks badly can be abandoned
+     * @throws CancellationException once {@code cancelled} returns true
+     */
+    public static Result search(String text, Query query, Result previous, BooleanSupplier cancelled) {
+        if (query.isEmpty()) {
+            return new Result(query, Matches.EMPTY, text, null, 0);
+        }
+
+        if (query.regex) {
+            MatchCollector matches = new MatchCollector();
+            Matcher matcher = query.pattern.matcher(new CancellableText(text, cancelled));
+            while (matcher.find()) {
+                if (matcher.end() > matcher.start()) { // Empty matches can't be highlighted
+                    matches.add(matcher.start(), matcher.end());
+                }
+            }
+            return new Result(query, matches.toMatches(), text, null, 0);
+        }
+
+        // Literal: collect every occurrence, overlapping ones included, so a longer
+        // query can later be narrowed from them without missing any
+        int length = query.text.length();
+        int[] occurrences;
+        int count = 0;
+        if (previous != null && previous.canNarrowTo(text, query)) {
+            occurrences = new int[Math.max(previous.occurrenceCount, 1)];
+            for (int i = 0; i < previous.occurrenceCount; i++) {
+                if ((i & CHECK_INTERVAL - 1) == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                int start = previous.occurrences[i];
+                if (text.regionMatches(!query.caseSensitive, start, query.text, 0, length)) {
+                    occurrences[count++] = start;
+                }
+            }
+        } else {
+            occurrences = new int[64];
+            int index = 0;
+            while ((index = JarContentSearcher.indexOf(text, query.text, index, query.caseSensitive)) >= 0) {
+                if (count == occurrences.length) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException();
+                    }
+                    occurrences = Arrays.copyOf(occurrences, count * 2);
+                }
+                occurrences[count++] = index++;
+            }
+        }
+
+        // Matches are the non-overlapping (whole-word) occurrences, taken left to right
+        MatchCollector matches = new MatchCollector();
+        int lastEnd = 0;
+        for (int i = 0; i < count; i++) {
+            int start = occurrences[i];
+            if (start >= lastEnd && (!query.wholeWord || isWholeWord(text, start, start + length))) {
+                matches.add(start, start + length);
+                lastEnd = start + length;
+            }
+        }
+        return new Result(query, matches.toMatches(), text, occurrences, count);
+    }
+
+    /**
+     * The text as the regex engine sees it. Every {@link #CHECK_INTERVAL} reads it
+     * polls for cancellation, since a running {@link Matcher} cannot be interrupted.
+     */
+    private static final class CancellableText implements CharSequence {
+        private final String text;
+        private final BooleanSupplier cancelled;
+        private int reads;
+
+        CancellableText(String text, BooleanSupplier cancelled) {
+            this.text = text;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & CHECK_INTERVAL - 1) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    static boolean isWholeWord(String text, int start, int end) {
+        return (start == 0 || !isWordChar(text.charAt(start - 1)))
+                && (end == text.length() || !isWordChar(text.charAt(end)));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Overlays match highlights on the styles of [from, to), which {@code base}
+     * covers. Highlights left in {@code base} by an earlier search are dropped
+     * first, so the result is the syntax styling plus the given matches.
+     *
+     * @param current index of the current match, or -1
+     */
+    public static StyleSpans<Collection<String>> overlay(StyleSpans<Collection<String>> base, Matches matches,
+                                                         int current, int from, int to) {
+        StyleSpans<Collection<String>> syntax = stripHighlights(base);
+        if (matches.isEmpty()) {
+            return syntax;
+        }
+
+        // Build the highlight layer for the range, then merge it with the syntax layer in one pass
+        StyleSpansBuilder<Collection<String>> layer = new StyleSpansBuilder<>();
+        int pos = from;
+        boolean any = false;
+        for (int i = matches.firstEndingAfter(from); i < matches.size() && matches.start(i) < to; i++) {
+            int start = Math.max(from, matches.start(i));
+            int end = Math.min(to, matches.end(i));
+            if (start > pos) {
+                layer.add(Collections.emptyList(), start - pos);
+            }
+            layer.add(Collections.singleton(i == current ? CURRENT_MATCH_STYLE : MATCH_STYLE), end - start);
+            pos = end;
+            any = true;
+        }
+        if (!any) {
+            return syntax;
+        }
+        layer.add(Collections.emptyList(), to - pos);
+
+        return syntax.overlay(layer.create(), (syntaxStyle, highlight) -> {
+            if (highlight.isEmpty()) {
+                return syntaxStyle;
+            }
+            List<String> merged = new ArrayList<>(syntaxStyle.size() + 1);
+            merged.addAll(syntaxStyle);
+            merged.addAll(highlight);
+            return merged;
+        });
+    }
+
+    /**
+     * Removes search highlight classes, leaving the syntax styles.
+     */
+    public static StyleSpans<Collection<String>> stripHighlights(StyleSpans<Collection<String>> spans) {
+        return spans.mapStyles(style -> {
+            if (!style.contains(MATCH_STYLE) && !style.contains(CURRENT_MATCH_STYLE)) {
+                return style;
+            }
+            List<String> stripped = new ArrayList<>(style);
+            stripped.remove(MATCH_STYLE);
+            stripped.remove(CURRENT_MATCH_STYLE);
+            return stripped;
+        });
+    }
+}
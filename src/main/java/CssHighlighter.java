@@ -0,0 +1,131 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * Single-pass CSS highlighter: selectors, property names, values (numbers,
+ * colors, strings, {@code !important}), at-rules and comments.
+ *
+ * <p>Inside a block, a name followed by ':' is a property; anything else is a
+ * nested selector, which covers the rules inside {@code @media} and friends.
+ */
+public class CssHighlighter implements SyntaxHighlighter {
+
+    @Override
+    public StyleSpans<Collection<String>> computeHighlighting(String text) {
+        SpanBuilder spans = new SpanBuilder();
+        int length = text.length();
+        int depth = 0;          // Brace nesting
+        boolean inValue = false; // Between a property's ':' and its ';' or '}', or in an at-rule's prelude
+        int pos = 0;
+
+        while (pos < length) {
+            char c = text.charAt(pos);
+            int start = pos;
+
+            if (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '*') {
+                pos = SpanBuilder.blockCommentEnd(text, pos + 2);
+                spans.add(start, pos, SpanBuilder.COMMENT);
+            } else if (c == '"' || c == '\'') {
+                pos = SpanBuilder.quotedEnd(text, pos + 1, c, false);
+                spans.add(start, pos, SpanBuilder.STRING);
+            } else if (c == '{') {
+                depth++;
+                inValue = false;
+                pos++;
+            } else if (c == '}') {
+                depth = Math.max(0, depth - 1);
+                inValue = false;
+                pos++;
+            } else if (c == ';') {
+                inValue = false;
+                pos++;
+            } else if (c == '@') {
+                pos = nameEnd(text, pos + 1);
+                spans.add(start, pos, SpanBuilder.KEYWORD);
+                // The prelude up to '{' or ';' (media queries, @import URLs) is lexed like a value
+                inValue = true;
+            } else if (inValue) {
+                if (c == '!' && text.regionMatches(true, pos + 1, "important", 0, 9)) {
+                    pos += 10;
+                    spans.add(start, pos, SpanBuilder.KEYWORD);
+                } else if (c == '#' || SpanBuilder.isDigit(c)
+                        || ((c == '.' || c == '-') && pos + 1 < length && SpanBuilder.isDigit(text.charAt(pos + 1)))) {
+                    // Numbers with their unit, and hex colors
+                    pos = nameEnd(text, pos + 1);
+                    while (pos < length && (text.charAt(pos) == '.' || text.charAt(pos) == '%')) {
+                        pos = nameEnd(text, pos + 1);
+                    }
+                    spans.add(start, pos, SpanBuilder.NUMBER);
+                } else {
+                    pos++;
+                }
+            } else if (Character.isWhitespace(c) || c == ',') {
+                pos++;
+            } else if (depth > 0 && isNameChar(c)) {
+                pos = nameEnd(text, pos);
+                int next = SpanBuilder.skipWhitespace(text, pos);
+                if (next < length && text.charAt(next) == ':' && isPropertyColon(text, next + 1)) {
+                    spans.add(start, pos, SpanBuilder.ATTRIBUTE);
+                    inValue = true;
+                    pos = next + 1;
+                } else {
+                    pos = selectorEnd(text, pos);
+                    spans.add(start, pos, SpanBuilder.TAG);
+                }
+            } else {
+                pos = selectorEnd(text, pos + 1);
+                spans.add(start, pos, SpanBuilder.TAG);
+            }
+        }
+
+        return spans.create(length);
+    }
+
+    /**
+     * Distinguishes {@code color: red} from a nested {@code a:hover}: a property's
+     * colon is followed by whitespace or a value, a pseudo-class by a letter that
+     * eventually reaches '{'. Only the rest of the line is inspected.
+     */
+    private static boolean isPropertyColon(String text, int pos) {
+        int length = text.length();
+        for (int i = pos; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == ';' || c == '}' || c == '\n') {
+                return true;
+            }
+            if (c == '{') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * End of a selector run: stops before whitespace-separated blocks, commas and comments.
+     */
+    private static int selectorEnd(String text, int pos) {
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '{' || c == '}' || c == ',' || c == ';' || c == '"' || c == '\'' || Character.isWhitespace(c)
+                    || (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '*')) {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int nameEnd(String text, int pos) {
+        int length = text.length();
+        while (pos < length && isNameChar(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.jar.JarEntry;
+
+/**
+ * Speculatively decompiles classes the user is likely to open next (siblings and
+ * nested classes of the current selection) into the source caches.
+ *
+ * <p>Work runs on a single minimum-priority thread and always gives way to the
+ * foreground: before each class the prefetcher waits until {@code foregroundBusy}
+ * reports false. Scheduling a new batch abandons the previous one.
+ */
+public class DecompilePrefetcher {
+
+    private static final long FOREGROUND_POLL_MILLIS = 20;
+
+    private final CachingDecompiler decompiler;
+    private final BooleanSupplier foregroundBusy;
+    private final AtomicLong batchGeneration = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "decompile-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public DecompilePrefetcher(CachingDecompiler decompiler, BooleanSupplier foregroundBusy) {
+        this.decompiler = decompiler;
+        this.foregroundBusy = foregroundBusy;
+    }
+
+    /**
+     * Replaces any pending batch with the given entries, processed in order.
+     */
+    public void prefetch(Archive jarFile, List<JarEntry> entries) {
+        long generation = batchGeneration.incrementAndGet();
+        if (entries.isEmpty()) {
+            return;
+        }
+        executor.submit(() -> {
+            for (JarEntry entry : entries) {
+                if (Thread.currentThread().isInterrupted() || !awaitIdleForeground(generation)) {
+                    return;
+                }
+                prefetchOne(jarFile, entry);
+            }
+        });
+    }
+
+    /**
+     * Abandons the pending batch, e.g. when the JAR is closed.
+     */
+    public void cancel() {
+        batchGeneration.incrementAndGet();
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits while the foreground is busy. Returns false if the batch became stale meanwhile.
+     */
+    private boolean awaitIdleForeground(long generation) {
+        try {
+            while (foregroundBusy.getAsBoolean()) {
+                if (generation != batchGeneration.get()) {
+                    return false;
+                }
+                Thread.sleep(FOREGROUND_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return generation == batchGeneration.get();
+    }
+
+    private void prefetchOne(Archive jarFile, JarEntry entry) {
+        if (decompiler.isCached(jarFile, entry)) {
+            return;
+        }
+        try {
+            decompiler.decompile(jarFile, entry);
+        } catch (Throwable e) {
+            // Speculative only; the foreground path reports real failures. This also
+            // covers the JAR being closed underneath us and errors such as
+            // StackOverflowError, which must not end the batch.
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
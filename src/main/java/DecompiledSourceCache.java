@@ -0,0 +1,98 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+
+/**
+ * In-memory LRU cache of decompiled sources, bounded by the total number of
+ * characters held. Entries are keyed by JAR path, entry name, CRC and size so a
+ * rebuilt JAR at the same path never serves stale source.
+ */
+public class DecompiledSourceCache {
+
+    private final long maxChars;
+    private final LinkedHashMap<String, String> sources = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalChars;
+    private long hits;
+    private long misses;
+
+    public DecompiledSourceCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Builds the cache key for a class entry of an open JAR.
+     */
+    public static String keyFor(Archive jarFile, JarEntry entry) {
+        return jarFile.getName() + "!/" + entry.getName() + "#" + Long.toHexString(entry.getCrc()) + ":" + entry.getSize();
+    }
+
+    /**
+     * Returns the cached source for the key, or null. Counts as a hit or miss.
+     */
+    public synchronized String get(String key) {
+        String source = sources.get(key);
+        if (source != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return source;
+    }
+
+    /**
+     * Returns the cached source for the key, or null, without touching the counters.
+     */
+    public synchronized String peek(String key) {
+        return sources.get(key);
+    }
+
+    /**
+     * Returns true if the key is cached, without touching LRU order or counters.
+     */
+    public synchronized boolean contains(String key) {
+        return sources.containsKey(key);
+    }
+
+    public synchronized void put(String key, String source) {
+        if (source.length() > maxChars) {
+            return; // Would evict everything else and still not fit
+        }
+        String previous = sources.put(key, source);
+        if (previous != null) {
+            totalChars -= previous.length();
+        }
+        totalChars += source.length();
+
+        // Evict least recently used entries until we're back under the cap
+        Iterator<Map.Entry<String, String>> it = sources.entrySet().iterator();
+        while (totalChars > maxChars && it.hasNext()) {
+            Map.Entry<String, String> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            totalChars -= eldest.getValue().length();
+            it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        sources.clear();
+        totalChars = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Short summary for the status bar, e.g. "Cache: 12 hits / 3 misses (40 classes)".
+     */
+    public synchronized String getStatsText() {
+        return "Cache: " + hits + " hits / " + misses + " misses (" + sources.size() + " classes)";
+    }
+}
@@ -0,0 +1,19 @@
+import java.util.jar.JarEntry;
+
+/**
+ * A strategy for turning a class entry of an open JAR into Java source.
+ */
+public interface DecompilerEngine {
+
+    /**
+     * Short human readable name, shown in the status bar and menus.
+     */
+    String getName();
+
+    /**
+     * Decompiles the given class entry and returns the Java source.
+     *
+     * @throws Exception if the class could not be decompiled
+     */
+    String decompile(Archive jarFile, JarEntry entry) throws Exception;
+}
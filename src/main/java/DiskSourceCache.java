@@ -0,0 +1,327 @@
+import org.benf.cfr.reader.util.CfrVersionInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent decompilation cache stored under the user's cache directory.
+ * Entries are content-addressed by a SHA-256 of the class bytes, the checksums
+ * of its nested classes (CFR folds those into the outer class's source) and the
+ * CFR version and options, so the same class in any JAR (or a refreshed JAR)
+ * reuses earlier results across sessions.
+ *
+ * <p>Each file carries a magic number, length and CRC32 of its payload; anything
+ * that fails these checks is treated as a miss and deleted.
+ *
+ * <p>Reads and writes take no lock: entries are replaced by an atomic move, so
+ * a reader sees either the old file or the new one. Sizing and eviction scan the
+ * whole cache, so they run on a background thread, one at a time.
+ */
+public class DiskSourceCache {
+
+    private static final int MAGIC = 0x4A56_5343; // "JVSC"
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong totalBytes = new AtomicLong(); // Writes so far, plus the last scan once there was one
+    private final AtomicBoolean sized = new AtomicBoolean(); // True once a scan has counted the existing entries
+    private final AtomicBoolean maintaining = new AtomicBoolean(); // At most one size scan or eviction at a time
+
+    // Sorted class entry names per open archive, for finding nested classes by prefix
+    private static final Map<Archive, NavigableSet<String>> classNames =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    public DiskSourceCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the platform's per-user cache directory for the viewer, e.g.
+     * {@code ~/Library/Caches/JarViewer} on macOS or {@code ~/.cache/jarviewer} on Linux.
+     */
+    public static Path defaultDirectory() {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        String home = System.getProperty("user.home");
+        if (os.contains("mac")) {
+            return new File(home, "Library/Caches/JarViewer").toPath();
+        }
+        if (os.contains("win")) {
+            String localAppData = System.getenv("LOCALAPPDATA");
+            return new File(localAppData != null ? localAppData : home, "JarViewer/cache").toPath();
+        }
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        return new File(xdg != null && !xdg.isEmpty() ? xdg : home + "/.cache", "jarviewer").toPath();
+    }
+
+    /**
+     * Content address for a class: hash of the decompiler version, its options,
+     * the class bytes and the names of its nested {@code Foo$*} classes with the
+     * CRC and size the central directory records for them. Only entries without
+     * those have their bytes hashed.
+     */
+    public static String keyFor(Archive jarFile, JarEntry entry, byte[] classBytes) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(("cfr-" + CfrVersionInfo.VERSION).getBytes(StandardCharsets.UTF_8));
+            // Sort the options so the key doesn't depend on map iteration order
+            digest.update(new TreeMap<>(CfrDecompiler.OPTIONS).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(classBytes);
+            for (String name : nestedClassNames(jarFile, entry.getName())) {
+                JarEntry nested = jarFile.getJarEntry(name);
+                if (nested == null) {
+                    continue;
+                }
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                if (nested.getCrc() >= 0 && nested.getSize() >= 0) {
+                    // The central directory already has a checksum of the bytes, so don't read them
+                    digest.update((nested.getCrc() + ":" + nested.getSize()).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    try (InputStream is = jarFile.getInputStream(nested)) {
+                        digest.update(is.readAllBytes());
+                    }
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Names of the {@code Foo$*.class} entries next to {@code Foo.class}, in sorted order.
+     */
+    private static NavigableSet<String> nestedClassNames(Archive jarFile, String className) {
+        NavigableSet<String> names;
+        synchronized (classNames) {
+            names = classNames.get(jarFile);
+            if (names == null) {
+                names = new TreeSet<>();
+                jarFile.stream()
+                        .map(JarEntry::getName)
+                        .filter(name -> name.endsWith(".class") && name.indexOf('$') >= 0)
+                        .forEach(names::add);
+                classNames.put(jarFile, names);
+            }
+        }
+        // '$' + 1 is '%', so this is everything starting with "Foo$"
+        String prefix = className.substring(0, className.length() - ".class".length());
+        return names.subSet(prefix + "$", true, prefix + "%", false);
+    }
+
+    /**
+     * Returns the cached source for the key, or null if absent or corrupt.
+     */
+    public String get(String key) {
+        Path file = fileFor(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            byte[] data = Files.readAllBytes(file);
+            String source = decode(data);
+            if (source == null) {
+                System.err.println("Discarding corrupt cache entry: " + file);
+                delete(file);
+                return null;
+            }
+            // Touch so eviction sees this entry as recently used
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return source;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void put(String key, String source) {
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            byte[] data = encode(source);
+
+            // Write to a temp file first so readers never see a partial entry
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            long previous;
+            try {
+                Files.write(temp, data);
+                previous = Files.isRegularFile(file) ? Files.size(file) : 0;
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                delete(temp); // Only still there if the write or move failed
+            }
+
+            long total = totalBytes.addAndGet(data.length - previous);
+            if (!sized.get() || total > maxBytes) {
+                startMaintenance();
+            }
+        } catch (IOException e) {
+            // The cache is an optimization only
+            System.err.println("Could not write cache entry " + file + ": " + e.getMessage());
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".src");
+    }
+
+    private static byte[] encode(String source) throws IOException {
+        byte[] payload = source.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + payload.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(payload.length);
+            out.writeLong(crc.getValue());
+            out.write(payload);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String decode(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            int length = in.readInt();
+            long expectedCrc = in.readLong();
+            if (length != data.length - HEADER_SIZE) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, HEADER_SIZE, length);
+            if (crc.getValue() != expectedCrc) {
+                return null;
+            }
+            return new String(data, HEADER_SIZE, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Sizes the cache, and evicts if it is over its cap, on a background thread
+     * unless that is already happening.
+     */
+    private void startMaintenance() {
+        if (!maintaining.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                evict();
+            } catch (IOException e) {
+                System.err.println("Could not evict cache entries: " + e.getMessage());
+            } finally {
+                maintaining.set(false);
+            }
+            // Writes during the scan may have pushed the cache over its cap again
+            if (totalBytes.get() > maxBytes) {
+                startMaintenance();
+            }
+        }, "disk-cache-evict");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Recounts the cache and deletes least recently used entries until it is at
+     * 80% of its cap. Writes are counted as they happen, the first scan's
+     * included, and those that land during a scan stay counted on top, so they
+     * may be counted twice until the next scan, but never missed.
+     */
+    private void evict() throws IOException {
+        long countedBefore = totalBytes.get();
+        List<Path> files = new ArrayList<>();
+        Map<Path, long[]> stats = new HashMap<>(); // Last modified, size
+        long total = 0;
+        for (Path file : listEntries()) {
+            try {
+                long size = Files.size(file);
+                stats.put(file, new long[] { Files.getLastModifiedTime(file).toMillis(), size });
+                files.add(file);
+                total += size;
+            } catch (IOException e) {
+                // Replaced or deleted since it was listed
+            }
+        }
+
+        if (total > maxBytes) {
+            files.sort(Comparator.comparingLong(file -> stats.get(file)[0]));
+            long target = maxBytes * 8 / 10;
+            for (Path file : files) {
+                if (total <= target) {
+                    break;
+                }
+                if (delete(file)) {
+                    total -= stats.get(file)[1];
+                }
+            }
+        }
+        long scanned = total;
+        totalBytes.updateAndGet(current -> scanned + current - countedBefore);
+        sized.set(true);
+    }
+
+    private List<Path> listEntries() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory)) {
+            for (Path shard : shards) {
+                if (!Files.isDirectory(shard)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(shard, "*.src")) {
+                    for (Path entry : entries) {
+                        files.add(entry);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,558 @@
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Hex/ASCII view of a {@link ByteSource}. Only the rows in view are read and
+ * drawn, straight onto a canvas, so the size of the entry doesn't matter:
+ * nothing is formatted up front and memory use stays flat.
+ *
+ * <p>Rows that would need slow reads (far into a compressed entry) are loaded
+ * in the background and drawn when they arrive. Byte pattern searches stream
+ * through the entry on their own thread, wrapping around once.
+ */
+public class HexViewer extends BorderPane {
+
+    static final int BYTES_PER_ROW = 16;
+    private static final int SEARCH_BUFFER_SIZE = 1024 * 1024;
+    private static final long SEARCH_PROGRESS_STEP = 32L * 1024 * 1024;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final TextField offsetField = new TextField();
+    private final TextField patternField = new TextField();
+    private final Label infoLabel = new Label();
+    private final Font font = Font.font("Monospaced", 13);
+    private final double charWidth;
+    private final double rowHeight;
+    private final byte[] rowBytes = new byte[BYTES_PER_ROW]; // Only used on the FX thread
+    private final ExecutorService loader = daemonExecutor("hex-loader");
+    private final ExecutorService searcher = daemonExecutor("hex-search");
+
+    private ByteSource source;
+    private String name;
+    private int offsetDigits = 8;
+    private long generation; // Bumped when the source changes, so late loads are dropped
+    private volatile long searchGeneration; // Bumped to cancel a running search
+    private boolean loadPending;
+    private long selectionStart = -1;
+    private long selectionEnd = -1;
+    private boolean dark;
+
+    public HexViewer() {
+        Text probe = new Text("0123456789ABCDEF");
+        probe.setFont(font);
+        charWidth = probe.getLayoutBounds().getWidth() / 16;
+        rowHeight = Math.ceil(probe.getLayoutBounds().getHeight()) + 2;
+
+        // Toolbar: jump to offset, find bytes
+        offsetField.setPromptText("Offset (0x1F or 31)");
+        offsetField.setPrefColumnCount(12);
+        offsetField.setOnAction(e -> jumpToTypedOffset());
+        Button goButton = new Button("Go");
+        goButton.setOnAction(e -> jumpToTypedOffset());
+        patternField.setPromptText("Bytes (CA FE BA BE) or \"text\"");
+        patternField.setPrefColumnCount(18);
+        patternField.setOnAction(e -> findNext());
+        Button findButton = new Button("Find Next");
+        findButton.setOnAction(e -> findNext());
+        HBox toolBar = new HBox(5, new Label("Offset:"), offsetField, goButton, new Label("Find:"), patternField,
+                findButton, infoLabel);
+        toolBar.setAlignment(Pos.CENTER_LEFT);
+        toolBar.setPadding(new Insets(5));
+        HBox.setHgrow(infoLabel, Priority.ALWAYS);
+        setTop(toolBar);
+
+        // The canvas always has the size of its pane; the scroll bar says which rows it shows
+        Pane canvasPane = new Pane(canvas);
+        canvasPane.setMinSize(0, 0);
+        canvasPane.widthProperty().addListener((obs, oldWidth, width) -> {
+            canvas.setWidth(width.doubleValue());
+            redraw();
+        });
+        canvasPane.heightProperty().addListener((obs, oldHeight, height) -> {
+            canvas.setHeight(height.doubleValue());
+            updateScrollRange();
+            redraw();
+        });
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.setUnitIncrement(1);
+        scrollBar.valueProperty().addListener((obs, oldValue, value) -> redraw());
+        setCenter(canvasPane);
+        setRight(scrollBar);
+
+        canvas.setFocusTraversable(true);
+        canvas.setOnScroll(e -> {
+            long rows = Math.round(-e.getDeltaY() / rowHeight);
+            scrollToRow(firstRow() + (rows != 0 ? rows : (long) -Math.signum(e.getDeltaY())));
+        });
+        canvas.setOnMousePressed(e -> {
+            canvas.requestFocus();
+            long offset = offsetAt(e.getX(), e.getY());
+            if (offset >= 0) {
+                select(offset, offset + 1);
+            }
+        });
+        canvas.setOnKeyPressed(e -> {
+            KeyCode code = e.getCode();
+            if (code == KeyCode.DOWN) {
+                scrollToRow(firstRow() + 1);
+            } else if (code == KeyCode.UP) {
+                scrollToRow(firstRow() - 1);
+            } else if (code == KeyCode.PAGE_DOWN) {
+                scrollToRow(firstRow() + fullRows());
+            } else if (code == KeyCode.PAGE_UP) {
+                scrollToRow(firstRow() - fullRows());
+            } else if (code == KeyCode.HOME) {
+                scrollToRow(0);
+            } else if (code == KeyCode.END) {
+                scrollToRow(Long.MAX_VALUE);
+            } else {
+                return;
+            }
+            e.consume();
+        });
+    }
+
+    private static ExecutorService daemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Shows another source, closing the previous one. Null clears the view.
+     */
+    public void setSource(ByteSource source, String name) {
+        if (this.source != null && this.source != source) {
+            this.source.close();
+        }
+        this.source = source;
+        this.name = name;
+        generation++;
+        searchGeneration++;
+        loadPending = false;
+        selectionStart = -1;
+        selectionEnd = -1;
+        offsetDigits = source != null && source.length() > 0xFFFFFFFFL ? 12 : 8;
+        updateScrollRange();
+        scrollBar.setValue(0);
+        infoLabel.setText(source == null ? "" : name + " (" + source.length() + " bytes)");
+        redraw();
+    }
+
+    public void clear() {
+        setSource(null, null);
+    }
+
+    public boolean hasSource() {
+        return source != null;
+    }
+
+    public void setDark(boolean dark) {
+        this.dark = dark;
+        redraw();
+    }
+
+    /**
+     * Scrolls to an offset and selects the byte there.
+     */
+    public void goTo(long offset) {
+        if (source == null) {
+            return;
+        }
+        if (offset < 0 || offset >= source.length()) {
+            infoLabel.setText("Offset out of range (0 - " + (source.length() - 1) + ")");
+            return;
+        }
+        select(offset, offset + 1);
+        reveal(offset);
+    }
+
+    /**
+     * Stops background work for good; called when the application closes.
+     */
+    public void shutdown() {
+        searchGeneration++;
+        loader.shutdownNow();
+        searcher.shutdownNow();
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    private void select(long start, long end) {
+        selectionStart = start;
+        selectionEnd = end;
+        infoLabel.setText(String.format("Offset 0x%X (%d)", start, start)
+                + (end - start > 1 ? ", " + (end - start) + " bytes" : ""));
+        redraw();
+    }
+
+    /**
+     * Scrolls so the row holding the offset is visible, a third down the view if it wasn't.
+     */
+    private void reveal(long offset) {
+        long row = offset / BYTES_PER_ROW;
+        long first = firstRow();
+        if (row < first || row >= first + fullRows()) {
+            scrollToRow(row - fullRows() / 3);
+        }
+    }
+
+    private void jumpToTypedOffset() {
+        String text = offsetField.getText().trim().replace("_", "");
+        try {
+            long offset;
+            if (text.startsWith("0x") || text.startsWith("0X")) {
+                offset = Long.parseLong(text.substring(2), 16);
+            } else if (text.chars().anyMatch(c -> Character.digit(c, 10) < 0)) {
+                offset = Long.parseLong(text, 16); // Has hex letters
+            } else {
+                offset = Long.parseLong(text);
+            }
+            goTo(offset);
+            canvas.requestFocus();
+        } catch (NumberFormatException e) {
+            infoLabel.setText("Not an offset: " + text);
+        }
+    }
+
+    private long firstRow() {
+        return (long) scrollBar.getValue();
+    }
+
+    private int fullRows() {
+        return Math.max(1, (int) (canvas.getHeight() / rowHeight));
+    }
+
+    private long rowCount() {
+        return source == null ? 0 : (source.length() + BYTES_PER_ROW - 1) / BYTES_PER_ROW;
+    }
+
+    private void scrollToRow(long row) {
+        long max = (long) scrollBar.getMax();
+        scrollBar.setValue(Math.max(0, Math.min(row, max)));
+    }
+
+    private void updateScrollRange() {
+        int visible = fullRows();
+        scrollBar.setMax(Math.max(0, rowCount() - visible));
+        scrollBar.setVisibleAmount(visible);
+        scrollBar.setBlockIncrement(visible);
+    }
+
+    /**
+     * Byte offset under a point of the canvas, or -1.
+     */
+    private long offsetAt(double x, double y) {
+        if (source == null) {
+            return -1;
+        }
+        int column = (int) (x / charWidth);
+        int hexStart = offsetDigits + 2;
+        int asciiStart = hexStart + BYTES_PER_ROW * 3 + 2;
+        int index;
+        if (column >= hexStart && column < hexStart + BYTES_PER_ROW * 3 + 1) {
+            int hexColumn = column - hexStart;
+            index = hexColumn < 24 ? hexColumn / 3 : (hexColumn - 1) / 3;
+        } else if (column >= asciiStart && column < asciiStart + BYTES_PER_ROW) {
+            index = column - asciiStart;
+        } else {
+            return -1;
+        }
+        long offset = (firstRow() + (long) (y / rowHeight)) * BYTES_PER_ROW + index;
+        return offset < source.length() ? offset : -1;
+    }
+
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        g.setFill(dark ? Color.web("#2b2b2b") : Color.web("#fafafa"));
+        g.fillRect(0, 0, width, height);
+        if (source == null) {
+            return;
+        }
+        g.setFont(font);
+        g.setTextBaseline(VPos.TOP);
+
+        long length = source.length();
+        long first = firstRow();
+        int rows = (int) Math.ceil(height / rowHeight);
+        long start = first * BYTES_PER_ROW;
+        int span = (int) Math.max(0, Math.min((long) rows * BYTES_PER_ROW, length - start));
+        boolean ready = span == 0 || source.isFast(start, span);
+        if (!ready) {
+            loadInBackground(start, span);
+        }
+
+        Color offsetColor = Color.GRAY;
+        Color textColor = dark ? Color.web("#d4d4d4") : Color.BLACK;
+        Color selectionColor = dark ? Color.web("#214283") : Color.web("#ffd54f");
+        char[] line = new char[offsetDigits + 2 + BYTES_PER_ROW * 4 + 4];
+        int hexStart = offsetDigits + 2;
+        int asciiStart = hexStart + BYTES_PER_ROW * 3 + 2;
+        for (int r = 0; r < rows; r++) {
+            long offset = start + (long) r * BYTES_PER_ROW;
+            if (offset >= length) {
+                break;
+            }
+            double y = r * rowHeight;
+            for (int d = 0; d < offsetDigits; d++) {
+                line[d] = HEX[(int) (offset >>> ((offsetDigits - 1 - d) * 4)) & 0xF];
+            }
+            g.setFill(offsetColor);
+            g.fillText(new String(line, 0, offsetDigits), 0, y + 1);
+            if (!ready) {
+                continue; // Offsets only until the bytes have been loaded
+            }
+
+            int count;
+            try {
+                count = source.read(offset, rowBytes, 0, (int) Math.min(BYTES_PER_ROW, length - offset));
+            } catch (IOException e) {
+                infoLabel.setText("Read error: " + e.getMessage());
+                return;
+            }
+
+            // Selection background behind both the hex and the ASCII column
+            g.setFill(selectionColor);
+            for (int i = 0; i < count; i++) {
+                long at = offset + i;
+                if (at >= selectionStart && at < selectionEnd) {
+                    g.fillRect((hexStart + i * 3 + (i >= 8 ? 1 : 0)) * charWidth, y, charWidth * 2, rowHeight);
+                    g.fillRect((asciiStart + i) * charWidth, y, charWidth, rowHeight);
+                }
+            }
+
+            int pos = 0;
+            line[pos++] = ' ';
+            line[pos++] = ' ';
+            for (int i = 0; i < BYTES_PER_ROW; i++) {
+                if (i == 8) {
+                    line[pos++] = ' ';
+                }
+                if (i < count) {
+                    line[pos++] = HEX[(rowBytes[i] >> 4) & 0xF];
+                    line[pos++] = HEX[rowBytes[i] & 0xF];
+                } else {
+                    line[pos++] = ' ';
+                    line[pos++] = ' ';
+                }
+                line[pos++] = ' ';
+            }
+            line[pos++] = '|';
+            for (int i = 0; i < count; i++) {
+                int b = rowBytes[i] & 0xFF;
+                line[pos++] = b >= 32 && b < 127 ? (char) b : '.';
+            }
+            line[pos++] = '|';
+            g.setFill(textColor);
+            g.fillText(new String(line, 0, pos), offsetDigits * charWidth, y + 1);
+        }
+    }
+
+    /**
+     * Reads a range on the loader thread so the next redraw finds it cached.
+     */
+    private void loadInBackground(long start, int span) {
+        if (loadPending) {
+            return;
+        }
+        loadPending = true;
+        long requested = generation;
+        ByteSource target = source;
+        infoLabel.setText("Loading...");
+        loader.execute(() -> {
+            String error = null;
+            try {
+                target.read(start, new byte[span], 0, span);
+            } catch (IOException e) {
+                error = e.getMessage();
+            }
+            String message = error;
+            Platform.runLater(() -> {
+                if (requested != generation) {
+                    return;
+                }
+                loadPending = false;
+                if (message != null) {
+                    infoLabel.setText("Read error: " + message);
+                    return;
+                }
+                infoLabel.setText(name + " (" + target.length() + " bytes)");
+                redraw();
+            });
+        });
+    }
+
+    private void findNext() {
+        if (source == null) {
+            return;
+        }
+        byte[] pattern = parsePattern(patternField.getText());
+        if (pattern == null) {
+            infoLabel.setText("Enter hex bytes (CA FE BA BE) or \"text\" in quotes");
+            return;
+        }
+        long from = selectionStart >= 0 ? selectionStart + 1 : 0;
+        long search = ++searchGeneration;
+        ByteSource target = source;
+        infoLabel.setText("Searching...");
+        searcher.execute(() -> {
+            BooleanSupplier cancelled = () -> search != searchGeneration;
+            long[] reported = { from };
+            LongConsumer progress = position -> {
+                if (position - reported[0] >= SEARCH_PROGRESS_STEP) {
+                    reported[0] = position;
+                    Platform.runLater(() -> {
+                        if (search == searchGeneration) {
+                            infoLabel.setText(String.format("Searching... %.0f%%", position * 100.0 / target.length()));
+                        }
+                    });
+                }
+            };
+            long match;
+            boolean wrapped = false;
+            String error = null;
+            try {
+                match = indexOf(target, pattern, from, target.length(), progress, cancelled);
+                if (match < 0 && from > 0 && !cancelled.getAsBoolean()) {
+                    wrapped = true;
+                    reported[0] = 0;
+                    match = indexOf(target, pattern, 0, from, progress, cancelled);
+                }
+            } catch (IOException e) {
+                match = -1;
+                error = e.getMessage();
+            }
+            long found = match;
+            boolean foundWrapped = wrapped;
+            String message = error;
+            Platform.runLater(() -> {
+                if (search != searchGeneration) {
+                    return; // Cancelled or superseded
+                }
+                if (message != null) {
+                    infoLabel.setText("Search failed: " + message);
+                } else if (found < 0) {
+                    infoLabel.setText("Not found");
+                } else {
+                    select(found, found + pattern.length);
+                    reveal(found);
+                    infoLabel.setText(String.format("Found at 0x%X (%d)%s", found, found, foundWrapped ? ", wrapped" : ""));
+                }
+            });
+        });
+    }
+
+    /**
+     * Bytes to search for: hex digits in pairs (spaces allowed), or UTF-8 text in
+     * double quotes. Null if the input is neither.
+     */
+    static byte[] parsePattern(String text) {
+        text = text.trim();
+        if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+            byte[] bytes = text.substring(1, text.length() - 1).getBytes(StandardCharsets.UTF_8);
+            return bytes.length > 0 ? bytes : null;
+        }
+        String hex = text.replaceAll("\\s+", "");
+        if (hex.startsWith("0x") || hex.startsWith("0X")) {
+            hex = hex.substring(2);
+        }
+        if (hex.isEmpty() || hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * First offset in [from, to) where the pattern starts, or -1. Streams
+     * through the source a buffer at a time, skipping ahead Horspool-style.
+     */
+    static long indexOf(ByteSource source, byte[] pattern, long from, long to, LongConsumer progress,
+                        BooleanSupplier cancelled) throws IOException {
+        int m = pattern.length;
+        if (from >= source.length() || from >= to) {
+            return -1;
+        }
+        int[] shift = new int[256];
+        Arrays.fill(shift, m);
+        for (int i = 0; i < m - 1; i++) {
+            shift[pattern[i] & 0xFF] = m - 1 - i;
+        }
+
+        try (InputStream in = source.openStream()) {
+            in.skipNBytes(from);
+            byte[] buffer = new byte[SEARCH_BUFFER_SIZE + m];
+            long bufferStart = from;
+            int carry = 0;
+            while (!cancelled.getAsBoolean()) {
+                int n = in.readNBytes(buffer, carry, SEARCH_BUFFER_SIZE);
+                int filled = carry + n;
+                int i = 0;
+                while (i <= filled - m) {
+                    if (bufferStart + i >= to) {
+                        return -1;
+                    }
+                    int j = m - 1;
+                    while (j >= 0 && buffer[i + j] == pattern[j]) {
+                        j--;
+                    }
+                    if (j < 0) {
+                        return bufferStart + i;
+                    }
+                    i += shift[buffer[i + m - 1] & 0xFF];
+                }
+                if (n < SEARCH_BUFFER_SIZE || bufferStart + i >= to) {
+                    return -1; // End of the entry
+                }
+                // Keep the unsearched tail, which is shorter than the pattern
+                i = Math.min(i, filled);
+                System.arraycopy(buffer, i, buffer, 0, filled - i);
+                carry = filled - i;
+                bufferStart += i;
+                progress.accept(bufferStart);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
+
+/**
+ * Full-text search over every entry of a JAR, nested JARs included: text
+ * resources line by line, the constant-pool strings of each class and,
+ * optionally, the decompiled source. Entries are scanned in parallel on a
+ * fork-join pool and hits are streamed to a callback as they are found.
+ *
+ * <p>Nested JARs are searched one at a time after the entries of the archive
+ * holding them. Those the search had to open are released again afterwards,
+ * so a WAR full of compressed libraries doesn't keep them all in memory.
+ */
+public class JarContentSearcher {
+
+    static final int MAX_HITS = 10_000;
+    private static final long MAX_RESOURCE_SIZE = 32L * 1024 * 1024;
+    private static final int BINARY_SNIFF_LENGTH = 8000;
+    private static final int MAX_SNIPPET_LENGTH = 200;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * A single match. {@code line} is 1-based for text and source hits and 0 for
+     * constant-pool hits, which have no line.
+     */
+    public static final class Hit {
+        public final String entryName;
+        public final int line;
+        public final String text;
+        public final String kind;
+
+        Hit(String entryName, int line, String text, String kind) {
+            this.entryName = entryName;
+            this.line = line;
+            this.text = text;
+            this.kind = kind;
+        }
+
+        @Override
+        public String toString() {
+            return entryName + (line > 0 ? ":" + line : "") + " [" + kind + "]  " + text;
+        }
+    }
+
+    /**
+     * A running search. Cancelling stops it before the next entry is scanned and
+     * interrupts the decompiles in progress.
+     */
+    public static final class Search {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Set<Thread> decompiling = new HashSet<>(); // Guarded by itself
+        private final AtomicInteger scanned = new AtomicInteger();
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicBoolean truncated = new AtomicBoolean();
+
+        public void cancel() {
+            cancelled.set(true);
+            synchronized (decompiling) {
+                for (Thread thread : decompiling) {
+                    thread.interrupt();
+                }
+            }
+        }
+
+        /**
+         * Decompiles on the calling pool thread so that {@link #cancel()} can interrupt it.
+         */
+        String decompile(DecompilerEngine decompiler, Archive jarFile, JarEntry entry) throws Exception {
+            Thread thread = Thread.currentThread();
+            synchronized (decompiling) {
+                if (isCancelled()) {
+                    throw new InterruptedException();
+                }
+                decompiling.add(thread);
+            }
+            try {
+                return decompiler.decompile(jarFile, entry);
+            } finally {
+                synchronized (decompiling) {
+                    decompiling.remove(thread);
+                    // Clear an interrupt from cancel() so it doesn't leak into the pool's next task
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public int getScanned() {
+            return scanned.get();
+        }
+
+        /**
+         * Entries found so far; grows as nested JARs are opened.
+         */
+        public int getTotal() {
+            return total.get();
+        }
+
+        public int getHits() {
+            return hits.get();
+        }
+
+        /**
+         * True if the search stopped at {@link #MAX_HITS} rather than scanning everything.
+         */
+        public boolean isTruncated() {
+            return truncated.get();
+        }
+    }
+
+    /**
+     * Starts searching the JAR, and the JARs nested in it, for a literal term.
+     *
+     * @param decompiler if non-null, class entries are also searched in their decompiled source.
+     *                   It should bound the time per class, as a {@link BoundedDecompiler} does,
+     *                   since a class it never finishes holds a pool thread
+     * @param onHit      called from pool threads for every hit
+     * @param onDone     called from a pool thread once the search has finished or was cancelled
+     */
+    public Search search(NestedArchives archives, String term, boolean caseSensitive, DecompilerEngine decompiler,
+                         Consumer<Hit> onHit, Runnable onDone) {
+        Search search = new Search();
+        pool.execute(() -> {
+            try {
+                searchArchive(archives, archives.getRoot(), "", term, caseSensitive, decompiler, search, onHit);
+            } catch (IllegalStateException e) {
+                // JAR closed while listing entries
+            } finally {
+                onDone.run();
+            }
+        });
+        return search;
+    }
+
+    /**
+     * Scans the entries of one archive in parallel, then each JAR nested in it.
+     */
+    private void searchArchive(NestedArchives archives, Archive archive, String prefix, String term,
+                               boolean caseSensitive, DecompilerEngine decompiler, Search search, Consumer<Hit> onHit) {
+        List<JarEntry> entries = new ArrayList<>();
+        List<String> nestedPaths = new ArrayList<>();
+        archive.stream().filter(e -> !e.isDirectory()).forEach(entry -> {
+            if (NestedArchives.isArchiveName(entry.getName())) {
+                nestedPaths.add(prefix + entry.getName());
+            } else {
+                entries.add(entry);
+            }
+        });
+        search.total.addAndGet(entries.size());
+
+        // A parallel stream started from inside the pool runs on the pool
+        entries.parallelStream().forEach(entry -> {
+            if (search.isCancelled()) {
+                return;
+            }
+            try {
+                searchEntry(archive, entry, prefix + entry.getName(), term, caseSensitive, decompiler, search, onHit);
+            } catch (Exception e) {
+                // Unreadable entry (or the JAR was closed, or the search was cancelled); keep going with the rest
+            }
+            search.scanned.incrementAndGet();
+        });
+
+        for (String path : nestedPaths) {
+            if (search.isCancelled()) {
+                return;
+            }
+            boolean wasOpen = archives.isOpen(path);
+            try {
+                searchArchive(archives, archives.open(path), path + "/", term, caseSensitive, decompiler, search, onHit);
+            } catch (IOException e) {
+                // Not a readable archive; nothing to search in it
+            } finally {
+                if (!wasOpen) {
+                    archives.release(path);
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void searchEntry(Archive jarFile, JarEntry entry, String name, String term, boolean caseSensitive,
+                             DecompilerEngine decompiler, Search search, Consumer<Hit> onHit) throws Exception {
+        if (entry.getSize() > MAX_RESOURCE_SIZE) {
+            return;
+        }
+
+        if (name.endsWith(".class")) {
+            for (String constant : new ClassFileParser(jarFile.readBuffer(entry)).getUtf8Constants()) {
+                if (indexOf(constant, term, 0, caseSensitive) >= 0) {
+                    report(new Hit(name, 0, snippet(constant), "constant"), search, onHit);
+                }
+            }
+            if (decompiler != null && !search.isCancelled()) {
+                searchLines(name, search.decompile(decompiler, jarFile, entry), term, caseSensitive, "source", search, onHit);
+            }
+            return;
+        }
+
+        byte[] data;
+        try (InputStream is = jarFile.getInputStream(entry)) {
+            data = is.readAllBytes();
+        }
+        if (!isBinary(data)) {
+            searchLines(name, new String(data, StandardCharsets.UTF_8), term, caseSensitive, "text", search, onHit);
+        }
+    }
+
+    private void searchLines(String entryName, String text, String term, boolean caseSensitive, String kind,
+                             Search search, Consumer<Hit> onHit) {
+        int lineStart = 0;
+        int lineNumber = 1;
+        int from = 0;
+        int match;
+        while (!search.isCancelled() && (match = indexOf(text, term, from, caseSensitive)) >= 0) {
+            // Advance the line counter up to the match
+            int newline;
+            while ((newline = text.indexOf('\n', lineStart)) >= 0 && newline < match) {
+                lineStart = newline + 1;
+                lineNumber++;
+            }
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            report(new Hit(entryName, lineNumber, snippet(text.substring(lineStart, lineEnd)), kind), search, onHit);
+            // One hit per line is enough
+            from = lineEnd + 1;
+        }
+    }
+
+    private void report(Hit hit, Search search, Consumer<Hit> onHit) {
+        if (search.hits.incrementAndGet() > MAX_HITS) {
+            search.truncated.set(true);
+            search.cancel();
+            return;
+        }
+        onHit.accept(hit);
+    }
+
+    /**
+     * Literal search, optionally ignoring case, without copying the text.
+     */
+    static int indexOf(String text, String term, int from, boolean caseSensitive) {
+        if (caseSensitive) {
+            return text.indexOf(term, from);
+        }
+        int last = text.length() - term.length();
+        for (int i = Math.max(from, 0); i <= last; i++) {
+            if (text.regionMatches(true, i, term, 0, term.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String snippet(String text) {
+        String trimmed = text.trim();
+        return trimmed.length() > MAX_SNIPPET_LENGTH ? trimmed.substring(0, MAX_SNIPPET_LENGTH) + "..." : trimmed;
+    }
+
+    private static boolean isBinary(byte[] data) {
+        int length = Math.min(data.length, BINARY_SNIFF_LENGTH);
+        for (int i = 0; i < length; i++) {
+            if (data[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
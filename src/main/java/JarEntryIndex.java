@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact path trie of a JAR's entry names, backed by primitive arrays.
+ *
+ * <p>Every path segment is a node identified by an int. Segment names are
+ * stored once in a shared name table, and the tree shape lives in parallel int
+ * arrays (parent, first child, last child, next sibling), so a 60k-entry JAR
+ * costs a few int arrays instead of tens of thousands of {@code TreeItem}s.
+ * Children keep the order in which entries were added.
+ *
+ * <p>Not thread-safe; the viewer only touches it from the FX thread.
+ */
+public class JarEntryIndex {
+
+    public static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    // Segment name table
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private String[] names = new String[256];
+    private int nameCount;
+
+    // Node arrays
+    private int[] nodeName = new int[1024];
+    private int[] parent = new int[1024];
+    private int[] firstChild = new int[1024];
+    private int[] lastChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    private int nodeCount;
+
+    // Open-addressing (parent, name) -> child table used while adding paths
+    private long[] childKeys = new long[2048];
+    private int[] childValues = new int[2048];
+    private int childEntries;
+
+    public JarEntryIndex() {
+        Arrays.fill(childKeys, -1L);
+        newNode(NONE, internName(""));
+    }
+
+    /**
+     * Adds an entry path such as {@code com/acme/Foo.class}, creating any missing
+     * nodes. Ids of newly created nodes are appended to {@code createdNodes}, if given.
+     */
+    public void addPath(String path, List<Integer> createdNodes) {
+        int current = ROOT;
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) { // Skip empty parts (in case of leading slash)
+                int nameId = internName(path.substring(start, end));
+                int child = findChild(current, nameId);
+                if (child == NONE) {
+                    child = newNode(current, nameId);
+                    putChild(current, nameId, child);
+                    if (createdNodes != null) {
+                        createdNodes.add(child);
+                    }
+                }
+                current = child;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Returns the node for an entry path, or -1 if the index has no such path.
+     */
+    public int findNode(String path) {
+        int current = ROOT;
+        int start = 0;
+        while (start < path.length() && current != NONE) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                Integer nameId = nameIds.get(path.substring(start, end));
+                current = nameId != null ? findChild(current, nameId) : NONE;
+            }
+            start = end + 1;
+        }
+        return current;
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    public String getName(int node) {
+        return names[nodeName[node]];
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public boolean hasChildren(int node) {
+        return firstChild[node] != NONE;
+    }
+
+    /**
+     * Returns the children of a node in insertion order.
+     */
+    public int[] getChildren(int node) {
+        int count = 0;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            count++;
+        }
+        int[] children = new int[count];
+        int i = 0;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            children[i++] = child;
+        }
+        return children;
+    }
+
+    /**
+     * Returns the entry path of a node, e.g. {@code com/acme/Foo.class}.
+     */
+    public String getPath(int node) {
+        StringBuilder path = new StringBuilder();
+        for (int current = node; current != ROOT; current = parent[current]) {
+            if (path.length() > 0) {
+                path.insert(0, '/');
+            }
+            path.insert(0, getName(current));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Depth-first (pre-order) search of node names, matching the order the
+     * package explorer shows them in. The root is not included.
+     *
+     * @param term already lower-cased when {@code caseSensitive} is false
+     */
+    public List<Integer> findNodes(String term, boolean caseSensitive) {
+        // Match each distinct segment name once, then walk the tree
+        boolean[] nameMatches = new boolean[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            String name = caseSensitive ? names[i] : names[i].toLowerCase();
+            nameMatches[i] = name.contains(term);
+        }
+
+        // Threaded pre-order walk over the first-child/next-sibling links, no stack needed
+        List<Integer> matches = new ArrayList<>();
+        int node = firstChild[ROOT];
+        while (node != NONE) {
+            if (nameMatches[nodeName[node]]) {
+                matches.add(node);
+            }
+            if (firstChild[node] != NONE) {
+                node = firstChild[node];
+                continue;
+            }
+            while (node != ROOT && nextSibling[node] == NONE) {
+                node = parent[node];
+            }
+            node = node == ROOT ? NONE : nextSibling[node];
+        }
+        return matches;
+    }
+
+    private int internName(String name) {
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameIds.put(name, nameCount);
+        return nameCount++;
+    }
+
+    private int newNode(int parentNode, int nameId) {
+        if (nodeCount == nodeName.length) {
+            int capacity = nodeCount * 2;
+            nodeName = Arrays.copyOf(nodeName, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            lastChild = Arrays.copyOf(lastChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+        }
+        int node = nodeCount++;
+        nodeName[node] = nameId;
+        parent[node] = parentNode;
+        firstChild[node] = NONE;
+        lastChild[node] = NONE;
+        nextSibling[node] = NONE;
+        if (parentNode != NONE) {
+            if (lastChild[parentNode] == NONE) {
+                firstChild[parentNode] = node;
+            } else {
+                nextSibling[lastChild[parentNode]] = node;
+            }
+            lastChild[parentNode] = node;
+        }
+        return node;
+    }
+
+    private static long childKey(int parentNode, int nameId) {
+        return ((long) parentNode << 32) | (nameId & 0xFFFFFFFFL);
+    }
+
+    private int slotFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 33) & (childKeys.length - 1);
+    }
+
+    private int findChild(int parentNode, int nameId) {
+        long key = childKey(parentNode, nameId);
+        for (int slot = slotFor(key); childKeys[slot] != -1L; slot = (slot + 1) & (childKeys.length - 1)) {
+            if (childKeys[slot] == key) {
+                return childValues[slot];
+            }
+        }
+        return NONE;
+    }
+
+    private void putChild(int parentNode, int nameId, int child) {
+        if ((childEntries + 1) * 2 > childKeys.length) {
+            growChildTable();
+        }
+        long key = childKey(parentNode, nameId);
+        int slot = slotFor(key);
+        while (childKeys[slot] != -1L) {
+            slot = (slot + 1) & (childKeys.length - 1);
+        }
+        childKeys[slot] = key;
+        childValues[slot] = child;
+        childEntries++;
+    }
+
+    private void growChildTable() {
+        long[] oldKeys = childKeys;
+        int[] oldValues = childValues;
+        childKeys = new long[oldKeys.length * 2];
+        childValues = new int[oldKeys.length * 2];
+        Arrays.fill(childKeys, -1L);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != -1L) {
+                int slot = slotFor(oldKeys[i]);
+                while (childKeys[slot] != -1L) {
+                    slot = (slot + 1) & (childKeys.length - 1);
+                }
+                childKeys[slot] = oldKeys[i];
+                childValues[slot] = oldValues[i];
+            }
+        }
+    }
+}
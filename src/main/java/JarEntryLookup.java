@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+
+/**
+ * Lookups from the names a user or the tree may use for an entry to the
+ * {@link JarEntry} itself: the entry name (as shown by the tree, so without a
+ * directory's trailing slash), the fully qualified class name, and the simple
+ * class name. Built once per JAR by the indexer.
+ *
+ * <p>Paths and class names map directly to an entry name, so they go straight
+ * to the archive's own lookup. Only simple names need a table, and it holds
+ * just the class entry names (shared with the caller's list) and one sorted
+ * {@code long} per class, so no {@link JarEntry} is kept.
+ */
+public class JarEntryLookup {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Archive archive;
+    private final int size;
+    private final String[] classEntries; // Entry names of the classes
+    private final long[] simpleNameKeys; // Sorted (lower-case simple name hash << 32) | index into classEntries
+
+    JarEntryLookup(Archive archive, List<String> entryNames) {
+        this.archive = archive;
+        this.size = entryNames.size();
+        List<String> classes = new ArrayList<>();
+        for (String name : entryNames) {
+            if (name.endsWith(CLASS_SUFFIX)) {
+                classes.add(name);
+            }
+        }
+        classEntries = classes.toArray(new String[0]);
+        simpleNameKeys = new long[classEntries.length];
+        for (int i = 0; i < classEntries.length; i++) {
+            String name = classEntries[i];
+            int end = name.length() - CLASS_SUFFIX.length();
+            simpleNameKeys[i] = (long) lowerCaseHash(name, name.lastIndexOf('/') + 1, end) << 32 | i;
+        }
+        Arrays.sort(simpleNameKeys);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Entry by name or tree path; a leading slash is ignored.
+     */
+    public JarEntry findByPath(String path) {
+        JarEntry entry = archive.getJarEntry(path);
+        if (entry == null && path.startsWith("/")) {
+            entry = archive.getJarEntry(path.substring(1));
+        }
+        return entry;
+    }
+
+    /**
+     * Class entry by fully qualified name, e.g. {@code com.acme.Foo$Bar}; slashes are accepted too.
+     */
+    public JarEntry findByClassName(String className) {
+        if (className.endsWith(CLASS_SUFFIX)) {
+            className = className.substring(0, className.length() - CLASS_SUFFIX.length());
+        }
+        if (className.isEmpty()) {
+            return null;
+        }
+        return archive.getJarEntry(className.replace('.', '/') + CLASS_SUFFIX);
+    }
+
+    /**
+     * Class entries with the given simple name, ignoring case, with or without {@code .class}.
+     */
+    public List<JarEntry> findBySimpleName(String simpleName) {
+        if (simpleName.endsWith(CLASS_SUFFIX)) {
+            simpleName = simpleName.substring(0, simpleName.length() - CLASS_SUFFIX.length());
+        }
+        long hash = lowerCaseHash(simpleName, 0, simpleName.length());
+        int index = Arrays.binarySearch(simpleNameKeys, hash << 32);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        List<JarEntry> entries = null;
+        for (; index < simpleNameKeys.length && simpleNameKeys[index] >> 32 == hash; index++) {
+            String name = classEntries[(int) simpleNameKeys[index]];
+            int start = name.lastIndexOf('/') + 1;
+            int end = name.length() - CLASS_SUFFIX.length();
+            if (equalsLowerCase(name, start, end, simpleName)) {
+                JarEntry entry = archive.getJarEntry(name);
+                if (entry != null) {
+                    if (entries == null) {
+                        entries = new ArrayList<>(1);
+                    }
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Best entry for a path: exact path, then class name, then a unique match of
+     * the last path segment as a simple class name. Null if none or ambiguous.
+     */
+    public JarEntry resolve(String path) {
+        JarEntry entry = findByPath(path);
+        if (entry == null) {
+            entry = findByClassName(path);
+        }
+        if (entry == null) {
+            List<JarEntry> candidates = findBySimpleName(path.substring(path.lastIndexOf('/') + 1));
+            if (candidates.size() == 1) {
+                entry = candidates.get(0);
+            }
+        }
+        return entry;
+    }
+
+    private static int lowerCaseHash(String text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash;
+    }
+
+    private static boolean equalsLowerCase(String text, int start, int end, String other) {
+        if (end - start != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < other.length(); i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != Character.toLowerCase(other.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
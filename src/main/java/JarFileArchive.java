@@ -0,0 +1,55 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * {@link Archive} backed by a plain {@link JarFile}. Used for ordinary sized
+ * JARs, where it also verifies signed entries.
+ */
+public class JarFileArchive implements Archive {
+
+    private final JarFile jarFile;
+
+    public JarFileArchive(File file) throws IOException {
+        this.jarFile = new JarFile(file);
+    }
+
+    @Override
+    public String getName() {
+        return jarFile.getName();
+    }
+
+    @Override
+    public JarEntry getJarEntry(String name) {
+        return jarFile.getJarEntry(name);
+    }
+
+    @Override
+    public InputStream getInputStream(JarEntry entry) throws IOException {
+        return jarFile.getInputStream(entry);
+    }
+
+    @Override
+    public Enumeration<JarEntry> entries() {
+        return jarFile.entries();
+    }
+
+    @Override
+    public Stream<JarEntry> stream() {
+        return jarFile.stream();
+    }
+
+    @Override
+    public int size() {
+        return jarFile.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        jarFile.close();
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.jar.JarEntry;
+import java.util.zip.ZipEntry;
+
+/**
+ * Headless command line for build servers and scripts. Uses the same archive
+ * readers, decompilers and search as the viewer, but never touches JavaFX (or
+ * any class that depends on it), so it starts without a display and quickly.
+ *
+ * <pre>
+ * list      &lt;jar&gt; [-l] [--nested]
+ * decompile &lt;jar&gt; &lt;class&gt;... [--no-cache]
+ * export    &lt;jar&gt; &lt;dir | file.jar&gt; [--threads N] [--isolated]
+ * grep      &lt;jar&gt; &lt;text&gt; [-i] [--decompiled]
+ * stats     &lt;jar&gt;
+ * </pre>
+ *
+ * Classes can be given as entry paths, fully qualified or simple names, and
+ * paths may lead into nested JARs ({@code BOOT-INF/lib/foo.jar/com/acme/Foo}).
+ * Decompiling runs in process with a deadline per class; classes past it are
+ * finished in worker JVMs, so a batch run always ends.
+ * Exit status is 0 on success, 1 when nothing was found, 2 on usage errors and
+ * 3 when {@code grep} stopped at its hit limit.
+ */
+public class JarViewerCli {
+
+    private static final int OK = 0;
+    private static final int NOT_FOUND = 1;
+    private static final int USAGE = 2;
+    private static final int TRUNCATED = 3;
+    private static final long IN_PROCESS_DEADLINE_MILLIS = 10_000;
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    JarViewerCli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        // Buffered, as listings of large JARs are hundreds of thousands of lines
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024));
+        int status = new JarViewerCli(out, System.err).run(args);
+        out.flush();
+        System.exit(status);
+    }
+
+    int run(String[] args) {
+        List<String> positional = new ArrayList<>();
+        List<String> flags = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    return usage("Invalid thread count: " + args[i]);
+                }
+            } else if (args[i].startsWith("-") && args[i].length() > 1) {
+                flags.add(args[i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        if (positional.size() < 2) {
+            return usage(null);
+        }
+        String command = positional.get(0);
+        File file = new File(positional.get(1));
+        if (!file.isFile()) {
+            err.println("No such file: " + file);
+            return USAGE;
+        }
+        List<String> operands = positional.subList(2, positional.size());
+
+        try (Archive jarFile = Archive.open(file); NestedArchives archives = new NestedArchives(jarFile)) {
+            switch (command) {
+                case "list":
+                    return list(archives, flags.contains("-l"), flags.contains("--nested"));
+                case "decompile":
+                    if (operands.isEmpty()) {
+                        return usage("decompile needs at least one class");
+                    }
+                    return decompile(archives, operands, !flags.contains("--no-cache"));
+                case "export":
+                    if (operands.size() != 1) {
+                        return usage("export needs a target directory or .jar file");
+                    }
+                    return export(jarFile, operands.get(0), threads, flags.contains("--isolated"));
+                case "grep":
+                    if (operands.size() != 1) {
+                        return usage("grep needs exactly one search text");
+                    }
+                    if (operands.get(0).isEmpty()) {
+                        return usage("grep needs a non-empty search text");
+                    }
+                    return grep(archives, operands.get(0), !flags.contains("-i"), flags.contains("--decompiled"));
+                case "stats":
+                    return stats(jarFile);
+                default:
+                    return usage("Unknown command: " + command);
+            }
+        } catch (IOException | RuntimeException e) {
+            err.println("Error: " + describe(e));
+            return NOT_FOUND;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NOT_FOUND;
+        }
+    }
+
+    private int usage(String message) {
+        if (message != null) {
+            err.println(message);
+        }
+        err.println("Usage: JarViewerCli <command> <jar> [arguments]");
+        err.println("  list      <jar> [-l] [--nested]             List entries (-l: sizes, method, time)");
+        err.println("  decompile <jar> <class>... [--no-cache]     Print decompiled source");
+        err.println("  export    <jar> <dir | file.jar> [--threads N] [--isolated]");
+        err.println("                                              Decompile every class (--isolated: in worker");
+        err.println("                                              JVMs with a per-class timeout and heap limit)");
+        err.println("  grep      <jar> <text> [-i] [--decompiled]  Search entries, nested JARs included");
+        err.println("  stats     <jar>                             Summarize the archive");
+        return USAGE;
+    }
+
+    /**
+     * The exception's message, or its type for exceptions without one, such as a NullPointerException.
+     */
+    private static String describe(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+    }
+
+    private int list(NestedArchives archives, boolean details, boolean nested) throws IOException {
+        list(archives, archives.getRoot(), "", details, nested);
+        return OK;
+    }
+
+    private void list(NestedArchives archives, Archive archive, String prefix, boolean details, boolean nested)
+            throws IOException {
+        for (JarEntry entry : (Iterable<JarEntry>) archive.stream()::iterator) {
+            String path = prefix + entry.getName();
+            if (details) {
+                out.printf("%10d %10d %-8s %s %s%n", entry.getSize(), entry.getCompressedSize(),
+                        entry.getMethod() == ZipEntry.STORED ? "stored" : "deflated",
+                        entry.getTime() < 0 ? "-" : Instant.ofEpochMilli(entry.getTime()), path);
+            } else {
+                out.println(path);
+            }
+            if (nested && !entry.isDirectory() && NestedArchives.isArchiveName(path)) {
+                list(archives, archives.open(path), path + "/", details, true);
+            }
+        }
+    }
+
+    private int decompile(NestedArchives archives, List<String> classes, boolean useCache) {
+        CfrWorkerPool workerPool = new CfrWorkerPool();
+        BoundedDecompiler bounded = bounded(workerPool, 1);
+        DecompilerEngine decompiler = bounded;
+        if (useCache) {
+            decompiler = new CachingDecompiler(decompiler, new DecompiledSourceCache(1_000_000L),
+                    new DiskSourceCache(DiskSourceCache.defaultDirectory(), 512L * 1024 * 1024));
+        }
+        try {
+            return decompile(archives, classes, decompiler);
+        } finally {
+            bounded.shutdown();
+            workerPool.shutdown();
+        }
+    }
+
+    private int decompile(NestedArchives archives, List<String> classes, DecompilerEngine decompiler) {
+        int status = OK;
+        for (String name : classes) {
+            try {
+                NestedArchives.Location location = archives.resolve(name);
+                JarEntry entry = findClass(location);
+                if (entry == null) {
+                    err.println("Class not found: " + name);
+                    status = NOT_FOUND;
+                    continue;
+                }
+                out.print(decompiler.decompile(location.archive, entry));
+            } catch (Exception e) {
+                err.println("Could not decompile " + name + ": " + describe(e));
+                status = NOT_FOUND;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Finds a class by entry path, fully qualified name or unique simple name.
+     */
+    private static JarEntry findClass(NestedArchives.Location location) {
+        String name = location.entryName;
+        JarEntry entry = location.archive.getJarEntry(name.endsWith(".class") ? name : name + ".class");
+        if (entry != null) {
+            return entry;
+        }
+        // Dotted or simple names need the lookup tables
+        List<String> names = new ArrayList<>();
+        location.archive.stream().forEach(e -> names.add(e.getName()));
+        entry = new JarEntryLookup(location.archive, names).resolve(name);
+        return entry != null && entry.getName().endsWith(".class") ? entry : null;
+    }
+
+    private int export(Archive jarFile, String target, int threads, boolean isolated)
+            throws IOException, InterruptedException {
+        boolean sourcesJar = target.toLowerCase().endsWith(".jar");
+        SourceExporter.Export export = new SourceExporter.Export();
+        CfrWorkerPool workerPool = isolated
+                ? new CfrWorkerPool(threads, CfrWorkerPool.DEFAULT_TIMEOUT_MILLIS, CfrWorkerPool.DEFAULT_MAX_HEAP)
+                : new CfrWorkerPool();
+        BoundedDecompiler bounded = isolated ? null : bounded(workerPool, threads);
+        SourceExporter exporter = new SourceExporter(isolated ? workerPool : bounded, threads);
+
+        // Progress goes to stderr so stdout stays clean for scripts
+        Thread progress = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(1000);
+                    err.printf("%d/%d classes (%.0f classes/s)%n", export.getWritten(), export.getTotal(),
+                            export.getClassesPerSecond());
+                }
+            } catch (InterruptedException e) {
+                // Export finished
+            }
+        }, "export-progress");
+        progress.setDaemon(true);
+        progress.start();
+        try {
+            exporter.run(jarFile, Path.of(target), sourcesJar, export);
+        } finally {
+            progress.interrupt();
+            if (bounded != null) {
+                bounded.shutdown();
+            }
+            workerPool.shutdown();
+        }
+        out.printf("Exported %d classes to %s in %.1f s (%.0f classes/s, %d failed)%n", export.getWritten(), target,
+                export.getElapsedMillis() / 1000.0, export.getClassesPerSecond(), export.getFailed());
+        return OK;
+    }
+
+    private int grep(NestedArchives archives, String term, boolean caseSensitive, boolean decompiled)
+            throws InterruptedException {
+        JarContentSearcher searcher = new JarContentSearcher();
+        CountDownLatch done = new CountDownLatch(1);
+        List<JarContentSearcher.Hit> hits = new ArrayList<>();
+        CfrWorkerPool workerPool = decompiled ? new CfrWorkerPool() : null;
+        // The searcher decompiles on one thread per core
+        BoundedDecompiler bounded = decompiled ? bounded(workerPool, Runtime.getRuntime().availableProcessors()) : null;
+        JarContentSearcher.Search search;
+        try {
+            search = searcher.search(archives, term, caseSensitive, bounded,
+                    hit -> {
+                        synchronized (hits) {
+                            hits.add(hit);
+                        }
+                    },
+                    done::countDown);
+            done.await();
+        } finally {
+            searcher.shutdown();
+            if (bounded != null) {
+                bounded.shutdown();
+                workerPool.shutdown();
+            }
+        }
+        // Entries are searched in parallel, so sort for output that is the same on every run
+        hits.sort(Comparator.comparing((JarContentSearcher.Hit hit) -> hit.entryName)
+                .thenComparingInt(hit -> hit.line));
+        for (JarContentSearcher.Hit hit : hits) {
+            out.println(hit.entryName + (hit.line > 0 ? ":" + hit.line : "") + ": " + hit.text);
+        }
+        if (search.isTruncated()) {
+            err.println("Stopped after " + JarContentSearcher.MAX_HITS + " hits; not every entry was searched");
+            return TRUNCATED;
+        }
+        return hits.isEmpty() ? NOT_FOUND : OK;
+    }
+
+    /**
+     * In-process CFR with a deadline per class. Classes past it are finished by the
+     * worker JVMs, so one class that makes CFR spin can't hang a batch run.
+     */
+    private static BoundedDecompiler bounded(CfrWorkerPool workerPool, int threads) {
+        return new BoundedDecompiler(new CfrDecompiler(), workerPool, IN_PROCESS_DEADLINE_MILLIS, threads);
+    }
+
+    private int stats(Archive jarFile) {
+        long start = System.nanoTime();
+        int directories = 0;
+        int classes = 0;
+        int nested = 0;
+        long size = 0;
+        long compressedSize = 0;
+        Map<String, Integer> packages = new TreeMap<>();
+        Map<Integer, Integer> versions = new TreeMap<>();
+        for (JarEntry entry : (Iterable<JarEntry>) jarFile.stream()::iterator) {
+            String name = entry.getName();
+            if (entry.isDirectory()) {
+                directories++;
+                continue;
+            }
+            size += Math.max(0, entry.getSize());
+            compressedSize += Math.max(0, entry.getCompressedSize());
+            if (NestedArchives.isArchiveName(name)) {
+                nested++;
+            } else if (name.endsWith(".class")) {
+                classes++;
+                int slash = name.lastIndexOf('/');
+                packages.merge(slash < 0 ? "" : name.substring(0, slash), 1, Integer::sum);
+                try {
+                    versions.merge(new ClassFileParser(jarFile.readBuffer(entry)).getMajorVersion(), 1, Integer::sum);
+                } catch (IOException e) {
+                    versions.merge(-1, 1, Integer::sum);
+                }
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        out.println("Archive:        " + jarFile.getName() + " (" + jarFile.getClass().getSimpleName() + ")");
+        out.println("Entries:        " + jarFile.size() + " (" + directories + " directories)");
+        out.println("Classes:        " + classes + " in " + packages.size() + " packages, "
+                + SourceExporter.topLevelClasses(jarFile).size() + " top-level");
+        out.println("Nested JARs:    " + nested);
+        out.printf("Size:           %d bytes (%d compressed, %.0f%%)%n", size, compressedSize,
+                size == 0 ? 100.0 : compressedSize * 100.0 / size);
+        for (Map.Entry<Integer, Integer> version : versions.entrySet()) {
+            out.println("Class version:  " + (version.getKey() < 0 ? "unreadable"
+                    : version.getKey() + " (Java " + (version.getKey() - 44) + ")") + ": " + version.getValue());
+        }
+        out.println("Scanned in:     " + millis + " ms");
+        return OK;
+    }
+}
@@ -1,4 +1,8 @@
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
@@ -8,8 +12,11 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import javafx.stage.Popup;
 import javafx.stage.Stage;
 import javafx.scene.input.Dragboard;
 import javafx.scene.input.KeyCode;
@@ -24,18 +31,25 @@ import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.LineNumberFactory;
 import org.fxmisc.richtext.model.StyleSpans;
-import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.reactfx.EventStreams;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 // To Run - mvn javafx:run
 
@@ -43,8 +57,30 @@ public class JarViewerFX extends Application {
 
     private TreeView<String> treeView;
     private CodeArea codeArea; // Replace TextArea with CodeArea
+    private AsyncHighlighter asyncHighlighter;
+    private String codeText = ""; // What the code area was last filled with
+    private String codeClassKey; // Cache key of the class whose source the code area shows, null otherwise
+    private TreeView<ClassOutline.Node> outlineView;
+    private VBox outlinePanel;
+    private String outlineClassKey; // Cache key of the outlined class
+    private String outlineSimpleName; // Simple name of the outlined class, for finding constructors
+    private HexViewer hexViewer;
+    private String hexClassKey; // Cache key of the class shown in the hex view, null for other entries
+    private static final int HEX_TAB = 2;
+    private static final long MAX_TEXT_VIEW_SIZE = 16L * 1024 * 1024; // Larger entries only open in the hex view
+    private volatile long codeSearchGeneration; // Written on the FX thread only; searches poll it to stop early
+    private Future<?> codeSearchTask; // Only touched on the FX thread
+    private static final long CODE_SEARCH_DEBOUNCE_MILLIS = 120;
+    private static final int CODE_SEARCH_WINDOW_PARAGRAPHS = 100;
+    private static final int CODE_SEARCH_PAINT_CHUNK = 64 * 1024;
+    private final ExecutorService codeSearchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "code-search");
+        thread.setDaemon(true);
+        return thread;
+    });
     private TextArea fileContentArea; // Keep this for non-code files
-    private AtomicReference<JarFile> currentJarFile = new AtomicReference<>(); // Thread-safe reference to JarFile
+    private AtomicReference<Archive> currentJarFile = new AtomicReference<>(); // Thread-safe reference to the open archive
+    private volatile NestedArchives nestedArchives; // JARs nested in the open archive, null when none is open
     private Label statusBar; // Status bar for feedback
     private TextField searchField;
     private Label fileCountLabel;
@@ -52,6 +88,67 @@ public class JarViewerFX extends Application {
     private Stage primaryStage;
     private TabPane contentTabPane;
     private Map<String, Tab> openTabs = new HashMap<>(); // Keep track of open files
+    private final DecompilerEngine inProcessDecompiler = new CfrDecompiler();
+    private final CfrWorkerPool externalDecompiler = new CfrWorkerPool();
+    private volatile boolean useExternalDecompiler = false; // In-process CFR by default, worker processes as fallback
+    // A thread per job: in-process CFR ignores interrupts, so an abandoned job must not hold up the next one
+    private final ExecutorService decompileExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "decompiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Future<?> currentDecompileTask; // Written on the FX thread only
+    // In-process CFR can't be stopped, so a class it is still working on after this goes to a worker process
+    private static final long IN_PROCESS_DEADLINE_MILLIS = 5_000;
+    // Foreground only: threads are taken by the clicked class and by abandoned jobs that are still running
+    private final BoundedDecompiler boundedDecompiler = new BoundedDecompiler(inProcessDecompiler, externalDecompiler,
+            IN_PROCESS_DEADLINE_MILLIS, Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    private long decompileGeneration; // Bumped on every new request so stale results are dropped
+    private ProgressIndicator decompileProgress;
+    private final DecompiledSourceCache sourceCache = new DecompiledSourceCache(16_000_000L); // ~32 MB of chars
+    private final DiskSourceCache diskCache = new DiskSourceCache(DiskSourceCache.defaultDirectory(), 512L * 1024 * 1024);
+    private Label cacheStatsLabel;
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "jar-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService nestedArchiveExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "nested-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long indexGeneration; // Bumped on the FX thread whenever the open JAR changes
+    private static final int INDEX_BATCH_SIZE = 2000;
+    private static final long INDEX_PUBLISH_INTERVAL_NANOS = 100_000_000L;
+    private static final int PREFETCH_LIMIT = 32; // Max neighbouring classes decompiled per selection
+    // Content search decompiles on one thread per core, so it gets as many in-process threads of its own
+    private final BoundedDecompiler searchEngine = new BoundedDecompiler(inProcessDecompiler, externalDecompiler,
+            IN_PROCESS_DEADLINE_MILLIS, Runtime.getRuntime().availableProcessors());
+    private final CachingDecompiler searchDecompiler = new CachingDecompiler(searchEngine, sourceCache, diskCache);
+    private final JarContentSearcher contentSearcher = new JarContentSearcher();
+    private JarContentSearcher.Search currentContentSearch; // Only touched on the FX thread
+    private Tab searchResultsTab;
+    private ListView<JarContentSearcher.Hit> searchResultsList;
+    private Label searchResultsStatus;
+    private Timeline searchProgressTimer;
+    private SourceExporter.Export currentExport; // Only touched on the FX thread
+    private Timeline exportProgressTimer;
+    private ProgressBar exportProgressBar;
+    private Button cancelExportButton;
+    private volatile SymbolIndex symbolIndex; // Null until built for the open JAR
+    private volatile JarEntryLookup entryLookup; // Null until the open JAR has been indexed
+    private volatile ClassNameIndex classNameIndex; // Null until the open JAR has been indexed
+    private static final int GO_TO_CLASS_LIMIT = 50;
+    private static final int SYMBOL_RESULT_LIMIT = 500;
+    // Prefetch has its own in-process thread, so speculative work never takes one the user's click needs
+    private final BoundedDecompiler prefetchEngine = new BoundedDecompiler(inProcessDecompiler, externalDecompiler,
+            IN_PROCESS_DEADLINE_MILLIS, 1);
+    private final DecompilePrefetcher prefetcher = new DecompilePrefetcher(
+            new CachingDecompiler(prefetchEngine, sourceCache, diskCache), () -> {
+                Future<?> task = currentDecompileTask; // Abandoned jobs don't count
+                return task != null && !task.isDone();
+            });
 
     @Override
     public void start(Stage primaryStage) {
@@ -65,7 +162,7 @@ public class JarViewerFX extends Application {
         ToolBar toolBar = createToolBar();
 
         // Search Panel
-        HBox searchPanel = createSearchPanel();
+        VBox searchPanel = createSearchPanel();
 
         // Tree View with Explorer
         treeView = new TreeView<>();
@@ -90,7 +187,7 @@ public class JarViewerFX extends Application {
                         getStyleClass().add("java-file");
                     } else if (item.endsWith(".xml") || item.contains("🔶")) {
                         getStyleClass().add("xml-file");
-                    } else if (item.endsWith(".jar") || item.contains("📦")) {
+                    } else if (NestedArchives.isArchiveName(item) || item.contains("📦")) {
                         getStyleClass().add("jar-file");
                     } else if (item.contains("📁")) {
                         getStyleClass().add("folder");
@@ -101,6 +198,7 @@ public class JarViewerFX extends Application {
 
         // Initialize the code area with syntax highlighting capabilities
         codeArea = createCodeArea();
+        asyncHighlighter = new AsyncHighlighter(codeArea);
 
         // Create the code search panel
         HBox codeSearchPanel = createCodeSearchPanel();
@@ -131,9 +229,15 @@ public class JarViewerFX extends Application {
         // Wrap codeArea in VirtualizedScrollPane
         VirtualizedScrollPane<CodeArea> codeScrollPane = new VirtualizedScrollPane<>(codeArea);
 
+        // Progress indicator shown over the code while a class is being decompiled
+        decompileProgress = new ProgressIndicator();
+        decompileProgress.setMaxSize(48, 48);
+        decompileProgress.setVisible(false);
+        StackPane codeStack = new StackPane(codeScrollPane, decompileProgress);
+
         // Add components to container and set growth priorities
-        codeViewContainer.getChildren().addAll(codeSearchPanel, codeScrollPane);
-        VBox.setVgrow(codeScrollPane, Priority.ALWAYS);
+        codeViewContainer.getChildren().addAll(codeSearchPanel, codeStack);
+        VBox.setVgrow(codeStack, Priority.ALWAYS);
 
         // Default tabs
         Tab codeTab = new Tab("Code View", codeViewContainer);
@@ -142,7 +246,28 @@ public class JarViewerFX extends Application {
         Tab plainTextTab = new Tab("Plain Text", fileContentArea);
         plainTextTab.setClosable(false);
 
-        contentTabPane.getTabs().addAll(codeTab, plainTextTab);
+        // Bytes of the selected entry, paged in as they scroll into view
+        hexViewer = new HexViewer();
+        Tab hexTab = new Tab("Hex", hexViewer);
+        hexTab.setClosable(false);
+
+        contentTabPane.getTabs().addAll(codeTab, plainTextTab, hexTab);
+
+        // Outline of the selected class, built from the class file itself
+        outlineView = new TreeView<>();
+        outlineView.setShowRoot(true);
+        outlineView.setOnMouseClicked(event -> {
+            TreeItem<ClassOutline.Node> selected = outlineView.getSelectionModel().getSelectedItem();
+            if (selected != null) {
+                navigateToOutlineNode(selected.getValue());
+            }
+        });
+        Label outlineLabel = new Label("Outline");
+        outlineLabel.setPadding(new Insets(5));
+        outlineLabel.setMaxWidth(Double.MAX_VALUE);
+        outlineLabel.getStyleClass().add("explorer-label");
+        outlinePanel = new VBox(5, outlineLabel, outlineView);
+        VBox.setVgrow(outlineView, Priority.ALWAYS);
 
         // Package explorer in left side
         VBox leftPanel = new VBox(5);
@@ -154,17 +279,28 @@ public class JarViewerFX extends Application {
         VBox.setVgrow(treeView, Priority.ALWAYS);
 
         // Split pane to adjust views
-        SplitPane splitPane = new SplitPane(leftPanel, contentTabPane);
-        splitPane.setDividerPositions(0.3);
+        SplitPane splitPane = new SplitPane(leftPanel, contentTabPane, outlinePanel);
+        splitPane.setDividerPositions(0.25, 0.78);
 
         // Status bar with file info
         statusBar = new Label("Ready");
         fileCountLabel = new Label("0 files");
+        cacheStatsLabel = new Label(sourceCache.getStatsText());
         HBox statusBox = new HBox(10);
         statusBox.setPadding(new Insets(5));
         statusBox.getStyleClass().add("status-bar");
         Separator statusSeparator = new Separator(Orientation.VERTICAL);
-        statusBox.getChildren().addAll(statusBar, statusSeparator, fileCountLabel);
+        // Only shown while sources are being exported
+        exportProgressBar = new ProgressBar(0);
+        exportProgressBar.setPrefWidth(160);
+        cancelExportButton = new Button("Cancel Export");
+        cancelExportButton.setOnAction(e -> cancelExport());
+        exportProgressBar.setVisible(false);
+        exportProgressBar.setManaged(false);
+        cancelExportButton.setVisible(false);
+        cancelExportButton.setManaged(false);
+        statusBox.getChildren().addAll(statusBar, exportProgressBar, cancelExportButton, statusSeparator, fileCountLabel,
+                new Separator(Orientation.VERTICAL), cacheStatsLabel);
         HBox.setHgrow(statusBar, Priority.ALWAYS);
 
         // Main layout
@@ -194,6 +330,18 @@ public class JarViewerFX extends Application {
         // Handle closing the JAR file when app closes
         primaryStage.setOnCloseRequest(e -> {
             closeCurrentJarFile();
+            decompileExecutor.shutdownNow();
+            boundedDecompiler.shutdown();
+            prefetcher.shutdown();
+            prefetchEngine.shutdown();
+            searchEngine.shutdown();
+            indexExecutor.shutdownNow();
+            nestedArchiveExecutor.shutdownNow();
+            contentSearcher.shutdown();
+            codeSearchExecutor.shutdownNow();
+            asyncHighlighter.shutdown();
+            externalDecompiler.shutdown();
+            hexViewer.shutdown();
         });
     }
 
@@ -225,153 +373,25 @@ public class JarViewerFX extends Application {
     /**
      * Apply syntax highlighting to the code and show it in the code area
      */
-    private void showCodeWithSyntaxHighlighting(String content, String fileExtension) {
+    private void showCodeWithSyntaxHighlighting(String content, String fileName) {
+        // Pick the highlighter first; the async highlighter picks up the text change below
+        // and styles the visible part before the rest of the document
+        asyncHighlighter.setHighlighter(SyntaxHighlighters.forFileName(fileName));
+
         // Clear current content
         codeArea.clear();
 
         // Show content
         codeArea.replaceText(0, 0, content);
+        codeText = content;
+        codeClassKey = null;
 
         // Set appropriate tab
         contentTabPane.getSelectionModel().select(0); // Select the code view tab
-
-        // Apply syntax highlighting based on file type
-        if (fileExtension.endsWith(".java")) {
-            applyJavaSyntaxHighlighting(content);
-        } else if (fileExtension.endsWith(".xml") || fileExtension.endsWith(".html")) {
-            applyXmlSyntaxHighlighting(content);
-        } else if (fileExtension.endsWith(".css")) {
-            applyCssSyntaxHighlighting(content);
-        } else if (fileExtension.endsWith(".js")) {
-            applyJavaScriptSyntaxHighlighting(content);
-        }
-    }
-
-    /**
-     * Regular expression patterns for Java syntax highlighting
-     */
-    private static final String[] JAVA_KEYWORDS = {
-            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
-            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
-            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
-            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
-            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while"
-    };
-
-    private static final Pattern JAVA_PATTERN = Pattern.compile(
-            "(?<KEYWORD>\\b(" + String.join("|", JAVA_KEYWORDS) + ")\\b)" +
-                    "|(?<STRING>\"[^\"\\\\]*(\\\\.[^\"\\\\]*)*\")" +
-                    "|(?<NUMBER>\\b\\d+\\b)" +
-                    "|(?<COMMENT>//[^\\n]*)|(?<MULTICOMMENT>/\\*[^*]*\\*+(?:[^*/][^*]*\\*+)*/)" +
-                    "|(?<ANNOTATION>@[\\w]+)"
-    );
-
-    /**
-     * Apply Java syntax highlighting to the code area
-     */
-    private void applyJavaSyntaxHighlighting(String content) {
-        codeArea.setStyleSpans(0, computeJavaHighlighting(content));
-    }
-
-    private StyleSpans<Collection<String>> computeJavaHighlighting(String text) {
-        Matcher matcher = JAVA_PATTERN.matcher(text);
-        int lastKwEnd = 0;
-        StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
-
-        while (matcher.find()) {
-            String styleClass = null;
-            if (matcher.group("KEYWORD") != null) styleClass = "keyword";
-            else if (matcher.group("STRING") != null) styleClass = "string";
-            else if (matcher.group("NUMBER") != null) styleClass = "number";
-            else if (matcher.group("COMMENT") != null) styleClass = "comment";
-            else if (matcher.group("MULTICOMMENT") != null) styleClass = "comment";
-            else if (matcher.group("ANNOTATION") != null) styleClass = "annotation";
-
-            spansBuilder.add(Collections.emptyList(), matcher.start() - lastKwEnd);
-            spansBuilder.add(Collections.singleton(styleClass), matcher.end() - matcher.start());
-            lastKwEnd = matcher.end();
-        }
-
-        spansBuilder.add(Collections.emptyList(), text.length() - lastKwEnd);
-        return spansBuilder.create();
-    }
-
-    /**
-     * Regular expression patterns for XML syntax highlighting
-     */
-    private static final Pattern XML_TAG = Pattern.compile("(?<ELEMENT>(</?\\h*)(\\w+)([^<>]*)(\\h*/?>))" +
-            "|(?<COMMENT><!--[^<>]+-->)");
-
-    private static final Pattern XML_ATTRIBUTE = Pattern.compile("(\\w+\\h*)(=)(\\h*\"[^\"]+\")");
-
-    /**
-     * Apply XML syntax highlighting to the code area
-     */
-    private void applyXmlSyntaxHighlighting(String content) {
-        codeArea.setStyleSpans(0, computeXmlHighlighting(content));
-    }
-
-    private StyleSpans<Collection<String>> computeXmlHighlighting(String text) {
-        Matcher matcher = XML_TAG.matcher(text);
-        int lastKwEnd = 0;
-        StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
-
-        while (matcher.find()) {
-            spansBuilder.add(Collections.emptyList(), matcher.start() - lastKwEnd);
-            if (matcher.group("COMMENT") != null) {
-                spansBuilder.add(Collections.singleton("comment"), matcher.end() - matcher.start());
-            } else {
-                String attributesText = matcher.group("ELEMENT");
-                spansBuilder.add(Collections.singleton("tag"), matcher.end() - matcher.start());
-
-                // Handle XML attributes (simplified)
-                Matcher attributeMatcher = XML_ATTRIBUTE.matcher(attributesText);
-                while (attributeMatcher.find()) {
-                    // This is a simplified implementation - in a real app you'd use more precise attribute highlighting
-                }
-            }
-            lastKwEnd = matcher.end();
-        }
-
-        spansBuilder.add(Collections.emptyList(), text.length() - lastKwEnd);
-        return spansBuilder.create();
-    }
-
-    /**
-     * Apply CSS syntax highlighting to the code area
-     */
-    private void applyCssSyntaxHighlighting(String content) {
-        // Simplified CSS highlighting - in a full implementation, you would use a proper CSS parser
-        Pattern cssPattern = Pattern.compile(
-                "(?<SELECTOR>[\\w\\.-]+\\s*\\{)" +
-                        "|(?<PROPERTY>[\\w-]+\\s*:)" +
-                        "|(?<VALUE>:\\s*[^;]+;)" +
-                        "|(?<COMMENT>/\\*[^*]*\\*+(?:[^*/][^*]*\\*+)*/)"
-        );
-
-        // Apply highlighting (implementation omitted for brevity)
-    }
-
-    /**
-     * Apply JavaScript syntax highlighting to the code area
-     */
-    private void applyJavaScriptSyntaxHighlighting(String content) {
-        // Simplified JavaScript highlighting - in a full implementation, you would use a proper JS parser
-        String[] jsKeywords = {"var", "let", "const", "function", "return", "if", "else", "for", "while", "do",
-                "switch", "case", "break", "continue", "new", "try", "catch", "finally", "throw"};
-
-        Pattern jsPattern = Pattern.compile(
-                "(?<KEYWORD>\\b(" + String.join("|", jsKeywords) + ")\\b)" +
-                        "|(?<STRING>['\"]([^'\"\\\\]|\\\\.)*['\"])" +
-                        "|(?<NUMBER>\\b\\d+\\b)" +
-                        "|(?<COMMENT>//[^\\n]*)|(?<MULTICOMMENT>/\\*[^*]*\\*+(?:[^*/][^*]*\\*+)*/)"
-        );
-
-        // Apply highlighting (implementation omitted for brevity)
     }
 
     private void handleTreeItemSelection(TreeItem<String> selectedItem) {
-        JarFile currentJar = currentJarFile.get();
+        Archive currentJar = currentJarFile.get();
         if (currentJar == null) {
             fileContentArea.setText("JAR file is no longer open.");
             return;
@@ -381,35 +401,50 @@ public class JarViewerFX extends Application {
             String path = getFullPath(selectedItem);
             System.out.println("Selected path: " + path);
 
-            JarEntry entry = currentJar.getJarEntry(path);
+            if (!isNestedArchiveOpen(path, () -> handleTreeItemSelection(selectedItem), selectedItem)) {
+                return;
+            }
+            NestedArchives.Location location = locate(currentJar, path);
+            JarEntry entry = location.archive.getJarEntry(location.entryName);
             if (entry != null && !entry.isDirectory()) {
                 System.out.println("File type check: path=" + path);
 
                 if (path.toLowerCase().endsWith(".class")) {
                     // Class files are handled by the mouse click event
                     // This is just for other file selections
+                } else if (NestedArchives.isArchiveName(path)) {
+                    // Nested JARs are browsed in the tree rather than shown as bytes
+                    showOutline(null, null);
+                    showBytes(location.archive, entry);
+                    selectedItem.setExpanded(true);
+                    fileContentArea.setText("Nested archive: " + path + "\n\nExpand it in the Package Explorer to browse its entries.");
+                    contentTabPane.getSelectionModel().select(1);
+                    statusBar.setText("Nested archive: " + path);
                 } else {
                     // Handle text files
-                    try (InputStream is = currentJar.getInputStream(entry)) {
-                        byte[] data = is.readAllBytes();
-                        String content = new String(data, StandardCharsets.UTF_8);
-
-                        // Check if this is a code file for syntax highlighting
-                        String lowerPath = path.toLowerCase();
-                        if (lowerPath.endsWith(".java") || lowerPath.endsWith(".xml") ||
-                                lowerPath.endsWith(".html") || lowerPath.endsWith(".css") ||
-                                lowerPath.endsWith(".js") || lowerPath.endsWith(".json") ||
-                                lowerPath.endsWith(".properties")) {
-
-                            // Show with syntax highlighting in the code area
-                            showCodeWithSyntaxHighlighting(content, lowerPath);
-                            statusBar.setText("Opened: " + entry.getName() + " (" + data.length + " bytes)");
-                        } else {
-                            // Show in the plain text area for non-code files
-                            fileContentArea.setText(content);
-                            contentTabPane.getSelectionModel().select(1); // Select the plain text tab
-                            statusBar.setText("Opened: " + entry.getName() + " (" + data.length + " bytes)");
-                        }
+                    showOutline(null, null);
+                    ByteSource bytes = showBytes(location.archive, entry);
+                    if (bytes.length() > MAX_TEXT_VIEW_SIZE || looksBinary(bytes)) {
+                        contentTabPane.getSelectionModel().select(HEX_TAB);
+                        statusBar.setText("Opened: " + entry.getName() + " (" + bytes.length() + " bytes, binary)");
+                        return;
+                    }
+                    byte[] data = new byte[(int) bytes.length()];
+                    bytes.read(0, data, 0, data.length);
+                    String content = new String(data, StandardCharsets.UTF_8);
+
+                    // Check if this is a code file for syntax highlighting
+                    String lowerPath = path.toLowerCase();
+                    if (SyntaxHighlighters.forFileName(lowerPath) != null) {
+
+                        // Show with syntax highlighting in the code area
+                        showCodeWithSyntaxHighlighting(content, lowerPath);
+                        statusBar.setText("Opened: " + entry.getName() + " (" + data.length + " bytes)");
+                    } else {
+                        // Show in the plain text area for non-code files
+                        fileContentArea.setText(content);
+                        contentTabPane.getSelectionModel().select(1); // Select the plain text tab
+                        statusBar.setText("Opened: " + entry.getName() + " (" + data.length + " bytes)");
                     }
                 }
             } else if (entry != null && entry.isDirectory()) {
@@ -439,26 +474,23 @@ public class JarViewerFX extends Application {
         closeCurrentJarFile();
 
         try {
-            JarFile jarFile = new JarFile(file);
+            Archive jarFile = Archive.open(file);
             // Store the jar file reference
             currentJarFile.set(jarFile);
+            nestedArchives = new NestedArchives(jarFile);
 
-            TreeItem<String> rootItem = createTreeItem(file.getName(), true);
+            LazyTreeItem rootItem = LazyTreeItem.createRoot(new JarEntryIndex(), file.getName(), this::loadNestedArchive);
             rootItem.setExpanded(true);
 
-            // Track the number of files
-            int fileCount = 0;
-
-            Enumeration<JarEntry> entries = jarFile.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                addTreePath(rootItem, entry.getName());
-                fileCount++;
-            }
-
+            // Show the (empty) tree right away; entries stream in from the indexer
             treeView.setRoot(rootItem);
-            statusBar.setText("Loaded: " + file.getName());
-            fileCountLabel.setText(fileCount + " files");
+            statusBar.setText("Loading: " + file.getName() + "...");
+            fileCountLabel.setText("0 files");
+
+            long generation = ++indexGeneration;
+            indexExecutor.submit(() -> indexJarEntries(jarFile, rootItem, file.getName(), generation));
+            // Queued behind the tree so entries show up first
+            indexExecutor.submit(() -> buildSymbolIndex(jarFile, generation));
 
             // Update window title to include JAR name
             primaryStage.setTitle("JavaFX JAR Viewer - " + file.getName());
@@ -475,12 +507,98 @@ public class JarViewerFX extends Application {
         }
     }
 
+    /**
+     * Enumerates the JAR's entries on the indexer thread and publishes them to the
+     * tree in batches, so packages that are already loaded can be browsed while
+     * the rest streams in.
+     */
+    private void indexJarEntries(Archive jarFile, LazyTreeItem rootItem, String jarName, long generation) {
+        List<String> allNames = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        int fileCount = 0;
+        long lastPublish = System.nanoTime();
+        try {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                if (generation != indexGeneration) {
+                    return; // Another JAR was opened or this one was closed
+                }
+                JarEntry entry = entries.nextElement();
+                batch.add(entry.getName());
+                allNames.add(entry.getName());
+                fileCount++;
+
+                long now = System.nanoTime();
+                if (batch.size() >= INDEX_BATCH_SIZE || now - lastPublish > INDEX_PUBLISH_INTERVAL_NANOS) {
+                    publishTreeBatch(rootItem, batch, fileCount, jarName, generation, false);
+                    batch = new ArrayList<>();
+                    lastPublish = now;
+                }
+            }
+        } catch (IllegalStateException e) {
+            return; // Archive closed underneath us
+        }
+        if (generation == indexGeneration) {
+            entryLookup = new JarEntryLookup(jarFile, allNames);
+        }
+        publishTreeBatch(rootItem, batch, fileCount, jarName, generation, true);
+
+        // Go to Class needs every name, so it is built once the tree is complete
+        ClassNameIndex classIndex = ClassNameIndex.build(allNames);
+        if (generation == indexGeneration) {
+            classNameIndex = classIndex;
+        }
+    }
+
+    private void publishTreeBatch(LazyTreeItem rootItem, List<String> names, int fileCount,
+                                  String jarName, long generation, boolean done) {
+        Platform.runLater(() -> {
+            if (generation != indexGeneration) {
+                return;
+            }
+            // Only the index grows here; tree items appear when packages are expanded
+            List<Integer> createdNodes = new ArrayList<>();
+            for (String name : names) {
+                rootItem.getIndex().addPath(name, createdNodes);
+            }
+            rootItem.nodesAdded(createdNodes);
+            fileCountLabel.setText(fileCount + (done ? " files" : " files (loading...)"));
+            if (done) {
+                statusBar.setText("Loaded: " + jarName);
+            }
+        });
+    }
+
+    /**
+     * Loads the JAR's symbol index from the cache, or builds it. Runs on the indexer thread.
+     */
+    private void buildSymbolIndex(Archive jarFile, long generation) {
+        long start = System.nanoTime();
+        try {
+            SymbolIndex index = SymbolIndex.loadOrBuild(jarFile, DiskSourceCache.defaultDirectory(),
+                    () -> generation != indexGeneration);
+            if (index == null || generation != indexGeneration) {
+                return;
+            }
+            symbolIndex = index;
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Platform.runLater(() -> {
+                if (generation == indexGeneration) {
+                    statusBar.setText("Symbol index ready: " + index.getSymbolCount() + " symbols (" + millis + " ms)");
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            // Runs on the indexer executor, whose Future nobody reads, so report it here
+            System.err.println("Could not build symbol index: " + e);
+        }
+    }
+
     private void openJarFileFromDrag(File file) {
         openJarFileFromPath(file);
     }
 
     private void refreshCurrentJar() {
-        JarFile jarFile = currentJarFile.get();
+        Archive jarFile = currentJarFile.get();
         if (jarFile != null) {
             try {
                 String jarPath = jarFile.getName();
@@ -494,7 +612,21 @@ public class JarViewerFX extends Application {
     }
 
     private void closeCurrentJarFile() {
-        JarFile jarFile = currentJarFile.getAndSet(null);
+        // Don't let a running job publish results for a closed JAR
+        cancelPendingDecompilation();
+        prefetcher.cancel();
+        cancelContentSearch();
+        cancelExport();
+        indexGeneration++; // Stop any indexer still publishing entries
+        symbolIndex = null;
+        entryLookup = null;
+        classNameIndex = null;
+        NestedArchives nested = nestedArchives;
+        nestedArchives = null;
+        if (nested != null) {
+            nested.close();
+        }
+        Archive jarFile = currentJarFile.getAndSet(null);
         try {
             if (jarFile != null) {
                 jarFile.close();
@@ -503,6 +635,9 @@ public class JarViewerFX extends Application {
         }
         // Clear UI elements regardless of whether a jar was open
         treeView.setRoot(null);
+        showOutline(null, null);
+        hexViewer.clear();
+        hexClassKey = null;
         codeArea.clear(); // Also clear the code editor content
         fileContentArea.clear();
         // Reset status/info
@@ -531,6 +666,9 @@ public class JarViewerFX extends Application {
 
     private void collapseAllNodes(TreeItem<?> item) {
         if (item != null) {
+            if (item instanceof LazyTreeItem && !((LazyTreeItem) item).isChildrenLoaded()) {
+                return; // Nothing below was ever shown, so nothing to collapse
+            }
             if (!item.isLeaf() && item != treeView.getRoot()) {
                 item.setExpanded(false);
             }
@@ -582,6 +720,22 @@ public class JarViewerFX extends Application {
             return;
         }
 
+        if (item instanceof LazyTreeItem && item.getParent() == null) {
+            // Search the compact index and only materialize the items that match
+            LazyTreeItem root = (LazyTreeItem) item;
+            String rootText = caseSensitive ? root.getValue() : root.getValue().toLowerCase();
+            if (rootText.contains(searchTerm)) {
+                matches.add(root);
+            }
+            for (int node : root.getIndex().findNodes(searchTerm, caseSensitive)) {
+                TreeItem<String> match = root.itemFor(node);
+                if (match != null) {
+                    matches.add(match);
+                }
+            }
+            return;
+        }
+
         String itemText = item.getValue();
         if (itemText != null) {
             String compareText = caseSensitive ? itemText : itemText.toLowerCase();
@@ -607,160 +761,35 @@ public class JarViewerFX extends Application {
 
     private void handleClassFileSelection(TreeItem<String> selectedItem) {
         // Get the current jar file
-        JarFile currentJar = currentJarFile.get();
+        Archive currentJar = currentJarFile.get();
         if (currentJar != null) {
             try {
                 // Get the path and find the entry
-                String path = getFullPath(selectedItem);
-                System.out.println("Looking for JAR entry: " + path);
-
-                // Special handling for path with spaces
-                path = path.trim();
-                if (path.contains(" ")) {
-                    System.out.println("Path contains spaces, removing leading/trailing spaces from segments");
-                    String[] parts = path.split("/");
-                    StringBuilder cleanPath = new StringBuilder();
-                    for (int i = 0; i < parts.length; i++) {
-                        if (i > 0) cleanPath.append("/");
-                        cleanPath.append(parts[i].trim());
-                    }
-                    path = cleanPath.toString();
-                    System.out.println("Cleaned path: " + path);
-                }
-
-                // Try direct lookup first
-                JarEntry entry = currentJar.getJarEntry(path);
-                System.out.println("Direct lookup: " + (entry != null ? "Found" : "Not found"));
-
-                // If not found, try common variations of the path
-                if (entry == null) {
-                    // Try without leading slash
-                    if (path.startsWith("/")) {
-                        String pathWithoutSlash = path.substring(1);
-                        entry = currentJar.getJarEntry(pathWithoutSlash);
-                        System.out.println("Without leading slash: " + pathWithoutSlash + " - " + (entry != null ? "Found" : "Not found"));
-                    }
-
-                    // Try with package-style path (convert slashes to dots)
-                    if (entry == null) {
-                        String dotPath = path.replace('/', '.');
-                        System.out.println("Trying dot path: " + dotPath);
-
-                        // Try a brute force search if still not found
-                        if (entry == null) {
-                            System.out.println("Trying brute force search for: " + path);
-                            String simpleName = path;
-                            if (path.contains("/")) {
-                                simpleName = path.substring(path.lastIndexOf('/') + 1);
-                            }
-                            System.out.println("Simple name to search: " + simpleName);
-
-                            // First list out all entries for debugging
-                            System.out.println("Available entries in JAR:");
-                            List<JarEntry> classEntries = new ArrayList<>();
-                            for (Enumeration<JarEntry> entries = currentJar.entries(); entries.hasMoreElements(); ) {
-                                JarEntry e = entries.nextElement();
-                                if (e.getName().endsWith(".class")) {
-                                    classEntries.add(e);
-                                    System.out.println(" - " + e.getName());
-                                }
-                            }
-
-                            // Now try to find matches
-                            for (JarEntry e : classEntries) {
-                                String entryName = e.getName();
-
-                                // Check if entry name ends with our simple name
-                                if (entryName.endsWith(simpleName)) {
-                                    entry = e;
-                                    System.out.println("Found match by simple name: " + entryName);
-                                    break;
-                                }
-
-                                // Also check using just the class name part (without .class extension)
-                                String simpleNameWithoutExt = simpleName;
-                                if (simpleName.endsWith(".class")) {
-                                    simpleNameWithoutExt = simpleName.substring(0, simpleName.length() - 6);
-                                }
-
-                                String entrySimpleName = entryName;
-                                if (entryName.contains("/")) {
-                                    entrySimpleName = entryName.substring(entryName.lastIndexOf('/') + 1);
-                                }
-                                if (entrySimpleName.endsWith(".class")) {
-                                    entrySimpleName = entrySimpleName.substring(0, entrySimpleName.length() - 6);
-                                }
-
-                                if (entrySimpleName.equals(simpleNameWithoutExt)) {
-                                    entry = e;
-                                    System.out.println("Found match by simple class name: " + entryName);
-                                    break;
-                                }
-                            }
-                        }
-                    }
+                String path = getFullPath(selectedItem).trim();
+                if (!isNestedArchiveOpen(path, () -> handleClassFileSelection(selectedItem), selectedItem)) {
+                    return;
                 }
+                NestedArchives.Location location = locate(currentJar, path);
+                JarEntry entry = location.isRoot() ? resolveEntry(currentJar, path)
+                        : location.archive.getJarEntry(location.entryName);
 
                 if (entry != null && !entry.isDirectory()) {
-                    System.out.println("Found class entry, calling decompiler: " + entry.getName());
                     fileContentArea.setText("Processing class file: " + entry.getName());
-                    decompileAndShowClassFile(currentJar, entry);
+                    decompileAndShowClassFile(location.archive, entry);
+                    prefetchNeighbours(selectedItem, location, entry);
                 } else {
                     System.out.println("Class entry not found for path: " + path);
 
                     // Show a more helpful error with potential alternatives
                     StringBuilder errorMsg = new StringBuilder();
                     errorMsg.append("Could not find class file entry: ").append(path).append("\n\n");
-                    errorMsg.append("Available similar class files:\n");
-
-                    // Extract the class name part for comparison
-                    String className = path;
-                    int lastSlash = path.lastIndexOf('/');
-                    if (lastSlash >= 0) {
-                        className = path.substring(lastSlash + 1);
-                    }
-                    // Remove .class extension for comparison
-                    if (className.endsWith(".class")) {
-                        className = className.substring(0, className.length() - 6);
-                    }
-
-                    // Find similar class files to suggest
-                    int count = 0;
-                    for (Enumeration<JarEntry> entries = currentJar.entries(); entries.hasMoreElements() && count < 20; ) {
-                        JarEntry e = entries.nextElement();
-                        if (e.getName().endsWith(".class") && !e.isDirectory()) {
-                            String entryName = e.getName();
-
-                            // Extract just the class name part
-                            String entryClassName = entryName;
-                            int entryLastSlash = entryName.lastIndexOf('/');
-                            if (entryLastSlash >= 0) {
-                                entryClassName = entryName.substring(entryLastSlash + 1);
-                            }
-                            // Remove .class extension
-                            if (entryClassName.endsWith(".class")) {
-                                entryClassName = entryClassName.substring(0, entryClassName.length() - 6);
-                            }
-
-                            // Check for similarity
-                            if (entryClassName.contains(className) ||
-                                    className.contains(entryClassName) ||
-                                    (className.length() > 3 && entryName.contains(className))) {
-                                errorMsg.append("- ").append(e.getName()).append("\n");
-                                count++;
-                            }
-                        }
-                    }
-
-                    if (count == 0) {
-                        // If no similar classes found, just show some examples
-                        errorMsg.append("No similar class files found. Here are some examples from the JAR:\n");
-                        for (Enumeration<JarEntry> entries = currentJar.entries(); entries.hasMoreElements() && count < 10; ) {
-                            JarEntry e = entries.nextElement();
-                            if (e.getName().endsWith(".class")) {
-                                errorMsg.append("- ").append(e.getName()).append("\n");
-                                count++;
-                            }
+                    List<String> similar = findSimilarClassEntries(path);
+                    if (similar.isEmpty()) {
+                        errorMsg.append("No similar class files found.\n");
+                    } else {
+                        errorMsg.append("Available similar class files:\n");
+                        for (String name : similar) {
+                            errorMsg.append("- ").append(name).append("\n");
                         }
                     }
 
@@ -777,152 +806,474 @@ public class JarViewerFX extends Application {
         }
     }
 
-    private void decompileAndShowClassFile(JarFile jarFile, JarEntry entry) {
-        // Immediately show a message that we're processing
-        fileContentArea.setText("Processing class file: " + entry.getName() + "...");
+    /**
+     * Resolves a tree path to the archive holding it, which is {@code jarFile}
+     * itself unless the path is inside a nested JAR that has been opened.
+     */
+    private NestedArchives.Location locate(Archive jarFile, String path) {
+        NestedArchives nested = nestedArchives;
+        if (nested != null && nested.getRoot() == jarFile) {
+            return nested.locate(path);
+        }
+        return new NestedArchives.Location(jarFile, path, "");
+    }
 
-        try {
-            // Create a temporary directory for our class file
-            File tempDir = new File(System.getProperty("java.io.tmpdir"));
-            File tempClassFile = new File(tempDir, "temp_" + System.currentTimeMillis() + ".class");
-            tempClassFile.deleteOnExit();
-
-            // Extract the class file
-            try (InputStream is = jarFile.getInputStream(entry);
-                 FileOutputStream fos = new FileOutputStream(tempClassFile)) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = is.read(buffer)) != -1) {
-                    fos.write(buffer, 0, bytesRead);
-                }
-                fos.flush();
+    /**
+     * Returns true unless the path is inside a nested archive that was released to
+     * save memory. In that case the archive is reopened on the nested archive thread,
+     * since that may inflate a large entry, and {@code retry} runs once it is open,
+     * provided {@code item} is still selected.
+     */
+    private boolean isNestedArchiveOpen(String path, Runnable retry, TreeItem<String> item) {
+        NestedArchives nested = nestedArchives;
+        if (nested == null || !nested.needsReopen(path)) {
+            return true;
+        }
+        long generation = indexGeneration;
+        statusBar.setText("Reopening nested archive for " + path + "...");
+        nestedArchiveExecutor.submit(() -> {
+            try {
+                nested.resolve(path);
+                Platform.runLater(() -> {
+                    if (generation == indexGeneration && treeView.getSelectionModel().getSelectedItem() == item) {
+                        retry.run();
+                    }
+                });
+            } catch (IOException | IllegalStateException e) {
+                Platform.runLater(() -> {
+                    if (generation == indexGeneration) {
+                        statusBar.setText("Could not reopen nested archive for " + path + ": " + e.getMessage());
+                    }
+                });
             }
+        });
+        return false;
+    }
 
-            // First, try using CFR
-            StringBuilder result = new StringBuilder();
+    /**
+     * Opens a nested archive on its own thread and adds its entries below its tree item.
+     */
+    private void loadNestedArchive(LazyTreeItem item) {
+        NestedArchives nested = nestedArchives;
+        if (nested == null || !(treeView.getRoot() instanceof LazyTreeItem)) {
+            return;
+        }
+        LazyTreeItem root = (LazyTreeItem) treeView.getRoot();
+        String path = getFullPath(item);
+        long generation = indexGeneration;
+        statusBar.setText("Opening nested archive: " + path + "...");
+        nestedArchiveExecutor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                List<String> names = entryNames(nested.open(path));
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                Platform.runLater(() -> {
+                    if (generation != indexGeneration) {
+                        return;
+                    }
+                    addNestedEntries(root, path, names);
+                    item.archiveLoaded();
+                    statusBar.setText("Opened nested archive: " + path + " (" + names.size() + " entries, " + millis + " ms)");
+                });
+            } catch (IOException | IllegalStateException e) {
+                Platform.runLater(() -> {
+                    if (generation != indexGeneration) {
+                        return;
+                    }
+                    item.archiveLoaded();
+                    statusBar.setText("Could not open nested archive " + path + ": " + e.getMessage());
+                });
+            }
+        });
+    }
 
-            // Basic class file info
-            result.append("// Class File: ").append(entry.getName()).append("\n");
-            result.append("// Size: ").append(tempClassFile.length()).append(" bytes\n\n");
+    private static List<String> entryNames(Archive archive) {
+        List<String> names = new ArrayList<>(archive.size());
+        archive.stream().forEach(entry -> names.add(entry.getName()));
+        return names;
+    }
 
-            // Try running the CFR decompiler as an external process
-            File cfrJar = new File("lib/cfr-0.152.jar");
-            if (cfrJar.exists()) {
-                // Run CFR as an external Java process
-                try {
-                    // Build the command
-                    List<String> command = new ArrayList<>();
-                    command.add("java");
-                    command.add("-jar");
-                    command.add(cfrJar.getAbsolutePath());
-                    command.add(tempClassFile.getAbsolutePath());
-
-                    // Execute the process
-                    ProcessBuilder processBuilder = new ProcessBuilder(command);
-                    processBuilder.redirectErrorStream(true); // Merge stderr with stdout
-
-                    Process process = processBuilder.start();
-
-                    // Capture output
-                    StringBuilder output = new StringBuilder();
-                    try (BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(process.getInputStream()))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            output.append(line).append("\n");
-                        }
-                    }
+    private void addNestedEntries(LazyTreeItem root, String path, List<String> names) {
+        List<Integer> createdNodes = new ArrayList<>();
+        for (String name : names) {
+            root.getIndex().addPath(path + "/" + name, createdNodes);
+        }
+        root.nodesAdded(createdNodes);
+    }
 
-                    // Wait for process to complete
-                    int exitCode = process.waitFor();
+    /**
+     * Adds the entries of nested archives on the way to {@code path} that were
+     * opened outside the tree (e.g. by a content search) and not expanded yet.
+     */
+    private void addOpenedNestedEntries(LazyTreeItem root, String path) {
+        NestedArchives nested = nestedArchives;
+        if (nested == null) {
+            return;
+        }
+        JarEntryIndex index = root.getIndex();
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            String prefix = path.substring(0, slash);
+            Archive archive = nested.get(prefix);
+            int node = archive == null ? -1 : index.findNode(prefix);
+            if (node >= 0 && !index.hasChildren(node)) {
+                try {
+                    addNestedEntries(root, prefix, entryNames(archive));
+                } catch (IllegalStateException e) {
+                    return; // Closed meanwhile
+                }
+            }
+        }
+    }
 
-                    if (exitCode == 0 && output.length() > 0) {
-                        // Decompilation successful - use the code area with syntax highlighting
-                        String decompiled = output.toString();
+    /**
+     * Finds the entry for a tree path or class name through the JAR's lookup
+     * tables, falling back to the JAR's own name lookup while it is being indexed.
+     */
+    private JarEntry resolveEntry(Archive jarFile, String path) {
+        JarEntryLookup lookup = entryLookup;
+        if (lookup != null) {
+            return lookup.resolve(path);
+        }
+        JarEntry entry = jarFile.getJarEntry(path);
+        if (entry == null && path.startsWith("/")) {
+            entry = jarFile.getJarEntry(path.substring(1));
+        }
+        return entry;
+    }
 
-                        // Use our enhanced code view with syntax highlighting
-                        showCodeWithSyntaxHighlighting(decompiled, ".java");
-                        statusBar.setText("Decompiled: " + entry.getName() + " (" + tempClassFile.length() + " bytes)");
-                        return;
-                    } else {
-                        // Failed to decompile with CFR
-                        result.append("// CFR decompilation failed (exit code ").append(exitCode).append(")\n");
-                        result.append("// Output: ").append(output.length() > 0 ? output.toString() : "No output").append("\n\n");
-                    }
-                } catch (Exception e) {
-                    result.append("// Error running CFR: ").append(e.getMessage()).append("\n\n");
+    /**
+     * Up to 20 class entries that look like what the user asked for: classes with the
+     * same simple name, then class symbols starting with it.
+     */
+    private List<String> findSimilarClassEntries(String path) {
+        String simpleName = path.substring(path.lastIndexOf('/') + 1);
+        if (simpleName.endsWith(".class")) {
+            simpleName = simpleName.substring(0, simpleName.length() - 6);
+        }
+        Set<String> similar = new LinkedHashSet<>();
+        JarEntryLookup lookup = entryLookup;
+        if (lookup != null) {
+            for (JarEntry e : lookup.findBySimpleName(simpleName)) {
+                similar.add(e.getName());
+            }
+        }
+        SymbolIndex index = symbolIndex;
+        if (index != null && !simpleName.isEmpty()) {
+            for (SymbolIndex.Result result : index.query(simpleName, 100)) {
+                if (similar.size() >= 20) {
+                    break;
                 }
-            } else {
-                result.append("// CFR decompiler not found at: ").append(cfrJar.getAbsolutePath()).append("\n");
-                result.append("// To enable decompilation, place CFR jar in the lib directory.\n\n");
+                if ("class".equals(result.kind)) {
+                    similar.add(result.entryName);
+                }
+            }
+        }
+        return new ArrayList<>(similar).subList(0, Math.min(20, similar.size()));
+    }
+
+    private void decompileAndShowClassFile(Archive jarFile, JarEntry entry) {
+        // Immediately show a message that we're processing
+        fileContentArea.setText("Processing class file: " + entry.getName() + "...");
+        statusBar.setText("Decompiling: " + entry.getName() + "...");
+
+        // A newer selection supersedes whatever is still running
+        cancelPendingDecompilation();
+
+        // The outline needs no decompiler, so it shows up right away
+        String cacheKey = DecompiledSourceCache.keyFor(jarFile, entry);
+        showOutline(jarFile, entry);
+        outlineClassKey = cacheKey;
+
+        // Revisiting a class is served straight from the cache
+        String cached = sourceCache.get(cacheKey);
+        cacheStatsLabel.setText(sourceCache.getStatsText());
+        if (cached != null) {
+            showCodeWithSyntaxHighlighting(cached, ".java");
+            codeClassKey = cacheKey;
+            statusBar.setText("Decompiled: " + entry.getName() + " (cached)");
+            return;
+        }
+
+        long generation = ++decompileGeneration;
+        decompileProgress.setVisible(true);
+
+        currentDecompileTask = decompileExecutor.submit(() -> {
+            DecompileOutcome outcome = decompileClassFile(jarFile, entry);
+            if (outcome.source != null) {
+                sourceCache.put(cacheKey, outcome.source);
             }
+            Platform.runLater(() -> {
+                if (generation != decompileGeneration) {
+                    return; // The user has moved on to another class
+                }
+                decompileProgress.setVisible(false);
+                if (outcome.source != null) {
+                    // Use our enhanced code view with syntax highlighting
+                    showCodeWithSyntaxHighlighting(outcome.source, ".java");
+                    codeClassKey = cacheKey;
+                } else {
+                    // Use plain text view for class info and errors
+                    fileContentArea.setText(outcome.text);
+                    contentTabPane.getSelectionModel().select(1); // Select the plain text tab
+                }
+                statusBar.setText(outcome.status);
+                cacheStatsLabel.setText(sourceCache.getStatsText());
+            });
+        });
+    }
 
-            // If we got here, CFR failed or isn't available - show basic class info
-
-            // Read basic class file information
-            try (DataInputStream dis = new DataInputStream(new FileInputStream(tempClassFile))) {
-                // Check magic number
-                int magic = dis.readInt();
-                if (magic == 0xCAFEBABE) {
-                    // Read version info
-                    int minor = dis.readUnsignedShort();
-                    int major = dis.readUnsignedShort();
-                    result.append("// Java Class Version: ").append(major).append(".").append(minor).append("\n\n");
+    /**
+     * Queues the nested classes of the selected class, then its other package siblings
+     * (nearest first), for low-priority speculative decompilation.
+     */
+    private void prefetchNeighbours(TreeItem<String> selectedItem, NestedArchives.Location location, JarEntry entry) {
+        TreeItem<String> parent = selectedItem.getParent();
+        if (parent == null) {
+            return;
+        }
+
+        String name = entry.getName();
+        String baseName = name.substring(name.lastIndexOf('/') + 1, name.length() - ".class".length());
+        int dollar = baseName.indexOf('$');
+        String outerName = dollar >= 0 ? baseName.substring(0, dollar) : baseName;
+
+        List<JarEntry> nested = new ArrayList<>();
+        List<JarEntry> siblings = new ArrayList<>();
+        List<TreeItem<String>> children = parent.getChildren();
+        int selectedIndex = children.indexOf(selectedItem);
+
+        // Walk outwards from the selection so the nearest siblings come first, and stop
+        // at the limit: packages can hold thousands of classes
+        for (int distance = 1; distance < children.size() && nested.size() + siblings.size() < PREFETCH_LIMIT;
+                distance++) {
+            for (int index : new int[] { selectedIndex - distance, selectedIndex + distance }) {
+                if (index < 0 || index >= children.size()) {
+                    continue;
+                }
+                TreeItem<String> child = children.get(index);
+                String childName = child.getValue();
+                if (childName == null || !childName.endsWith(".class")) {
+                    continue;
+                }
+                JarEntry childEntry = location.archive.getJarEntry(getFullPath(child).substring(location.prefix.length()));
+                if (childEntry == null) {
+                    continue;
+                }
+                if (childName.startsWith(outerName + "$") || childName.equals(outerName + ".class")) {
+                    nested.add(childEntry);
                 } else {
-                    result.append("// Not a valid class file (invalid magic number)\n\n");
+                    siblings.add(childEntry);
                 }
-            } catch (IOException e) {
-                result.append("// Error reading class file: ").append(e.getMessage()).append("\n\n");
             }
+        }
 
-            // Display hex dump of the class file
-            result.append("// Hex dump of class file:\n");
-            try (RandomAccessFile raf = new RandomAccessFile(tempClassFile, "r")) {
-                byte[] buffer = new byte[16];
-                long offset = 0;
-                int bytesRead;
+        List<JarEntry> candidates = new ArrayList<>(nested);
+        candidates.addAll(siblings);
+        prefetcher.prefetch(location.archive, candidates.subList(0, Math.min(PREFETCH_LIMIT, candidates.size())));
+    }
 
-                while ((bytesRead = raf.read(buffer)) != -1) {
-                    // Print offset
-                    result.append(String.format("\n// %08X: ", offset));
+    /**
+     * Cancels the in-flight decompilation, if any, and hides the progress indicator.
+     */
+    private void cancelPendingDecompilation() {
+        Future<?> task = currentDecompileTask;
+        if (task != null) {
+            task.cancel(true);
+            currentDecompileTask = null;
+        }
+        decompileGeneration++;
+        if (decompileProgress != null) {
+            decompileProgress.setVisible(false);
+        }
+    }
 
-                    // Print hex values
-                    for (int i = 0; i < bytesRead; i++) {
-                        result.append(String.format("%02X ", buffer[i] & 0xFF));
-                    }
+    /**
+     * Shows the outline and the bytes of a class entry, or clears the outline when
+     * {@code entry} is null. Only offsets are parsed up front, so this is fast
+     * enough for the FX thread.
+     */
+    private void showOutline(Archive jarFile, JarEntry entry) {
+        outlineClassKey = null;
+        outlineSimpleName = null;
+        if (outlineView == null) {
+            return;
+        }
+        if (entry == null) {
+            outlineView.setRoot(null);
+            return;
+        }
+        try {
+            ByteBuffer classBytes = jarFile.readBuffer(entry);
+            hexViewer.setSource(ByteSource.of(classBytes), entry.getName());
+            hexClassKey = DecompiledSourceCache.keyFor(jarFile, entry);
+            ClassFileParser parser = new ClassFileParser(classBytes);
+            String className = parser.getClassName();
+            outlineSimpleName = className.substring(Math.max(className.lastIndexOf('/'), className.lastIndexOf('$')) + 1);
+            OutlineTreeItem root = new OutlineTreeItem(ClassOutline.build(parser));
+            root.setExpanded(true);
+            for (TreeItem<ClassOutline.Node> child : root.getChildren()) {
+                // The constant pool is built lazily and stays collapsed
+                child.setExpanded(child.getValue().isChildrenLoaded());
+            }
+            outlineView.setRoot(root);
+        } catch (IOException | RuntimeException e) {
+            outlineView.setRoot(new TreeItem<>(new ClassOutline.Node(ClassOutline.Kind.CLASS,
+                    "Unreadable class file: " + e.getMessage())));
+        }
+    }
 
-                    // Padding for incomplete lines
-                    for (int i = bytesRead; i < 16; i++) {
-                        result.append("   ");
-                    }
+    /**
+     * Shows an entry in the hex view without switching to it.
+     */
+    private ByteSource showBytes(Archive archive, JarEntry entry) throws IOException {
+        ByteSource bytes = ByteSource.open(archive, entry);
+        hexViewer.setSource(bytes, entry.getName());
+        hexClassKey = null;
+        return bytes;
+    }
 
-                    // Print ASCII representation
-                    result.append(" | ");
-                    for (int i = 0; i < bytesRead; i++) {
-                        char c = (char) (buffer[i] & 0xFF);
-                        result.append(c >= 32 && c < 127 ? c : '.');
-                    }
+    /**
+     * Guesses from the first few KB whether an entry is binary: text has no NUL
+     * bytes and few other control characters.
+     */
+    private static boolean looksBinary(ByteSource bytes) throws IOException {
+        byte[] head = new byte[(int) Math.min(8192, bytes.length())];
+        int n = bytes.read(0, head, 0, head.length);
+        int control = 0;
+        for (int i = 0; i < n; i++) {
+            int b = head[i] & 0xFF;
+            if (b == 0) {
+                return true;
+            }
+            if (b < 32 && b != '\n' && b != '\r' && b != '\t' && b != '\f' && b != 27) {
+                control++;
+            }
+        }
+        return control * 10 > n;
+    }
 
-                    offset += bytesRead;
+    /**
+     * Moves the caret to a field or method of the outline in the decompiled source,
+     * or for other outline items (and whenever the hex view is showing) to their bytes.
+     */
+    private void navigateToOutlineNode(ClassOutline.Node node) {
+        if (node == null) {
+            return;
+        }
+        // In the hex view, or for items that have no declaration, go to the bytes
+        boolean hexShown = contentTabPane.getSelectionModel().getSelectedIndex() == HEX_TAB;
+        if ((hexShown || node.memberName == null) && node.offset >= 0
+                && outlineClassKey != null && outlineClassKey.equals(hexClassKey)) {
+            contentTabPane.getSelectionModel().select(HEX_TAB);
+            hexViewer.goTo(node.offset);
+            return;
+        }
+        if (node.memberName == null) {
+            return;
+        }
+        if (outlineClassKey == null || !outlineClassKey.equals(codeClassKey)) {
+            statusBar.setText("Decompiled source of this class is not shown yet");
+            return;
+        }
+        int position = ClassOutline.findDeclaration(codeText, node, outlineSimpleName);
+        if (position < 0) {
+            statusBar.setText("No declaration of " + node.memberName + " in the decompiled source");
+            return;
+        }
+        String name = node.memberName.equals("<init>") ? outlineSimpleName
+                : node.memberName.equals("<clinit>") ? "static" : node.memberName;
+        contentTabPane.getSelectionModel().select(0);
+        codeArea.moveTo(position);
+        codeArea.requestFollowCaret();
+        codeArea.selectRange(position, position + name.length());
+    }
+
+    /**
+     * Decompiles a class entry. Runs on the decompiler executor and must not touch the UI.
+     */
+    private DecompileOutcome decompileClassFile(Archive jarFile, JarEntry entry) {
+        try {
+            byte[] classBytes;
+            try (InputStream is = jarFile.getInputStream(entry)) {
+                classBytes = is.readAllBytes();
+            }
+
+            StringBuilder result = new StringBuilder();
+
+            // Basic class file info
+            result.append("// Class File: ").append(entry.getName()).append("\n");
+            result.append("// Size: ").append(classBytes.length).append(" bytes\n\n");
+
+            // Same class bytes were decompiled in an earlier session
+            String diskKey = DiskSourceCache.keyFor(jarFile, entry, classBytes);
+            String persisted = diskCache.get(diskKey);
+            if (persisted != null) {
+                return DecompileOutcome.source(persisted, "Decompiled: " + entry.getName() + " ("
+                        + classBytes.length + " bytes, disk cache)");
+            }
+
+            // Try the selected decompiler first, then the other one as a fallback
+            List<DecompilerEngine> engines = useExternalDecompiler
+                    ? List.of(externalDecompiler, inProcessDecompiler)
+                    : List.of(inProcessDecompiler, externalDecompiler);
+            for (DecompilerEngine engine : engines) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return DecompileOutcome.text("Cancelled", "Cancelled: " + entry.getName());
                 }
-            } catch (IOException e) {
-                result.append("\n// Error reading file for hex dump: ").append(e.getMessage());
+                try {
+                    String decompiled = engine == inProcessDecompiler
+                            ? boundedDecompiler.decompileInProcess(jarFile, entry)
+                            : engine.decompile(jarFile, entry);
+                    diskCache.put(diskKey, decompiled);
+                    return DecompileOutcome.source(decompiled, "Decompiled: " + entry.getName() + " ("
+                            + classBytes.length + " bytes, " + engine.getName() + ")");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return DecompileOutcome.text("Cancelled", "Cancelled: " + entry.getName());
+                } catch (Throwable e) {
+                    // In-process CFR also fails with errors such as StackOverflowError
+                    result.append("// ").append(engine.getName()).append(" failed: ").append(e).append("\n\n");
+                }
+            }
+
+            // If we got here, CFR failed or isn't available - show the class structure instead
+            try {
+                result.append(ClassOutline.toText(ClassOutline.build(ClassFileParser.parse(classBytes))));
+            } catch (IOException | RuntimeException e) {
+                result.append("// Not a valid class file: ").append(e.getMessage()).append("\n");
             }
 
-            // Update the UI - use plain text view for this
-            fileContentArea.setText(result.toString());
-            contentTabPane.getSelectionModel().select(1); // Select the plain text tab
-            statusBar.setText("Class info: " + entry.getName() + " (" + tempClassFile.length() + " bytes)");
+            return DecompileOutcome.text(result.toString(),
+                    "Class info: " + entry.getName() + " (" + classBytes.length + " bytes)");
+
+        } catch (Throwable e) {
+            // Show any errors that occur, so the code view never stays on "Processing..."
+            return DecompileOutcome.text("Error processing class file:\n" + e + "\n\n"
+                    + getStackTraceAsString(e), "Error: " + entry.getName());
+        }
+    }
 
-        } catch (Exception e) {
-            // Show any errors that occur
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
+    /**
+     * Result of a background decompilation: either Java source for the code view,
+     * or plain text (class info, errors) for the plain text view.
+     */
+    private static final class DecompileOutcome {
+        final String source;
+        final String text;
+        final String status;
+
+        private DecompileOutcome(String source, String text, String status) {
+            this.source = source;
+            this.text = text;
+            this.status = status;
+        }
 
-            fileContentArea.setText("Error processing class file:\n" + e.getMessage() + "\n\n" + sw.toString());
-            contentTabPane.getSelectionModel().select(1); // Select the plain text tab
-            statusBar.setText("Error: " + entry.getName());
+        static DecompileOutcome source(String source, String status) {
+            return new DecompileOutcome(source, null, status);
+        }
+
+        static DecompileOutcome text(String text, String status) {
+            return new DecompileOutcome(null, text, status);
         }
     }
 
@@ -946,12 +1297,19 @@ public class JarViewerFX extends Application {
         MenuItem closeMenuItem = new MenuItem("Close");
         closeMenuItem.setOnAction(e -> closeCurrentJarFile());
 
+        MenuItem exportJarMenuItem = new MenuItem("Export Decompiled Sources...");
+        exportJarMenuItem.setOnAction(e -> exportSourcesToJar());
+
+        MenuItem exportFolderMenuItem = new MenuItem("Export Decompiled Sources to Folder...");
+        exportFolderMenuItem.setOnAction(e -> exportSourcesToFolder());
+
         SeparatorMenuItem separator = new SeparatorMenuItem();
 
         MenuItem exitMenuItem = new MenuItem("Exit");
         exitMenuItem.setOnAction(e -> primaryStage.close());
 
-        fileMenu.getItems().addAll(openMenuItem, refreshMenuItem, closeMenuItem, separator, exitMenuItem);
+        fileMenu.getItems().addAll(openMenuItem, refreshMenuItem, closeMenuItem, new SeparatorMenuItem(),
+                exportJarMenuItem, exportFolderMenuItem, separator, exitMenuItem);
 
         // View menu
         Menu viewMenu = new Menu("View");
@@ -987,7 +1345,32 @@ public class JarViewerFX extends Application {
 
         themeMenu.getItems().addAll(lightTheme, nightTheme);
 
-        viewMenu.getItems().addAll(showLineNumbersItem, wrapTextItem, new SeparatorMenuItem(), themeMenu);
+        // Decompiler submenu
+        Menu decompilerMenu = new Menu("Decompiler");
+        ToggleGroup decompilerGroup = new ToggleGroup();
+
+        RadioMenuItem inProcessItem = new RadioMenuItem(inProcessDecompiler.getName());
+        inProcessItem.setToggleGroup(decompilerGroup);
+        inProcessItem.setSelected(true);
+        inProcessItem.setOnAction(e -> useExternalDecompiler = false);
+
+        RadioMenuItem externalItem = new RadioMenuItem(externalDecompiler.getName());
+        externalItem.setToggleGroup(decompilerGroup);
+        externalItem.setOnAction(e -> {
+            useExternalDecompiler = true;
+            externalDecompiler.prestart();
+        });
+
+        decompilerMenu.getItems().addAll(inProcessItem, externalItem);
+
+        viewMenu.getItems().addAll(showLineNumbersItem, wrapTextItem, new SeparatorMenuItem(), themeMenu, decompilerMenu);
+
+        // Navigate menu
+        Menu navigateMenu = new Menu("Navigate");
+        MenuItem goToClassItem = new MenuItem("Go to Class...");
+        goToClassItem.setAccelerator(new KeyCodeCombination(KeyCode.N, KeyCombination.SHORTCUT_DOWN));
+        goToClassItem.setOnAction(e -> showGoToClassPopup());
+        navigateMenu.getItems().add(goToClassItem);
 
         // Help menu
         Menu helpMenu = new Menu("Help");
@@ -996,7 +1379,7 @@ public class JarViewerFX extends Application {
 
         helpMenu.getItems().add(aboutMenuItem);
 
-        menuBar.getMenus().addAll(fileMenu, viewMenu, helpMenu);
+        menuBar.getMenus().addAll(fileMenu, viewMenu, navigateMenu, helpMenu);
         return menuBar;
     }
 
@@ -1050,9 +1433,8 @@ public class JarViewerFX extends Application {
         return toolBar;
     }
 
-    private HBox createSearchPanel() {
+    private VBox createSearchPanel() {
         HBox searchPanel = new HBox(5);
-        searchPanel.setPadding(new Insets(5));
         searchPanel.setAlignment(Pos.CENTER_LEFT);
 
         searchField = new TextField();
@@ -1136,7 +1518,420 @@ public class JarViewerFX extends Application {
         HBox.setHgrow(searchField, Priority.ALWAYS);
         searchPanel.getChildren().addAll(searchField, searchButton, caseSensitiveCheckBox);
 
-        return searchPanel;
+        // Second row: search inside entry contents rather than names
+        Button contentSearchButton = new Button("Search Contents");
+        contentSearchButton.setTooltip(new Tooltip("Search text resources and class constants across the whole JAR"));
+        CheckBox decompiledCheckBox = new CheckBox("Include decompiled source");
+        contentSearchButton.setOnAction(e -> startContentSearch(searchField.getText(),
+                caseSensitiveCheckBox.isSelected(), decompiledCheckBox.isSelected()));
+
+        Button symbolSearchButton = new Button("Find Symbol");
+        symbolSearchButton.setTooltip(new Tooltip("Find classes, methods, fields and strings by prefix or camel humps (e.g. NPE)"));
+        symbolSearchButton.setOnAction(e -> findSymbols(searchField.getText()));
+
+        HBox contentSearchPanel = new HBox(5, symbolSearchButton, contentSearchButton, decompiledCheckBox);
+        contentSearchPanel.setAlignment(Pos.CENTER_LEFT);
+
+        VBox searchBox = new VBox(5, searchPanel, contentSearchPanel);
+        searchBox.setPadding(new Insets(5));
+        return searchBox;
+    }
+
+    /**
+     * Searches the contents of every entry in the open JAR in the background,
+     * streaming hits into the Search Results tab.
+     */
+    private void startContentSearch(String term, boolean caseSensitive, boolean includeDecompiled) {
+        Archive jarFile = currentJarFile.get();
+        if (jarFile == null) {
+            statusBar.setText("No JAR loaded");
+            return;
+        }
+        if (term == null || term.isEmpty()) {
+            statusBar.setText("Enter a term to search");
+            return;
+        }
+
+        cancelContentSearch();
+        showSearchResultsTab();
+        searchResultsList.getItems().clear();
+
+        // Hits arrive on pool threads; drain them in batches on the FX thread
+        Queue<JarContentSearcher.Hit> pending = new ConcurrentLinkedQueue<>();
+        AtomicBoolean drainScheduled = new AtomicBoolean();
+        JarContentSearcher.Search[] search = new JarContentSearcher.Search[1];
+        Runnable drain = () -> {
+            drainScheduled.set(false);
+            if (search[0] != currentContentSearch) {
+                return; // A newer search replaced this one
+            }
+            List<JarContentSearcher.Hit> batch = new ArrayList<>();
+            for (JarContentSearcher.Hit hit; (hit = pending.poll()) != null; ) {
+                batch.add(hit);
+            }
+            searchResultsList.getItems().addAll(batch);
+        };
+
+        NestedArchives archives = nestedArchives;
+        search[0] = contentSearcher.search(archives, term, caseSensitive,
+                includeDecompiled ? searchDecompiler : null,
+                hit -> {
+                    pending.add(hit);
+                    if (drainScheduled.compareAndSet(false, true)) {
+                        Platform.runLater(drain);
+                    }
+                },
+                () -> Platform.runLater(() -> {
+                    drain.run();
+                    if (search[0] == currentContentSearch) {
+                        finishContentSearch(term);
+                    }
+                }));
+        currentContentSearch = search[0];
+
+        searchProgressTimer = new Timeline(new KeyFrame(javafx.util.Duration.millis(200), e -> updateContentSearchStatus(term)));
+        searchProgressTimer.setCycleCount(Animation.INDEFINITE);
+        searchProgressTimer.play();
+        updateContentSearchStatus(term);
+    }
+
+    /**
+     * Looks the query up in the prebuilt symbol index and lists the results.
+     */
+    private void findSymbols(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            statusBar.setText("Enter a term to search");
+            return;
+        }
+        SymbolIndex index = symbolIndex;
+        if (index == null) {
+            statusBar.setText(currentJarFile.get() == null ? "No JAR loaded" : "Symbol index is still being built...");
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<SymbolIndex.Result> results = index.query(query.trim(), SYMBOL_RESULT_LIMIT);
+        long micros = (System.nanoTime() - start) / 1000;
+
+        cancelContentSearch();
+        showSearchResultsTab();
+        List<JarContentSearcher.Hit> hits = new ArrayList<>(results.size());
+        for (SymbolIndex.Result result : results) {
+            hits.add(new JarContentSearcher.Hit(result.entryName, 0, result.symbol, result.kind));
+        }
+        searchResultsList.getItems().setAll(hits);
+        String summary = results.size() + " symbols for '" + query.trim() + "' (" + micros / 1000.0 + " ms)";
+        searchResultsStatus.setText(summary);
+        statusBar.setText(summary);
+    }
+
+    private void exportSourcesToJar() {
+        Archive jarFile = currentJarFile.get();
+        if (jarFile == null) {
+            statusBar.setText("No JAR loaded");
+            return;
+        }
+        String jarName = new File(jarFile.getName()).getName();
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Decompiled Sources");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JAR files", "*.jar"));
+        fileChooser.setInitialDirectory(new File(jarFile.getName()).getAbsoluteFile().getParentFile());
+        fileChooser.setInitialFileName(jarName.replaceFirst("(?i)\\.jar$", "") + "-sources.jar");
+        File target = fileChooser.showSaveDialog(primaryStage);
+        if (target != null) {
+            startExport(jarFile, target, true);
+        }
+    }
+
+    private void exportSourcesToFolder() {
+        Archive jarFile = currentJarFile.get();
+        if (jarFile == null) {
+            statusBar.setText("No JAR loaded");
+            return;
+        }
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Export Decompiled Sources to Folder");
+        File target = directoryChooser.showDialog(primaryStage);
+        if (target != null) {
+            startExport(jarFile, target, false);
+        }
+    }
+
+    /**
+     * Decompiles every top-level class of the JAR into {@code target} in the
+     * background, showing progress and throughput in the status bar.
+     */
+    private void startExport(Archive jarFile, File target, boolean sourcesJar) {
+        cancelExport();
+        SourceExporter.Export[] export = new SourceExporter.Export[1];
+        // Follows the engine chosen in the menu. Either way a class that makes CFR spin ends up in a
+        // worker process with a timeout, so the export always finishes. In process, the export gets
+        // a thread per exporter worker of its own, so it neither spills to the worker processes
+        // nor takes the threads the viewer's own decompiles need
+        int threads = Runtime.getRuntime().availableProcessors();
+        BoundedDecompiler exportEngine = useExternalDecompiler ? null
+                : new BoundedDecompiler(inProcessDecompiler, externalDecompiler, IN_PROCESS_DEADLINE_MILLIS, threads);
+        SourceExporter exporter = new SourceExporter(exportEngine == null ? externalDecompiler : exportEngine, threads);
+        export[0] = exporter.export(jarFile, target.toPath(), sourcesJar, error -> {
+            if (exportEngine != null) {
+                exportEngine.shutdown();
+            }
+            Platform.runLater(() -> {
+                if (export[0] != currentExport) {
+                    return; // Cancelled, or replaced by a newer export
+                }
+                finishExport(target, error);
+            });
+        });
+        currentExport = export[0];
+
+        exportProgressBar.setProgress(0);
+        setExportControlsVisible(true);
+        exportProgressTimer = new Timeline(new KeyFrame(javafx.util.Duration.millis(250), e -> updateExportStatus(target)));
+        exportProgressTimer.setCycleCount(Animation.INDEFINITE);
+        exportProgressTimer.play();
+        updateExportStatus(target);
+    }
+
+    private void updateExportStatus(File target) {
+        SourceExporter.Export export = currentExport;
+        if (export == null) {
+            return;
+        }
+        int total = export.getTotal();
+        exportProgressBar.setProgress(total == 0 ? ProgressBar.INDETERMINATE_PROGRESS : (double) export.getWritten() / total);
+        statusBar.setText(String.format("Exporting to %s: %d/%d classes (%.0f classes/s)",
+                target.getName(), export.getWritten(), total, export.getClassesPerSecond()));
+    }
+
+    private void finishExport(File target, Exception error) {
+        SourceExporter.Export export = currentExport;
+        currentExport = null;
+        if (exportProgressTimer != null) {
+            exportProgressTimer.stop();
+        }
+        setExportControlsVisible(false);
+        if (error != null) {
+            statusBar.setText("Export failed: " + error.getMessage());
+            showAlert("Export Failed", "Could not export sources to " + target + ":\n" + error.getMessage());
+            return;
+        }
+        statusBar.setText(String.format("Exported %d classes to %s in %.1f s (%.0f classes/s%s)",
+                export.getWritten(), target, export.getElapsedMillis() / 1000.0, export.getClassesPerSecond(),
+                export.getFailed() > 0 ? ", " + export.getFailed() + " failed" : ""));
+    }
+
+    private void cancelExport() {
+        SourceExporter.Export export = currentExport;
+        if (export == null) {
+            return;
+        }
+        export.cancel();
+        currentExport = null;
+        if (exportProgressTimer != null) {
+            exportProgressTimer.stop();
+        }
+        setExportControlsVisible(false);
+        statusBar.setText("Export cancelled after " + export.getWritten() + " classes");
+    }
+
+    private void setExportControlsVisible(boolean visible) {
+        exportProgressBar.setVisible(visible);
+        exportProgressBar.setManaged(visible);
+        cancelExportButton.setVisible(visible);
+        cancelExportButton.setManaged(visible);
+    }
+
+    private void updateContentSearchStatus(String term) {
+        JarContentSearcher.Search search = currentContentSearch;
+        if (search != null) {
+            searchResultsStatus.setText("Searching for '" + term + "': " + search.getScanned() + "/"
+                    + search.getTotal() + " entries, " + searchResultsList.getItems().size() + " hits");
+        }
+    }
+
+    private void finishContentSearch(String term) {
+        JarContentSearcher.Search search = currentContentSearch;
+        if (searchProgressTimer != null) {
+            searchProgressTimer.stop();
+        }
+        String summary = searchResultsList.getItems().size() + " hits for '" + term + "' in "
+                + search.getScanned() + " entries" + (search.isCancelled() ? " (stopped)" : "");
+        searchResultsStatus.setText(summary);
+        statusBar.setText(summary);
+        currentContentSearch = null;
+    }
+
+    private void cancelContentSearch() {
+        JarContentSearcher.Search search = currentContentSearch;
+        if (search != null) {
+            search.cancel();
+            currentContentSearch = null;
+        }
+        if (searchProgressTimer != null) {
+            searchProgressTimer.stop();
+        }
+    }
+
+    /**
+     * Adds the Search Results tab if needed and selects it.
+     */
+    private void showSearchResultsTab() {
+        if (searchResultsTab == null) {
+            searchResultsStatus = new Label();
+            Button cancelButton = new Button("Stop");
+            cancelButton.setOnAction(e -> {
+                JarContentSearcher.Search search = currentContentSearch;
+                if (search != null) {
+                    search.cancel();
+                }
+            });
+            HBox header = new HBox(10, searchResultsStatus, cancelButton);
+            header.setPadding(new Insets(5));
+            header.setAlignment(Pos.CENTER_LEFT);
+            HBox.setHgrow(searchResultsStatus, Priority.ALWAYS);
+            searchResultsStatus.setMaxWidth(Double.MAX_VALUE);
+
+            searchResultsList = new ListView<>();
+            searchResultsList.setOnMouseClicked(e -> {
+                JarContentSearcher.Hit hit = searchResultsList.getSelectionModel().getSelectedItem();
+                if (hit != null && e.getClickCount() == 2) {
+                    openSearchHit(hit);
+                }
+            });
+            VBox.setVgrow(searchResultsList, Priority.ALWAYS);
+
+            searchResultsTab = new Tab("Search Results", new VBox(header, searchResultsList));
+            searchResultsTab.setOnClosed(e -> {
+                cancelContentSearch();
+                searchResultsTab = null;
+            });
+        }
+        if (!contentTabPane.getTabs().contains(searchResultsTab)) {
+            contentTabPane.getTabs().add(searchResultsTab);
+        }
+        contentTabPane.getSelectionModel().select(searchResultsTab);
+    }
+
+    /**
+     * Opens the entry of a content search hit, jumping to the matching line for text resources.
+     */
+    private void openSearchHit(JarContentSearcher.Hit hit) {
+        TreeItem<String> item = revealEntry(hit.entryName);
+        if (item == null) {
+            statusBar.setText("Entry not found in tree: " + hit.entryName);
+            return;
+        }
+        if (hit.entryName.endsWith(".class")) {
+            handleClassFileSelection(item);
+        } else if (hit.line > 0 && contentTabPane.getSelectionModel().getSelectedIndex() == 0
+                && hit.line <= codeArea.getParagraphs().size()) {
+            // Text resources are loaded synchronously by the selection listener
+            codeArea.moveTo(hit.line - 1, 0);
+            codeArea.requestFollowCaret();
+        }
+    }
+
+    /**
+     * Shows the "Go to Class" popup: fuzzy class search as you type, Enter opens the selection.
+     */
+    private void showGoToClassPopup() {
+        ClassNameIndex index = classNameIndex;
+        if (index == null) {
+            statusBar.setText(currentJarFile.get() == null ? "No JAR file is currently open" : "Class index is still being built...");
+            return;
+        }
+
+        TextField queryField = new TextField();
+        queryField.setPromptText("Class name, camel humps (NPE) or package fragments (util.Map)");
+        ListView<ClassNameIndex.Match> resultList = new ListView<>();
+        resultList.setPrefSize(600, 400);
+        Label resultInfo = new Label(index.size() + " classes");
+
+        VBox content = new VBox(5, queryField, resultList, resultInfo);
+        content.setPadding(new Insets(8));
+        content.setStyle("-fx-background-color: #f5f5f5; -fx-border-color: #888888;");
+
+        Popup popup = new Popup();
+        popup.getContent().add(content);
+        popup.setAutoHide(true);
+
+        // Searching takes a few milliseconds even on very large JARs, so it runs on every keystroke
+        queryField.textProperty().addListener((obs, oldText, text) -> {
+            long start = System.nanoTime();
+            List<ClassNameIndex.Match> matches = index.search(text, GO_TO_CLASS_LIMIT);
+            long micros = (System.nanoTime() - start) / 1000;
+            resultList.getItems().setAll(matches);
+            if (!matches.isEmpty()) {
+                resultList.getSelectionModel().select(0);
+            }
+            resultInfo.setText(matches.size() + " of " + index.size() + " classes (" + micros + " µs)");
+        });
+
+        Runnable openSelected = () -> {
+            ClassNameIndex.Match match = resultList.getSelectionModel().getSelectedItem();
+            if (match != null) {
+                popup.hide();
+                TreeItem<String> item = revealEntry(match.entryName);
+                if (item != null) {
+                    handleClassFileSelection(item);
+                } else {
+                    statusBar.setText("Entry not found in tree: " + match.entryName);
+                }
+            }
+        };
+
+        queryField.setOnKeyPressed(e -> {
+            int selected = resultList.getSelectionModel().getSelectedIndex();
+            if (e.getCode() == KeyCode.DOWN && selected + 1 < resultList.getItems().size()) {
+                resultList.getSelectionModel().select(selected + 1);
+                resultList.scrollTo(selected + 1);
+                e.consume();
+            } else if (e.getCode() == KeyCode.UP && selected > 0) {
+                resultList.getSelectionModel().select(selected - 1);
+                resultList.scrollTo(selected - 1);
+                e.consume();
+            } else if (e.getCode() == KeyCode.ENTER) {
+                openSelected.run();
+            } else if (e.getCode() == KeyCode.ESCAPE) {
+                popup.hide();
+            }
+        });
+        resultList.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) {
+                openSelected.run();
+            }
+        });
+
+        popup.show(primaryStage, primaryStage.getX() + Math.max(0, (primaryStage.getWidth() - 616) / 2),
+                primaryStage.getY() + 80);
+        queryField.requestFocus();
+    }
+
+    /**
+     * Selects the tree item for an entry path, materializing and expanding its ancestors.
+     */
+    private TreeItem<String> revealEntry(String entryName) {
+        if (!(treeView.getRoot() instanceof LazyTreeItem)) {
+            return null;
+        }
+        LazyTreeItem root = (LazyTreeItem) treeView.getRoot();
+        int node = root.getIndex().findNode(entryName);
+        if (node < 0) {
+            // Possibly inside a nested JAR a content search opened
+            addOpenedNestedEntries(root, entryName);
+            node = root.getIndex().findNode(entryName);
+        }
+        if (node < 0) {
+            return null;
+        }
+        TreeItem<String> item = root.itemFor(node);
+        if (item != null) {
+            expandPathTo(item);
+            treeView.getSelectionModel().select(item);
+            treeView.scrollTo(treeView.getRow(item));
+        }
+        return item;
     }
 
     private HBox createCodeSearchPanel() {
@@ -1151,6 +1946,8 @@ public class JarViewerFX extends Application {
 
         // Case sensitive checkbox for code search
         CheckBox codeCaseSensitiveCheckBox = new CheckBox("Case Sensitive");
+        CheckBox wholeWordCheckBox = new CheckBox("Whole Word");
+        CheckBox regexCheckBox = new CheckBox("Regex");
 
         // Search button
         Button codeSearchButton = new Button("Search");
@@ -1166,76 +1963,102 @@ public class JarViewerFX extends Application {
         matchCountLabel.setPadding(new Insets(0, 5, 0, 5));
 
         // Store references to current search state
-        final List<Integer> searchMatches = new ArrayList<>();
+        final CodeSearchEngine.Matches[] searchMatches = {CodeSearchEngine.Matches.EMPTY};
         final int[] currentMatchIndex = {-1};
-        final String[] lastSearchTerm = {""};
-        final boolean[] lastCaseSensitive = {false};
+        final CodeSearchEngine.Result[] lastResult = {null}; // Narrowed by the next search while typing
 
-        // Handler for search action
-        Runnable performSearch = () -> {
-            String searchTerm = codeSearchField.getText();
-            if (!searchTerm.isEmpty()) {
-                boolean caseSensitive = codeCaseSensitiveCheckBox.isSelected();
-                searchMatches.clear();
-                currentMatchIndex[0] = -1;
-
-                // Find all occurrences and store their positions
-                String text = codeArea.getText();
-                String searchText = caseSensitive ? text : text.toLowerCase();
-                String searchFor = caseSensitive ? searchTerm : searchTerm.toLowerCase();
-
-                int index = 0;
-                while ((index = searchText.indexOf(searchFor, index)) != -1) {
-                    searchMatches.add(index);
-                    index += searchFor.length();
-                }
+        // Syntax chunks that arrive after a search keep its matches painted
+        asyncHighlighter.setOverlay((spans, from, to) -> searchMatches[0].isEmpty() ? spans
+                : CodeSearchEngine.overlay(spans, searchMatches[0], currentMatchIndex[0], from, to));
 
-                // Apply highlights to all matches
-                highlightCodeSearchMatches(searchTerm, searchMatches, caseSensitive);
+        // Handler for search action: searches in the background and paints near the viewport first
+        Runnable performSearch = () -> {
+            CodeSearchEngine.Query query;
+            try {
+                query = new CodeSearchEngine.Query(codeSearchField.getText(), codeCaseSensitiveCheckBox.isSelected(),
+                        wholeWordCheckBox.isSelected(), regexCheckBox.isSelected());
+            } catch (PatternSyntaxException ex) {
+                statusBar.setText("Invalid regular expression: " + ex.getDescription());
+                return;
+            }
 
-                // Update counter
-                matchCountLabel.setText(searchMatches.isEmpty() ? "0/0" :
-                    "0/" + searchMatches.size());
+            long generation = ++codeSearchGeneration;
+            cancelCodeSearch();
+            String text = getCodeText();
+            CodeSearchEngine.Result previous = lastResult[0];
+            int anchor = codeArea.getSelection().getStart(); // Stay on the current match while it still matches
 
-                // Navigate to first match if any found
-                if (!searchMatches.isEmpty()) {
-                    currentMatchIndex[0] = 0;
-                    navigateToMatch(searchMatches.get(0), searchTerm.length());
-                    matchCountLabel.setText("1/" + searchMatches.size());
+            codeSearchTask = codeSearchExecutor.submit(() -> {
+                CodeSearchEngine.Result result;
+                try {
+                    result = CodeSearchEngine.search(text, query, previous, () -> generation != codeSearchGeneration);
+                } catch (CancellationException e) {
+                    return; // Superseded while still searching
                 }
+                Platform.runLater(() -> {
+                    if (generation != codeSearchGeneration) {
+                        return; // Superseded by a newer query
+                    }
+                    CodeSearchEngine.Matches matches = result.matches;
+                    lastResult[0] = query.isEmpty() ? null : result;
+                    searchMatches[0] = matches;
+                    int current = matches.firstEndingAfter(anchor);
+                    currentMatchIndex[0] = matches.isEmpty() ? -1 : current < matches.size() ? current : 0;
+
+                    // Update counter, navigate, then highlight around the current match before the rest
+                    matchCountLabel.setText(matches.isEmpty() ? "0/0" : (currentMatchIndex[0] + 1) + "/" + matches.size());
+                    if (!matches.isEmpty()) {
+                        navigateToMatch(matches, currentMatchIndex[0], -1);
+                    }
+                    highlightCodeSearchMatches(query, matches, currentMatchIndex, generation);
+                });
+            });
+        };
 
-                // Remember last search settings
-                lastSearchTerm[0] = searchTerm;
-                lastCaseSensitive[0] = caseSensitive;
-            } else {
-                // Clear highlights if search field is empty
-                codeArea.clearStyle(0, codeArea.getLength());
-                matchCountLabel.setText("0/0");
-
-                // Reset last search settings
-                lastSearchTerm[0] = "";
+        // Moves to the next (+1) or previous (-1) match
+        IntConsumer step = direction -> {
+            CodeSearchEngine.Matches matches = searchMatches[0];
+            if (!matches.isEmpty()) {
+                int previous = currentMatchIndex[0];
+                currentMatchIndex[0] = (previous + direction + matches.size()) % matches.size();
+                navigateToMatch(matches, currentMatchIndex[0], previous);
+                matchCountLabel.setText((currentMatchIndex[0] + 1) + "/" + matches.size());
             }
         };
 
-        // Search on Enter key: advance to next/previous if same term/case; otherwise perform a fresh search
+        // Search as you type, once typing pauses; the keystroke itself only restarts the timer
+        EventStreams.merge(
+                EventStreams.invalidationsOf(codeSearchField.textProperty()),
+                EventStreams.invalidationsOf(codeCaseSensitiveCheckBox.selectedProperty()),
+                EventStreams.invalidationsOf(wholeWordCheckBox.selectedProperty()),
+                EventStreams.invalidationsOf(regexCheckBox.selectedProperty()))
+                .successionEnds(Duration.ofMillis(CODE_SEARCH_DEBOUNCE_MILLIS))
+                .subscribe(ignored -> performSearch.run());
+
+        // A new document invalidates the matches
+        codeArea.plainTextChanges().subscribe(change -> {
+            codeSearchGeneration++;
+            cancelCodeSearch();
+            searchMatches[0] = CodeSearchEngine.Matches.EMPTY;
+            currentMatchIndex[0] = -1;
+            lastResult[0] = null;
+            matchCountLabel.setText("0/0");
+        });
+
+        // Search on Enter key: advance to next/previous if same query; otherwise perform a fresh search
         codeSearchField.setOnKeyPressed(e -> {
             if (e.getCode() == KeyCode.ENTER) {
-                String term = codeSearchField.getText();
-                boolean cs = codeCaseSensitiveCheckBox.isSelected();
-                if (!term.isEmpty() &&
-                        term.equals(lastSearchTerm[0]) &&
-                        cs == lastCaseSensitive[0] &&
-                        !searchMatches.isEmpty()) {
+                CodeSearchEngine.Result last = lastResult[0];
+                if (last != null &&
+                        last.query.text.equals(codeSearchField.getText()) &&
+                        last.query.caseSensitive == codeCaseSensitiveCheckBox.isSelected() &&
+                        last.query.wholeWord == wholeWordCheckBox.isSelected() &&
+                        last.query.regex == regexCheckBox.isSelected() &&
+                        !searchMatches[0].isEmpty()) {
                     // Navigate to next/previous match
-                    if (e.isShiftDown()) {
-                        currentMatchIndex[0] = (currentMatchIndex[0] - 1 + searchMatches.size()) % searchMatches.size();
-                    } else {
-                        currentMatchIndex[0] = (currentMatchIndex[0] + 1) % searchMatches.size();
-                    }
-                    navigateToMatch(searchMatches.get(currentMatchIndex[0]), term.length());
-                    matchCountLabel.setText((currentMatchIndex[0] + 1) + "/" + searchMatches.size());
+                    step.accept(e.isShiftDown() ? -1 : 1);
                 } else {
-                    // New term or case toggle: recompute
+                    // New term or options: recompute
                     performSearch.run();
                 }
             }
@@ -1244,28 +2067,16 @@ public class JarViewerFX extends Application {
         // Search on button click (recompute)
         codeSearchButton.setOnAction(e -> performSearch.run());
 
-        // Next match button handler
-        nextMatchButton.setOnAction(e -> {
-            if (!searchMatches.isEmpty()) {
-                currentMatchIndex[0] = (currentMatchIndex[0] + 1) % searchMatches.size();
-                navigateToMatch(searchMatches.get(currentMatchIndex[0]), codeSearchField.getText().length());
-                matchCountLabel.setText((currentMatchIndex[0] + 1) + "/" + searchMatches.size());
-            }
-        });
-
-        // Previous match button handler
-        prevMatchButton.setOnAction(e -> {
-            if (!searchMatches.isEmpty()) {
-                currentMatchIndex[0] = (currentMatchIndex[0] - 1 + searchMatches.size()) % searchMatches.size();
-                navigateToMatch(searchMatches.get(currentMatchIndex[0]), codeSearchField.getText().length());
-                matchCountLabel.setText((currentMatchIndex[0] + 1) + "/" + searchMatches.size());
-            }
-        });
+        // Next/previous match button handlers
+        nextMatchButton.setOnAction(e -> step.accept(1));
+        prevMatchButton.setOnAction(e -> step.accept(-1));
 
         // Organize components in the search panel
         codeSearchPanel.getChildren().addAll(
             codeSearchField,
             codeCaseSensitiveCheckBox,
+            wholeWordCheckBox,
+            regexCheckBox,
             codeSearchButton,
             new Separator(Orientation.VERTICAL),
             prevMatchButton,
@@ -1276,32 +2087,106 @@ public class JarViewerFX extends Application {
         return codeSearchPanel;
     }
 
-    private void navigateToMatch(int position, int length) {
+    /**
+     * Drops the queued or running code search; a running one notices the bumped
+     * generation and stops at its next check.
+     */
+    private void cancelCodeSearch() {
+        if (codeSearchTask != null) {
+            codeSearchTask.cancel(false);
+            codeSearchTask = null;
+        }
+    }
+
+    private void navigateToMatch(CodeSearchEngine.Matches matches, int index, int previousIndex) {
+        int position = matches.start(index);
+        int end = matches.end(index);
+
         // Move caret to position and select the match
         codeArea.moveTo(position);
         codeArea.requestFollowCaret();
-        codeArea.selectRange(position, position + length);
+        codeArea.selectRange(position, end);
 
-        // Apply a stronger highlight to the current selection using a style class
-        codeArea.setStyleClass(position, position + length, "search-highlight-current");
+        // Only the old and the new current match change style
+        if (previousIndex >= 0 && previousIndex < matches.size()) {
+            paintCodeSearchMatches(matches, index, matches.start(previousIndex), matches.end(previousIndex));
+        }
+        paintCodeSearchMatches(matches, index, position, end);
     }
 
-    private void highlightCodeSearchMatches(String searchTerm, List<Integer> matches, boolean caseSensitive) {
-        // Clear previous highlights by reapplying existing styles (syntax highlighting)
-        StyleSpans<Collection<String>> currentStyles = codeArea.getStyleSpans(0, codeArea.getLength());
-        codeArea.setStyleSpans(0, currentStyles);
+    /**
+     * Paints the matches: first the paragraphs around the current match (or the
+     * viewport), then the rest of the document one chunk per FX event so typing
+     * stays responsive. Chunks read the current match when they run, and stop
+     * once a newer search has started.
+     */
+    private void highlightCodeSearchMatches(CodeSearchEngine.Query query, CodeSearchEngine.Matches matches,
+                                            int[] currentMatchIndex, long generation) {
+        int length = codeArea.getLength();
+        int paragraph = currentMatchIndex[0] >= 0
+                ? codeArea.offsetToPosition(matches.start(currentMatchIndex[0]), Bias.Forward).getMajor()
+                : firstVisibleParagraph();
+        int firstParagraph = Math.max(0, paragraph - CODE_SEARCH_WINDOW_PARAGRAPHS);
+        int lastParagraph = Math.min(codeArea.getParagraphs().size() - 1, paragraph + CODE_SEARCH_WINDOW_PARAGRAPHS);
+        int windowStart = codeArea.getAbsolutePosition(firstParagraph, 0);
+        int windowEnd = codeArea.getAbsolutePosition(lastParagraph, codeArea.getParagraphLength(lastParagraph));
+        paintCodeSearchMatches(matches, currentMatchIndex[0], windowStart, windowEnd);
+
+        if (!query.isEmpty()) {
+            statusBar.setText("Found " + matches.size() + " matches for '" + query.text + "'");
+        }
+        paintCodeSearchChunks(matches, currentMatchIndex, generation, windowEnd, length, windowStart);
+    }
 
-        // If the search term is empty, return
-        if (searchTerm.isEmpty()) {
+    /**
+     * Paints [from, to) in chunks, then continues with [0, wrapEnd).
+     */
+    private void paintCodeSearchChunks(CodeSearchEngine.Matches matches, int[] currentMatchIndex, long generation,
+                                       int from, int to, int wrapEnd) {
+        if (from >= to) {
+            if (wrapEnd > 0) {
+                paintCodeSearchChunks(matches, currentMatchIndex, generation, 0, wrapEnd, 0);
+            }
             return;
         }
+        Platform.runLater(() -> {
+            if (generation != codeSearchGeneration) {
+                return;
+            }
+            int end = Math.min(to, from + CODE_SEARCH_PAINT_CHUNK);
+            paintCodeSearchMatches(matches, currentMatchIndex[0], from, end);
+            paintCodeSearchChunks(matches, currentMatchIndex, generation, end, to, wrapEnd);
+        });
+    }
 
-        // Apply a highlight style class to all matches
-        for (Integer position : matches) {
-            codeArea.setStyleClass(position, position + searchTerm.length(), "search-highlight");
+    private int firstVisibleParagraph() {
+        try {
+            return codeArea.getVisibleParagraphs().isEmpty() ? 0 : codeArea.visibleParToAllParIndex(0);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return 0;
         }
+    }
 
-        statusBar.setText("Found " + matches.size() + " matches for '" + searchTerm + "'");
+    /**
+     * Re-styles [from, to) as its syntax styles with the matches overlaid.
+     */
+    private void paintCodeSearchMatches(CodeSearchEngine.Matches matches, int current, int from, int to) {
+        if (to <= from) {
+            return;
+        }
+        StyleSpans<Collection<String>> base = codeArea.getStyleSpans(from, to);
+        codeArea.setStyleSpans(from, CodeSearchEngine.overlay(base, matches, current, from, to));
+    }
+
+    /**
+     * Text of the code area. The area is read-only, so the string it was filled
+     * with is reused instead of rebuilding it from the paragraphs.
+     */
+    private String getCodeText() {
+        if (codeText.length() != codeArea.getLength()) {
+            codeText = codeArea.getText();
+        }
+        return codeText;
     }
 
     private void setupDragAndDrop(BorderPane root) {
@@ -1360,38 +2245,6 @@ public class JarViewerFX extends Application {
         return path.toString();
     }
 
-    private void addTreePath(TreeItem<String> parent, String path) {
-        String[] parts = path.split("/");
-        TreeItem<String> currentItem = parent;
-
-        for (String part : parts) {
-            if (part.isEmpty()) continue; // Skip empty parts (in case of leading slash)
-
-            // Check if the child already exists
-            Optional<TreeItem<String>> existingChild = currentItem.getChildren().stream()
-                    .filter(child -> child.getValue().equals(part))
-                    .findFirst();
-
-            if (existingChild.isPresent()) {
-                // Child exists, move to this child
-                currentItem = existingChild.get();
-            } else {
-                // Child doesn't exist, create a new one
-                TreeItem<String> newItem = new TreeItem<>(part);
-                currentItem.getChildren().add(newItem);
-                currentItem = newItem;
-            }
-        }
-    }
-
-    private TreeItem<String> createTreeItem(String name, boolean isRoot) {
-        TreeItem<String> item = new TreeItem<>(name);
-        if (!isRoot) {
-            item.setExpanded(true);
-        }
-        return item;
-    }
-
     private void showAlert(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
@@ -1430,7 +2283,7 @@ public class JarViewerFX extends Application {
         fileContentArea.setStyle("-fx-font-family: 'Consolas', 'Monaco', monospace; -fx-font-size: " + newSize + "px;");
     }
 
-    private String getStackTraceAsString(Exception ex) {
+    private String getStackTraceAsString(Throwable ex) {
         StringWriter sw = new StringWriter();
         PrintWriter pw = new PrintWriter(sw);
         ex.printStackTrace(pw);
@@ -1446,6 +2299,9 @@ public class JarViewerFX extends Application {
         System.out.println(theme);
         boolean isNight = "night".equalsIgnoreCase(theme);
         boolean isDark = isNight || "dark".equalsIgnoreCase(theme);
+        if (hexViewer != null) {
+            hexViewer.setDark(isDark);
+        }
         if (isDark) {
             sheet = "/dark.css";
         }
@@ -0,0 +1,188 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * Single-pass Java lexer that emits highlighting spans directly.
+ *
+ * <p>Characters are classified through a lookup table and keywords are found in
+ * a {@link KeywordTable} probed in place, so no substrings or matcher groups are
+ * created per token. Handles line and block comments, string and char literals,
+ * text blocks, numbers, annotations and the contextual keywords ({@code record},
+ * {@code var}, {@code yield}, ...). Contextual keywords are valid identifiers
+ * too, so they are only highlighted where the surrounding tokens make them a
+ * keyword.
+ */
+public class JavaHighlighter implements SyntaxHighlighter {
+
+    private static final KeywordTable KEYWORDS = new KeywordTable(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while",
+            // Literals
+            "true", "false", "null"
+    );
+
+    private static final KeywordTable CONTEXTUAL_KEYWORDS = new KeywordTable(
+            "record", "var", "yield", "sealed", "permits", "non-sealed"
+    );
+
+    private static final byte IDENT_START = 1;
+    private static final byte IDENT_PART = 2;
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (Character.isJavaIdentifierStart(c)) {
+                CHAR_CLASS[c] |= IDENT_START;
+            }
+            if (Character.isJavaIdentifierPart(c) && !Character.isIdentifierIgnorable(c)) {
+                CHAR_CLASS[c] |= IDENT_PART;
+            }
+        }
+    }
+
+    @Override
+    public StyleSpans<Collection<String>> computeHighlighting(String text) {
+        SpanBuilder spans = new SpanBuilder();
+        int length = text.length();
+        int pos = 0;
+
+        while (pos < length) {
+            char c = text.charAt(pos);
+            int start = pos;
+
+            if (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '/') {
+                pos = SpanBuilder.lineEnd(text, pos + 2);
+                spans.add(start, pos, SpanBuilder.COMMENT);
+            } else if (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '*') {
+                pos = SpanBuilder.blockCommentEnd(text, pos + 2);
+                spans.add(start, pos, SpanBuilder.COMMENT);
+            } else if (c == '"') {
+                pos = text.startsWith("\"\"\"", pos) ? textBlockEnd(text, pos + 3)
+                        : SpanBuilder.quotedEnd(text, pos + 1, '"', false);
+                spans.add(start, pos, SpanBuilder.STRING);
+            } else if (c == '\'') {
+                pos = SpanBuilder.quotedEnd(text, pos + 1, '\'', false);
+                spans.add(start, pos, SpanBuilder.STRING);
+            } else if (SpanBuilder.isDigit(c) || (c == '.' && pos + 1 < length && SpanBuilder.isDigit(text.charAt(pos + 1)))) {
+                pos = numberEnd(text, pos);
+                spans.add(start, pos, SpanBuilder.NUMBER);
+            } else if (c == '@' && pos + 1 < length && isIdentifierStart(text.charAt(pos + 1))
+                    && !text.startsWith("interface", pos + 1)) {
+                pos = identifierEnd(text, pos + 1);
+                spans.add(start, pos, SpanBuilder.ANNOTATION);
+            } else if (isIdentifierStart(c)) {
+                pos = identifierEnd(text, pos);
+                // "non-sealed" is the only keyword with a hyphen
+                if (pos - start == 3 && text.startsWith("non-sealed", start)) {
+                    pos += 7;
+                }
+                if (KEYWORDS.contains(text, start, pos)
+                        || (CONTEXTUAL_KEYWORDS.contains(text, start, pos) && isKeywordPosition(text, start, pos))) {
+                    spans.add(start, pos, SpanBuilder.KEYWORD);
+                }
+            } else {
+                pos++;
+            }
+        }
+
+        return spans.create(length);
+    }
+
+    /**
+     * Decides from the neighbouring tokens whether a contextual keyword is used
+     * as a keyword, e.g. {@code var x} but not {@code var = 1} or {@code this.var}.
+     */
+    private static boolean isKeywordPosition(String text, int start, int end) {
+        int before = start - 1;
+        while (before >= 0 && Character.isWhitespace(text.charAt(before))) {
+            before--;
+        }
+        if (before >= 0 && text.charAt(before) == '.') {
+            return false; // Member access
+        }
+        int next = SpanBuilder.skipWhitespace(text, end);
+        if (next >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(next);
+        switch (text.charAt(start)) {
+            case 'y': // yield <expression>;
+                if (c == '-' || c == '+') {
+                    // yield -x, but not yield -= 1 or yield++
+                    return next + 1 < text.length() && text.charAt(next + 1) != '=' && text.charAt(next + 1) != c;
+                }
+                return isIdentifierStart(c) || SpanBuilder.isDigit(c) || c == '"' || c == '\'' || c == '(' || c == '!' || c == '~';
+            case 'r': { // record Name( or record Name<
+                if (!isIdentifierStart(c)) {
+                    return false;
+                }
+                int after = SpanBuilder.skipWhitespace(text, identifierEnd(text, next));
+                return after < text.length() && (text.charAt(after) == '(' || text.charAt(after) == '<');
+            }
+            default: // var name, sealed/non-sealed class, permits Type
+                return isIdentifierStart(c) && !text.startsWith("instanceof", next);
+        }
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return c < 128 ? (CHAR_CLASS[c] & IDENT_START) != 0 : Character.isJavaIdentifierStart(c);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return c < 128 ? (CHAR_CLASS[c] & IDENT_PART) != 0 : Character.isJavaIdentifierPart(c);
+    }
+
+    private static int identifierEnd(String text, int pos) {
+        int length = text.length();
+        while (pos < length && isIdentifierPart(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int textBlockEnd(String text, int pos) {
+        int end = pos;
+        while ((end = text.indexOf("\"\"\"", end)) >= 0) {
+            // Skip quotes escaped with a backslash
+            int backslashes = 0;
+            while (end - backslashes - 1 >= pos && text.charAt(end - backslashes - 1) == '\\') {
+                backslashes++;
+            }
+            if (backslashes % 2 == 0) {
+                return end + 3;
+            }
+            end++;
+        }
+        return text.length();
+    }
+
+    /**
+     * Covers decimal, hex, octal and binary literals with underscores, fractions,
+     * exponents and type suffixes.
+     */
+    private static int numberEnd(String text, int pos) {
+        int start = pos;
+        boolean hex = text.startsWith("0x", pos) || text.startsWith("0X", pos);
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (isIdentifierPart(c) || c == '.') {
+                pos++;
+            } else if ((c == '+' || c == '-') && pos > start && isExponent(text.charAt(pos - 1), hex)) {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    private static boolean isExponent(char c, boolean hex) {
+        // 'e' is a digit in hex literals, which use 'p' for their exponent instead
+        return hex ? c == 'p' || c == 'P' : c == 'e' || c == 'E';
+    }
+}
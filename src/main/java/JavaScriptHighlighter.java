@@ -0,0 +1,185 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Single-pass JavaScript highlighter: keywords, strings, template literals,
+ * regular expression literals, numbers and comments.
+ *
+ * <p>Whether a '/' starts a regex or is a division is decided from the previous
+ * significant token, like a JS tokenizer does. Template substitutions
+ * ({@code ${...}}) are lexed as code, template literals nested in them included:
+ * the brace depth at each open substitution is kept on a stack, so the '}' that
+ * closes it resumes the enclosing template.
+ */
+public class JavaScriptHighlighter implements SyntaxHighlighter {
+
+    private static final KeywordTable KEYWORDS = new KeywordTable(
+            "async", "await", "break", "case", "catch", "class", "const", "continue", "debugger", "default",
+            "delete", "do", "else", "export", "extends", "false", "finally", "for", "function", "if", "import",
+            "in", "instanceof", "let", "new", "null", "of", "return", "static", "super", "switch", "this",
+            "throw", "true", "try", "typeof", "undefined", "var", "void", "while", "with", "yield"
+    );
+
+    // Keywords after which a '/' starts a regex rather than a division
+    private static final KeywordTable REGEX_PREFIX_KEYWORDS = new KeywordTable(
+            "return", "typeof", "instanceof", "in", "of", "new", "delete", "void", "throw", "case", "do", "else",
+            "yield", "await"
+    );
+
+    @Override
+    public StyleSpans<Collection<String>> computeHighlighting(String text) {
+        SpanBuilder spans = new SpanBuilder();
+        int length = text.length();
+        boolean regexAllowed = true; // True at the start of an expression
+        int braceDepth = 0;
+        int[] substitutions = new int[8]; // Brace depth at each open template substitution, innermost last
+        int openSubstitutions = 0;
+        int pos = 0;
+
+        while (pos < length) {
+            char c = text.charAt(pos);
+            int start = pos;
+
+            if (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '/') {
+                pos = SpanBuilder.lineEnd(text, pos + 2);
+                spans.add(start, pos, SpanBuilder.COMMENT);
+            } else if (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '*') {
+                pos = SpanBuilder.blockCommentEnd(text, pos + 2);
+                spans.add(start, pos, SpanBuilder.COMMENT);
+            } else if (c == '"' || c == '\'') {
+                pos = SpanBuilder.quotedEnd(text, pos + 1, c, false);
+                spans.add(start, pos, SpanBuilder.STRING);
+                regexAllowed = false;
+            } else if (c == '`' || (c == '}' && openSubstitutions > 0 && substitutions[openSubstitutions - 1] == braceDepth)) {
+                if (c == '}') {
+                    openSubstitutions--; // The substitution ends and the template text resumes
+                }
+                pos = templateEnd(text, pos + 1);
+                spans.add(start, pos, SpanBuilder.STRING);
+                if (isSubstitutionStart(text, pos)) {
+                    if (openSubstitutions == substitutions.length) {
+                        substitutions = Arrays.copyOf(substitutions, openSubstitutions * 2);
+                    }
+                    substitutions[openSubstitutions++] = braceDepth;
+                    regexAllowed = true;
+                } else {
+                    regexAllowed = false;
+                }
+            } else if (c == '/' && regexAllowed) {
+                pos = regexEnd(text, pos + 1);
+                spans.add(start, pos, SpanBuilder.STRING);
+                regexAllowed = false;
+            } else if (SpanBuilder.isDigit(c) || (c == '.' && pos + 1 < length && SpanBuilder.isDigit(text.charAt(pos + 1)))) {
+                pos = numberEnd(text, pos);
+                spans.add(start, pos, SpanBuilder.NUMBER);
+                regexAllowed = false;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                pos = identifierEnd(text, pos + 1);
+                // Property names (obj.if) are not keywords
+                boolean member = start > 0 && text.charAt(start - 1) == '.';
+                if (!member && KEYWORDS.contains(text, start, pos)) {
+                    spans.add(start, pos, SpanBuilder.KEYWORD);
+                    regexAllowed = REGEX_PREFIX_KEYWORDS.contains(text, start, pos);
+                } else {
+                    regexAllowed = false;
+                }
+            } else {
+                if (c == '{') {
+                    braceDepth++;
+                } else if (c == '}') {
+                    braceDepth--;
+                }
+                if (!Character.isWhitespace(c)) {
+                    // After ')' ']' '}' an expression has ended; after other punctuation one starts
+                    regexAllowed = c != ')' && c != ']' && c != '}';
+                }
+                pos++;
+            }
+        }
+
+        return spans.create(length);
+    }
+
+    /**
+     * End of template text starting at {@code pos}: just after the closing '`', or
+     * just after the "${" that opens a substitution. Unterminated templates run to the end.
+     */
+    private static int templateEnd(String text, int pos) {
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == '`') {
+                return pos + 1;
+            } else if (c == '$' && pos + 1 < length && text.charAt(pos + 1) == '{') {
+                return pos + 2;
+            } else {
+                pos++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * True if template text ending at {@code end} (from {@link #templateEnd}) stopped at a substitution.
+     */
+    private static boolean isSubstitutionStart(String text, int end) {
+        return end >= 2 && end <= text.length() && text.charAt(end - 1) == '{' && text.charAt(end - 2) == '$';
+    }
+
+    /**
+     * End of a regex literal whose body starts at {@code pos}, including its flags.
+     * A '/' inside a character class doesn't end the literal.
+     */
+    private static int regexEnd(String text, int pos) {
+        int length = text.length();
+        boolean inClass = false;
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (c == '\n') {
+                return pos;
+            }
+            pos++;
+            if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass) {
+                return identifierEnd(text, pos);
+            }
+        }
+        return length;
+    }
+
+    private static int numberEnd(String text, int pos) {
+        // 'e' is a digit in hex literals, so only decimal literals have a signed exponent
+        boolean hex = text.startsWith("0x", pos) || text.startsWith("0X", pos);
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (Character.isLetterOrDigit(c) || c == '.' || c == '_') {
+                pos++;
+            } else if ((c == '+' || c == '-') && !hex && (text.charAt(pos - 1) == 'e' || text.charAt(pos - 1) == 'E')) {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    private static int identifierEnd(String text, int pos) {
+        int length = text.length();
+        while (pos < length && Character.isJavaIdentifierPart(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,56 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * Single-pass JSON highlighter. Object keys are told apart from string values
+ * by the ':' that follows them.
+ */
+public class JsonHighlighter implements SyntaxHighlighter {
+
+    @Override
+    public StyleSpans<Collection<String>> computeHighlighting(String text) {
+        SpanBuilder spans = new SpanBuilder();
+        int length = text.length();
+        int pos = 0;
+
+        while (pos < length) {
+            char c = text.charAt(pos);
+            int start = pos;
+
+            if (c == '"') {
+                pos = SpanBuilder.quotedEnd(text, pos + 1, '"', false);
+                int next = SpanBuilder.skipWhitespace(text, pos);
+                boolean key = next < length && text.charAt(next) == ':';
+                spans.add(start, pos, key ? SpanBuilder.ATTRIBUTE : SpanBuilder.STRING);
+            } else if (c == '-' || SpanBuilder.isDigit(c)) {
+                pos++;
+                while (pos < length && isNumberChar(text.charAt(pos))) {
+                    pos++;
+                }
+                spans.add(start, pos, SpanBuilder.NUMBER);
+            } else if (Character.isLetter(c)) {
+                // true, false, null (and anything invalid, which is harmless to color)
+                while (pos < length && Character.isLetter(text.charAt(pos))) {
+                    pos++;
+                }
+                spans.add(start, pos, SpanBuilder.KEYWORD);
+            } else if (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '/') {
+                // Comments aren't JSON, but config files often have them anyway
+                pos = SpanBuilder.lineEnd(text, pos + 2);
+                spans.add(start, pos, SpanBuilder.COMMENT);
+            } else if (c == '/' && pos + 1 < length && text.charAt(pos + 1) == '*') {
+                pos = SpanBuilder.blockCommentEnd(text, pos + 2);
+                spans.add(start, pos, SpanBuilder.COMMENT);
+            } else {
+                pos++;
+            }
+        }
+
+        return spans.create(length);
+    }
+
+    private static boolean isNumberChar(char c) {
+        return SpanBuilder.isDigit(c) || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+    }
+}
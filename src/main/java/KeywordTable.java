@@ -0,0 +1,49 @@
+/**
+ * Open-addressing set of keywords that can be probed with a region of a larger
+ * text, so lexers can test identifiers without creating substrings.
+ */
+final class KeywordTable {
+
+    private final String[] table;
+    private final int minLength;
+    private final int maxLength;
+
+    KeywordTable(String... keywords) {
+        int size = Integer.highestOneBit(Math.max(keywords.length, 1) * 4);
+        table = new String[size];
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (String keyword : keywords) {
+            int slot = keyword.hashCode() & (size - 1);
+            while (table[slot] != null) {
+                slot = (slot + 1) & (size - 1);
+            }
+            table[slot] = keyword;
+            min = Math.min(min, keyword.length());
+            max = Math.max(max, keyword.length());
+        }
+        minLength = min;
+        maxLength = max;
+    }
+
+    boolean contains(String text, int start, int end) {
+        int length = end - start;
+        if (length < minLength || length > maxLength) {
+            return false;
+        }
+        // Same hash as String.hashCode(), computed in place
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int slot = hash & (table.length - 1);
+        String keyword;
+        while ((keyword = table[slot]) != null) {
+            if (keyword.length() == length && text.regionMatches(start, keyword, 0, length)) {
+                return true;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,154 @@
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Package explorer node backed by a {@link JarEntryIndex}. Children are only
+ * turned into {@code TreeItem}s the first time they are asked for (typically on
+ * expand), so unopened packages cost nothing beyond the index.
+ *
+ * <p>Nested archives (e.g. {@code BOOT-INF/lib/*.jar}) show as expandable; the
+ * first expand hands the item to the tree's archive loader, which adds the
+ * nested entries to the index below it and then calls {@link #archiveLoaded()}.
+ */
+public class LazyTreeItem extends TreeItem<String> {
+
+    private final JarEntryIndex index;
+    private final int node;
+    private final Map<Integer, LazyTreeItem> loadedItems; // Shared by the whole tree: node -> item with loaded children
+    private boolean childrenLoaded;
+    private int loadedUpTo; // Index size when children were loaded; newer nodes arrive via nodesAdded
+    private final Consumer<LazyTreeItem> archiveLoader; // Shared by the whole tree, may be null
+    private final boolean nestedArchive;
+    private boolean archiveRequested;
+    private boolean archiveLoaded;
+
+    private LazyTreeItem(JarEntryIndex index, int node, String name, Map<Integer, LazyTreeItem> loadedItems,
+                         Consumer<LazyTreeItem> archiveLoader) {
+        super(name);
+        this.index = index;
+        this.node = node;
+        this.loadedItems = loadedItems;
+        this.archiveLoader = archiveLoader;
+        this.nestedArchive = archiveLoader != null && node != JarEntryIndex.ROOT
+                && !index.hasChildren(node) && NestedArchives.isArchiveName(name);
+        if (nestedArchive) {
+            expandedProperty().addListener((obs, wasExpanded, expanded) -> {
+                if (expanded && !archiveRequested) {
+                    archiveRequested = true;
+                    archiveLoader.accept(this);
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates the root item of a tree over the given index.
+     */
+    public static LazyTreeItem createRoot(JarEntryIndex index, String name) {
+        return createRoot(index, name, null);
+    }
+
+    /**
+     * Creates the root item of a tree whose nested archives are opened by {@code archiveLoader}.
+     */
+    public static LazyTreeItem createRoot(JarEntryIndex index, String name, Consumer<LazyTreeItem> archiveLoader) {
+        return new LazyTreeItem(index, JarEntryIndex.ROOT, name, new HashMap<>(), archiveLoader);
+    }
+
+    public JarEntryIndex getIndex() {
+        return index;
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    public boolean isChildrenLoaded() {
+        return childrenLoaded;
+    }
+
+    public boolean isNestedArchive() {
+        return nestedArchive;
+    }
+
+    /**
+     * Marks a nested archive as loaded, whether or not it had any entries. Its
+     * entries are expected to have been added through {@link #nodesAdded}.
+     */
+    public void archiveLoaded() {
+        archiveRequested = true;
+        archiveLoaded = true;
+    }
+
+    @Override
+    public boolean isLeaf() {
+        // A nested archive stays expandable until it has been opened
+        return !index.hasChildren(node) && (!nestedArchive || archiveLoaded);
+    }
+
+    @Override
+    public ObservableList<TreeItem<String>> getChildren() {
+        if (!childrenLoaded) {
+            childrenLoaded = true;
+            loadedUpTo = index.size();
+            loadedItems.put(node, this);
+            List<TreeItem<String>> children = new ArrayList<>();
+            for (int child : index.getChildren(node)) {
+                children.add(new LazyTreeItem(index, child, index.getName(child), loadedItems, archiveLoader));
+            }
+            super.getChildren().setAll(children);
+        }
+        return super.getChildren();
+    }
+
+    /**
+     * Adds items for nodes that were added to the index after their parent's
+     * children were loaded. Parents that were never loaded pick them up on demand.
+     * Call on the root.
+     */
+    public void nodesAdded(List<Integer> nodes) {
+        for (int added : nodes) {
+            LazyTreeItem parentItem = loadedItems.get(index.getParent(added));
+            if (parentItem != null && added >= parentItem.loadedUpTo) {
+                parentItem.getChildren().add(new LazyTreeItem(index, added, index.getName(added), loadedItems, archiveLoader));
+            }
+        }
+    }
+
+    /**
+     * Returns the item for a node, loading the children of each ancestor on the
+     * way down. Call on the root.
+     */
+    public TreeItem<String> itemFor(int target) {
+        if (target == node) {
+            return this;
+        }
+        // Collect the ancestors from the target up to (excluding) this node
+        List<Integer> path = new ArrayList<>();
+        for (int current = target; current != node; current = index.getParent(current)) {
+            path.add(current);
+        }
+        TreeItem<String> item = this;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            int wanted = path.get(i);
+            TreeItem<String> next = null;
+            for (TreeItem<String> child : item.getChildren()) {
+                if (((LazyTreeItem) child).node == wanted) {
+                    next = child;
+                    break;
+                }
+            }
+            if (next == null) {
+                return null;
+            }
+            item = next;
+        }
+        return item;
+    }
+}
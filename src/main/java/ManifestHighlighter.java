@@ -0,0 +1,36 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * Highlighter for JAR manifests and signature files: {@code Name: value} headers,
+ * where a line starting with a space continues the previous value.
+ */
+public class ManifestHighlighter implements SyntaxHighlighter {
+
+    @Override
+    public StyleSpans<Collection<String>> computeHighlighting(String text) {
+        SpanBuilder spans = new SpanBuilder();
+        int length = text.length();
+        int pos = 0;
+
+        while (pos < length) {
+            int end = SpanBuilder.lineEnd(text, pos);
+            if (text.charAt(pos) == ' ') {
+                spans.add(pos + 1, end, SpanBuilder.ATTRIBUTE_VALUE); // Continuation line
+            } else {
+                int colon = pos;
+                while (colon < end && text.charAt(colon) != ':') {
+                    colon++;
+                }
+                if (colon < end) {
+                    spans.add(pos, colon, SpanBuilder.ATTRIBUTE);
+                    spans.add(colon + 1, end, SpanBuilder.ATTRIBUTE_VALUE);
+                }
+            }
+            pos = end + 1;
+        }
+
+        return spans.create(length);
+    }
+}
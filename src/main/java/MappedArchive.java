@@ -0,0 +1,557 @@
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.jar.JarEntry;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * {@link Archive} that memory-maps the file and reads the ZIP central directory
+ * in place, for JARs too large to open comfortably as a {@link java.util.jar.JarFile}.
+ *
+ * <p>Opening only locates the central directory and records where each record
+ * starts plus a hash table over the raw name bytes, i.e. two int arrays; names
+ * and {@link JarEntry} objects are created when asked for. Stored entries are
+ * served as read-only slices of the mapping, deflated ones are inflated straight
+ * from it. Files over 2 GB are mapped as several overlapping segments, and ZIP64
+ * archives are supported.
+ *
+ * <p>Unlike {@code JarFile}, signatures of signed JARs are not verified. The
+ * mapping itself is released by the garbage collector after {@link #close()}.
+ */
+public class MappedArchive implements Archive {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+    // Consecutive segments overlap by this much, so headers never straddle two of them
+    private static final int SEGMENT_OVERLAP = 256 * 1024;
+
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int LOC_LENGTH = 30;
+    private static final int CEN_LENGTH = 46;
+    private static final int END_LENGTH = 22;
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final String name;
+    private final FileChannel channel; // Null when reading from a buffer
+    private final ByteBuffer[] segments;
+    private final long length;
+    private final long base; // Bytes in front of the archive, e.g. a launcher script
+    private final ByteBuffer cen; // Little-endian central directory
+    private final int[] records; // Offset of each entry's record within cen
+    private final int[] table; // Open addressing over the name bytes: entry index + 1, 0 when free
+    private volatile boolean closed;
+
+    public MappedArchive(File file) throws IOException {
+        this(file.getPath(), FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads a ZIP held in a buffer, e.g. a JAR nested in another archive. A
+     * stored nested JAR can be passed as a slice of the outer mapping.
+     */
+    MappedArchive(String name, ByteBuffer data) throws IOException {
+        this(name, null, new ByteBuffer[] { checkSize(data).slice() });
+    }
+
+    private static ByteBuffer checkSize(ByteBuffer data) throws ZipException {
+        if (data.remaining() > SEGMENT_SIZE) {
+            throw new ZipException("Nested archive too large: " + data.remaining() + " bytes");
+        }
+        return data;
+    }
+
+    private MappedArchive(String name, FileChannel channel) throws IOException {
+        this(name, channel, map(channel));
+    }
+
+    private MappedArchive(String name, FileChannel channel, ByteBuffer[] segments) throws IOException {
+        this.name = name;
+        this.channel = channel;
+        this.segments = segments;
+        this.length = (segments.length - 1) * SEGMENT_SIZE + segments[segments.length - 1].capacity();
+        try {
+            // End of central directory: the last record whose comment reaches the end of the file
+            int tailLength = (int) Math.min(length, END_LENGTH + 0xFFFF);
+            ByteBuffer tail = view(length - tailLength, tailLength).order(ByteOrder.LITTLE_ENDIAN);
+            int end = tailLength - END_LENGTH;
+            while (end >= 0 && (tail.getInt(end) != END_SIG
+                    || end + END_LENGTH + Short.toUnsignedInt(tail.getShort(end + 20)) > tailLength)) {
+                end--;
+            }
+            if (end < 0) {
+                throw new ZipException("zip END header not found");
+            }
+            long endPosition = length - tailLength + end;
+            long cenSize = Integer.toUnsignedLong(tail.getInt(end + 12));
+            long cenOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+
+            if (cenSize == ZIP64_MAGIC || cenOffset == ZIP64_MAGIC || Short.toUnsignedInt(tail.getShort(end + 10)) == 0xFFFF) {
+                long locatorPosition = endPosition - ZIP64_LOCATOR_LENGTH;
+                if (locatorPosition >= 0) {
+                    ByteBuffer locator = view(locatorPosition, ZIP64_LOCATOR_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+                    if (locator.getInt(0) == ZIP64_LOCATOR_SIG) {
+                        long zip64EndPosition = locator.getLong(8);
+                        ByteBuffer zip64End = view(zip64EndPosition, 56).order(ByteOrder.LITTLE_ENDIAN);
+                        if (zip64End.getInt(0) != ZIP64_END_SIG) {
+                            throw new ZipException("Invalid ZIP64 end header");
+                        }
+                        cenSize = zip64End.getLong(40);
+                        cenOffset = zip64End.getLong(48);
+                        endPosition = zip64EndPosition;
+                    }
+                }
+            }
+            if (cenSize > endPosition) {
+                throw new ZipException("Invalid central directory size");
+            }
+            this.base = endPosition - cenSize - cenOffset;
+            this.cen = view(endPosition - cenSize, cenSize).order(ByteOrder.LITTLE_ENDIAN);
+            this.records = readRecords(cen);
+            this.table = buildTable();
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Maps the whole file, closing the channel if that fails.
+     */
+    private static ByteBuffer[] map(FileChannel channel) throws IOException {
+        try {
+            long length = channel.size();
+            if (length == 0) {
+                throw new ZipException("zip file is empty");
+            }
+            ByteBuffer[] segments = new ByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(length - start, SEGMENT_SIZE + SEGMENT_OVERLAP));
+            }
+            return segments;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int[] readRecords(ByteBuffer cen) throws ZipException {
+        int[] records = new int[Math.max(16, cen.limit() / 128)];
+        int count = 0;
+        int position = 0;
+        while (position + CEN_LENGTH <= cen.limit()) {
+            if (cen.getInt(position) != CEN_SIG) {
+                throw new ZipException("Invalid central directory header");
+            }
+            if (count == records.length) {
+                records = Arrays.copyOf(records, count * 2);
+            }
+            records[count++] = position;
+            position += CEN_LENGTH + u16(cen, position + 28) + u16(cen, position + 30) + u16(cen, position + 32);
+        }
+        return Arrays.copyOf(records, count);
+    }
+
+    private int[] buildTable() {
+        int[] table = new int[Integer.highestOneBit(Math.max(records.length, 1) * 2) * 2];
+        int mask = table.length - 1;
+        for (int i = 0; i < records.length; i++) {
+            int record = records[i];
+            int slot = hash(cen, record + CEN_LENGTH, u16(cen, record + 28)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    private static int hash(ByteBuffer buffer, int start, int length) {
+        int h = 0;
+        for (int i = start, end = start + length; i < end; i++) {
+            h = 31 * h + buffer.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(byte[] bytes) {
+        return hash(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    private int indexOf(byte[] nameBytes) {
+        int mask = table.length - 1;
+        int slot = hash(nameBytes) & mask;
+        int index;
+        while ((index = table[slot]) != 0) {
+            int record = records[index - 1];
+            if (nameEquals(record, nameBytes)) {
+                return index - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int record, byte[] nameBytes) {
+        if (u16(cen, record + 28) != nameBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < nameBytes.length; i++) {
+            if (cen.get(record + CEN_LENGTH + i) != nameBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(JarEntry entry) {
+        if (entry instanceof MappedEntry && ((MappedEntry) entry).archive == this) {
+            return ((MappedEntry) entry).index;
+        }
+        return indexOf(entry.getName().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public JarEntry getJarEntry(String name) {
+        ensureOpen();
+        int index = indexOf(name.getBytes(StandardCharsets.UTF_8));
+        if (index < 0 && !name.endsWith("/")) {
+            index = indexOf((name + "/").getBytes(StandardCharsets.UTF_8));
+        }
+        return index < 0 ? null : entry(index);
+    }
+
+    @Override
+    public InputStream getInputStream(JarEntry entry) throws IOException {
+        ensureOpen();
+        int index = indexOf(entry);
+        if (index < 0) {
+            return null;
+        }
+        int method = u16(cen, records[index] + 10);
+        ByteBuffer data = data(index);
+        if (method == ZipEntry.STORED) {
+            return new ByteBufferInputStream(data);
+        }
+        if (method == ZipEntry.DEFLATED) {
+            return new EntryInflaterInputStream(new ByteBufferInputStream(data));
+        }
+        throw new ZipException("Unsupported compression method " + method + " for " + entry.getName());
+    }
+
+    /**
+     * Stored entries are returned as a slice of the mapping without copying.
+     */
+    @Override
+    public ByteBuffer readBuffer(JarEntry entry) throws IOException {
+        ensureOpen();
+        int index = indexOf(entry);
+        if (index < 0) {
+            throw new ZipException("No such entry: " + entry.getName());
+        }
+        int record = records[index];
+        int method = u16(cen, record + 10);
+        if (method == ZipEntry.STORED) {
+            return data(index);
+        }
+        if (method != ZipEntry.DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for " + entry.getName());
+        }
+        long size = size(record);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new ZipException("Entry too large: " + entry.getName());
+        }
+        byte[] bytes = new byte[(int) size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data(index));
+            int read = 0;
+            while (read < bytes.length) {
+                int n = inflater.inflate(bytes, read, bytes.length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != bytes.length) {
+                throw new ZipException("Truncated entry: " + entry.getName());
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt entry " + entry.getName() + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public Enumeration<JarEntry> entries() {
+        ensureOpen();
+        return new Enumeration<>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < records.length;
+            }
+
+            @Override
+            public JarEntry nextElement() {
+                if (next >= records.length) {
+                    throw new NoSuchElementException();
+                }
+                ensureOpen();
+                return entry(next++);
+            }
+        };
+    }
+
+    @Override
+    public Stream<JarEntry> stream() {
+        ensureOpen();
+        return IntStream.range(0, records.length).mapToObj(this::entry);
+    }
+
+    @Override
+    public int size() {
+        return records.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("zip file closed");
+        }
+    }
+
+    private JarEntry entry(int index) {
+        int record = records[index];
+        byte[] nameBytes = new byte[u16(cen, record + 28)];
+        cen.get(record + CEN_LENGTH, nameBytes);
+        MappedEntry entry = new MappedEntry(new String(nameBytes, StandardCharsets.UTF_8), this, index);
+
+        int method = u16(cen, record + 10);
+        if (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) {
+            entry.setMethod(method);
+        }
+        entry.setCrc(Integer.toUnsignedLong(cen.getInt(record + 16)));
+        entry.setSize(size(record));
+        entry.setCompressedSize(compressedSize(record));
+        int time = u16(cen, record + 12);
+        int date = u16(cen, record + 14);
+        try {
+            entry.setTimeLocal(LocalDateTime.of(((date >> 9) & 0x7f) + 1980, (date >> 5) & 0x0f, date & 0x1f,
+                    (time >> 11) & 0x1f, (time >> 5) & 0x3f, (time << 1) & 0x3e));
+        } catch (RuntimeException e) {
+            // Invalid DOS timestamp; leave the time unset
+        }
+        return entry;
+    }
+
+    /**
+     * The entry's raw (possibly compressed) data, located through its local header.
+     */
+    private ByteBuffer data(int index) throws IOException {
+        int record = records[index];
+        long offset = Integer.toUnsignedLong(cen.getInt(record + 42));
+        if (offset == ZIP64_MAGIC) {
+            offset = zip64Field(record, 2);
+        }
+        long header = base + offset;
+        ByteBuffer local = view(header, LOC_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        if (local.getInt(0) != LOC_SIG) {
+            throw new ZipException("Invalid local header for entry " + index);
+        }
+        return view(header + LOC_LENGTH + u16(local, 26) + u16(local, 28), compressedSize(record));
+    }
+
+    private long size(int record) {
+        long size = Integer.toUnsignedLong(cen.getInt(record + 24));
+        return size == ZIP64_MAGIC ? zip64Field(record, 0) : size;
+    }
+
+    private long compressedSize(int record) {
+        long size = Integer.toUnsignedLong(cen.getInt(record + 20));
+        return size == ZIP64_MAGIC ? zip64Field(record, 1) : size;
+    }
+
+    /**
+     * Reads a value from the ZIP64 extra field: 0 = size, 1 = compressed size,
+     * 2 = local header offset. Only the values that overflowed are present.
+     */
+    private long zip64Field(int record, int field) {
+        int extra = record + CEN_LENGTH + u16(cen, record + 28);
+        int extraEnd = extra + u16(cen, record + 30);
+        while (extra + 4 <= extraEnd) {
+            int id = u16(cen, extra);
+            int size = u16(cen, extra + 2);
+            if (id == 0x0001) {
+                int position = extra + 4;
+                if (field > 0 && Integer.toUnsignedLong(cen.getInt(record + 24)) == ZIP64_MAGIC) {
+                    position += 8;
+                }
+                if (field > 1 && Integer.toUnsignedLong(cen.getInt(record + 20)) == ZIP64_MAGIC) {
+                    position += 8;
+                }
+                if (position + 8 <= extra + 4 + size) {
+                    return cen.getLong(position);
+                }
+                break;
+            }
+            extra += 4 + size;
+        }
+        return ZIP64_MAGIC;
+    }
+
+    /**
+     * Returns [position, position + length) of the file in big-endian order: a
+     * slice of the mapping, or a copy in the rare case it spans two segments.
+     */
+    private ByteBuffer view(long position, long length) throws ZipException {
+        if (position < 0 || length < 0 || position + length > this.length) {
+            throw new ZipException("Offset out of range in " + name);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new ZipException("Region too large in " + name);
+        }
+        int index = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position - index * SEGMENT_SIZE);
+        if (offset + length <= segments[index].capacity()) {
+            return segments[index].slice(offset, (int) length);
+        }
+        byte[] bytes = new byte[(int) length];
+        int copied = 0;
+        while (copied < bytes.length) {
+            // Only the part before the overlap belongs to this segment
+            int n = (int) Math.min(bytes.length - copied, SEGMENT_SIZE - offset);
+            segments[index].get(offset, bytes, copied, n);
+            copied += n;
+            index++;
+            offset = 0;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static int u16(ByteBuffer buffer, int index) {
+        return Short.toUnsignedInt(buffer.getShort(index));
+    }
+
+    private static final class MappedEntry extends JarEntry {
+        final MappedArchive archive;
+        final int index;
+
+        MappedEntry(String name, MappedArchive archive, int index) {
+            super(name);
+            this.archive = archive;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Reads a buffer from its position to its limit.
+     */
+    static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Inflates raw deflate data and frees its inflater on close. A raw inflater
+     * may need one byte past the data to finish, as in {@code ZipFile}.
+     */
+    private static final class EntryInflaterInputStream extends InflaterInputStream {
+        private boolean eof;
+
+        EntryInflaterInputStream(InputStream in) {
+            super(in, new Inflater(true), 8192);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            inf.end();
+        }
+    }
+}
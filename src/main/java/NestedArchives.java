@@ -0,0 +1,244 @@
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+
+/**
+ * JARs nested in the open archive, such as Spring Boot's {@code BOOT-INF/lib}
+ * or a WAR's {@code WEB-INF/lib}, opened in memory when first needed.
+ *
+ * <p>Nested entries are addressed by tree path, e.g.
+ * {@code BOOT-INF/lib/foo.jar/com/acme/Foo.class}, and JARs may nest further.
+ * A stored nested JAR is read in place through a slice of the outer archive's
+ * mapping. A compressed one is inflated once into a buffer of its exact size,
+ * which is bounded by {@link #MAX_INFLATED_SIZE}. Nothing is written to disk.
+ * Only a memory-mapped outer archive can be sliced: one below
+ * {@link Archive#MAPPED_THRESHOLD} is a {@link JarFileArchive}, which doesn't
+ * expose entry offsets, so its stored JARs are copied to the heap like
+ * inflated ones. Such a copy is smaller than that threshold and counts towards
+ * the same budget.
+ *
+ * <p>Inflated archives together keep at most {@link #MAX_RETAINED_INFLATED}
+ * bytes; beyond that the least recently used ones are released. Released
+ * archives are only dropped, not closed, so readers still holding one can
+ * finish with it. {@link #open} and {@link #resolve} reopen them when needed;
+ * {@link #get} and {@link #locate} never do, so they are safe on the UI thread.
+ */
+public class NestedArchives implements Closeable {
+
+    public static final long MAX_INFLATED_SIZE = 512L * 1024 * 1024;
+    public static final long MAX_RETAINED_INFLATED = 256L * 1024 * 1024;
+
+    private final Archive root;
+    private final Map<String, Archive> opened = new ConcurrentHashMap<>(); // Tree path -> open nested archive
+    private final Map<String, Long> inflated = new LinkedHashMap<>(16, 0.75f, true); // Path -> heap bytes, LRU order
+    private long inflatedBytes;
+    private final Set<String> released = ConcurrentHashMap.newKeySet(); // Paths to reopen when needed again
+    private volatile boolean closed;
+
+    /**
+     * Where a tree path lives: the innermost open archive containing it and the
+     * entry name within that archive.
+     */
+    public static final class Location {
+        public final Archive archive;
+        public final String entryName;
+        public final String prefix; // Tree path of the archive plus "/", empty for the root
+
+        Location(Archive archive, String entryName, String prefix) {
+            this.archive = archive;
+            this.entryName = entryName;
+            this.prefix = prefix;
+        }
+
+        public boolean isRoot() {
+            return prefix.isEmpty();
+        }
+    }
+
+    public NestedArchives(Archive root) {
+        this.root = root;
+    }
+
+    public static boolean isArchiveName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".jar") || lower.endsWith(".war") || lower.endsWith(".ear");
+    }
+
+    public Archive getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the nested archive at a tree path, opening it (and the archives it
+     * is nested in) if needed.
+     */
+    public synchronized Archive open(String path) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("zip file closed");
+        }
+        Archive archive = opened.get(path);
+        if (archive != null) {
+            inflated.get(path); // Mark as recently used
+            return archive;
+        }
+        Location parent = resolve(path);
+        JarEntry entry = parent.archive.getJarEntry(parent.entryName);
+        if (entry == null || entry.isDirectory()) {
+            throw new FileNotFoundException("No nested archive at " + path);
+        }
+        if (entry.getSize() > MAX_INFLATED_SIZE) {
+            throw new IOException("Nested archive too large to open in memory: " + path
+                    + " (" + entry.getSize() + " bytes)");
+        }
+        ByteBuffer data = parent.archive.readBuffer(entry);
+        archive = new MappedArchive(parent.archive.getName() + "!/" + entry.getName(), data);
+        opened.put(path, archive);
+        released.remove(path);
+        if (ownsArray(data)) {
+            inflated.put(path, (long) data.capacity());
+            inflatedBytes += data.capacity();
+            releaseLeastRecentlyUsed(path);
+        }
+        return archive;
+    }
+
+    /**
+     * True for a buffer of its own, such as an inflated entry, rather than a view of the outer archive.
+     */
+    private static boolean ownsArray(ByteBuffer data) {
+        return data.hasArray() && data.arrayOffset() == 0 && data.array().length == data.capacity();
+    }
+
+    /**
+     * Releases inflated archives, oldest use first, until they fit the budget again.
+     * {@code keep} and the archives it is nested in stay.
+     */
+    private void releaseLeastRecentlyUsed(String keep) {
+        List<String> candidates = new ArrayList<>(inflated.keySet());
+        for (String path : candidates) {
+            if (inflatedBytes <= MAX_RETAINED_INFLATED) {
+                break;
+            }
+            if (!path.equals(keep) && !keep.startsWith(path + "/")) {
+                release(path);
+            }
+        }
+    }
+
+    /**
+     * Drops an open nested archive so its memory can be reclaimed once nobody
+     * reads from it anymore. It is reopened when a path inside it is looked up.
+     * The archives opened from it go too: a stored JAR inside an inflated one is
+     * a slice of its buffer and would otherwise keep all of it alive.
+     */
+    public synchronized void release(String path) {
+        if (opened.remove(path) == null) {
+            return;
+        }
+        Long size = inflated.remove(path);
+        if (size != null) {
+            inflatedBytes -= size;
+        }
+        released.add(path);
+        String inside = path + "/";
+        for (String nested : new ArrayList<>(opened.keySet())) {
+            if (nested.startsWith(inside)) {
+                release(nested);
+            }
+        }
+    }
+
+    /**
+     * True if the nested archive at a tree path is open right now.
+     */
+    public boolean isOpen(String path) {
+        return opened.containsKey(path);
+    }
+
+    /**
+     * Returns the nested archive at a tree path if it is open, otherwise null.
+     */
+    public Archive get(String path) {
+        return opened.get(path);
+    }
+
+    /**
+     * True if the path is inside a nested archive that was released since it was
+     * opened, so {@link #locate} won't find it until it is reopened with
+     * {@link #resolve}.
+     */
+    public boolean needsReopen(String path) {
+        if (released.isEmpty()) {
+            return false;
+        }
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            if (released.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves a tree path, first opening the nested archives along it.
+     */
+    public synchronized Location resolve(String path) throws IOException {
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            String prefix = path.substring(0, slash);
+            if (isArchiveName(prefix) && !opened.containsKey(prefix)) {
+                Location location = locate(prefix);
+                JarEntry enclosing = location.archive.getJarEntry(location.entryName);
+                if (enclosing != null && !enclosing.isDirectory()) {
+                    open(prefix);
+                }
+            }
+        }
+        return locate(path);
+    }
+
+    /**
+     * Resolves a tree path against the archives open right now. Never opens or
+     * inflates anything.
+     */
+    public Location locate(String path) {
+        Archive archive = root;
+        int start = 0;
+        if (!opened.isEmpty()) {
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                Archive nested = get(path.substring(0, slash));
+                if (nested != null) {
+                    archive = nested;
+                    start = slash + 1;
+                }
+            }
+        }
+        return new Location(archive, path.substring(start), path.substring(0, start));
+    }
+
+    /**
+     * Closes the nested archives; the root is left to its owner.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Archive archive : opened.values()) {
+            try {
+                archive.close();
+            } catch (IOException ignored) {
+            }
+        }
+        opened.clear();
+        inflated.clear();
+        inflatedBytes = 0;
+        released.clear();
+    }
+}
@@ -0,0 +1,32 @@
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Outline panel node over a {@link ClassOutline.Node}. Children become
+ * {@code TreeItem}s only when first asked for, so a collapsed constant pool
+ * costs nothing.
+ */
+public class OutlineTreeItem extends TreeItem<ClassOutline.Node> {
+
+    private boolean childrenLoaded;
+
+    public OutlineTreeItem(ClassOutline.Node node) {
+        super(node);
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return !getValue().hasChildren();
+    }
+
+    @Override
+    public ObservableList<TreeItem<ClassOutline.Node>> getChildren() {
+        if (!childrenLoaded) {
+            childrenLoaded = true;
+            for (ClassOutline.Node child : getValue().getChildren()) {
+                super.getChildren().add(new OutlineTreeItem(child));
+            }
+        }
+        return super.getChildren();
+    }
+}
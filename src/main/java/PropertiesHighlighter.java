@@ -0,0 +1,87 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * Highlighter for {@code .properties} files following the {@link java.util.Properties}
+ * format: comments, keys, and values including backslash line continuations.
+ */
+public class PropertiesHighlighter implements SyntaxHighlighter {
+
+    @Override
+    public StyleSpans<Collection<String>> computeHighlighting(String text) {
+        SpanBuilder spans = new SpanBuilder();
+        int length = text.length();
+        int pos = 0;
+
+        while (pos < length) {
+            pos = skipBlanks(text, pos);
+            if (pos >= length) {
+                break;
+            }
+            char c = text.charAt(pos);
+            if (c == '\n' || c == '\r') {
+                pos++;
+                continue;
+            }
+            if (c == '#' || c == '!') {
+                int end = SpanBuilder.lineEnd(text, pos);
+                spans.add(pos, end, SpanBuilder.COMMENT);
+                pos = end;
+                continue;
+            }
+
+            // Key: up to the first unescaped separator or whitespace
+            int keyStart = pos;
+            while (pos < length) {
+                c = text.charAt(pos);
+                if (c == '\\' && pos + 1 < length) {
+                    pos += 2;
+                } else if (c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f' || c == '\n' || c == '\r') {
+                    break;
+                } else {
+                    pos++;
+                }
+            }
+            spans.add(keyStart, pos, SpanBuilder.ATTRIBUTE);
+
+            // Separator, then the value up to a line end not preceded by an escaping backslash
+            pos = skipBlanks(text, pos);
+            if (pos < length && (text.charAt(pos) == '=' || text.charAt(pos) == ':')) {
+                pos = skipBlanks(text, pos + 1);
+            }
+            int valueStart = pos;
+            pos = logicalLineEnd(text, pos);
+            spans.add(valueStart, pos, SpanBuilder.ATTRIBUTE_VALUE);
+        }
+
+        return spans.create(length);
+    }
+
+    private static int skipBlanks(String text, int pos) {
+        int length = text.length();
+        while (pos < length && (text.charAt(pos) == ' ' || text.charAt(pos) == '\t' || text.charAt(pos) == '\f')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * End of a line, following continuations: a line ending in an odd number of backslashes continues.
+     */
+    private static int logicalLineEnd(String text, int pos) {
+        int length = text.length();
+        while (true) {
+            int end = SpanBuilder.lineEnd(text, pos);
+            int contentEnd = end > pos && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            int backslashes = 0;
+            while (contentEnd - backslashes - 1 >= pos && text.charAt(contentEnd - backslashes - 1) == '\\') {
+                backslashes++;
+            }
+            if (backslashes % 2 == 0 || end >= length) {
+                return contentEnd;
+            }
+            pos = end + 1;
+        }
+    }
+}
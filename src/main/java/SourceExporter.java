@@ -0,0 +1,263 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Decompiles every top-level class of a JAR into a source tree or a
+ * {@code -sources.jar}.
+ *
+ * <p>Classes are decompiled on one worker per core. Inner classes are skipped
+ * because the decompiler folds them into their outer class. Finished sources go
+ * through a small bounded queue to a single writer thread, so output is never
+ * written concurrently and only a few sources are held in memory at a time.
+ * Classes that fail to decompile get a stub that names the error, so the tree
+ * stays complete. The exporter sets no timeout of its own; pass a
+ * {@link CfrWorkerPool} or {@link BoundedDecompiler} as the engine to bound the
+ * time per class.
+ */
+public class SourceExporter {
+
+    private static final int QUEUE_PER_WORKER = 4;
+    private static final long POLL_MILLIS = 100;
+
+    private final DecompilerEngine decompiler;
+    private final int workers;
+
+    /**
+     * A running export. Cancelling stops it after the classes in progress.
+     */
+    public static final class Export {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicInteger written = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile int total;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public int getWritten() {
+            return written.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public double getClassesPerSecond() {
+            long start = startNanos;
+            if (start == 0) {
+                return 0;
+            }
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return end > start ? written.get() * 1e9 / (end - start) : 0;
+        }
+
+        public long getElapsedMillis() {
+            long start = startNanos;
+            if (start == 0) {
+                return 0;
+            }
+            return ((endNanos != 0 ? endNanos : System.nanoTime()) - start) / 1_000_000;
+        }
+    }
+
+    private static final class Source {
+        final String path;
+        final String text;
+
+        Source(String path, String text) {
+            this.path = path;
+            this.text = text;
+        }
+    }
+
+    public SourceExporter(DecompilerEngine decompiler, int workers) {
+        this.decompiler = decompiler;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Starts exporting in the background.
+     *
+     * @param sourcesJar write a JAR at {@code target} instead of a directory tree under it
+     * @param onDone     called from the writer thread with null on success (or
+     *                   cancellation), otherwise with the error that stopped the export
+     */
+    public Export export(Archive jarFile, Path target, boolean sourcesJar, Consumer<Exception> onDone) {
+        Export export = new Export();
+        Thread writer = new Thread(() -> {
+            Exception error = null;
+            try {
+                run(jarFile, target, sourcesJar, export);
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                export.endNanos = System.nanoTime();
+            }
+            onDone.accept(error);
+        }, "source-export");
+        writer.setDaemon(true);
+        writer.start();
+        return export;
+    }
+
+    /**
+     * Runs an export on the calling thread, which becomes the writer.
+     */
+    public void run(Archive jarFile, Path target, boolean sourcesJar, Export export) throws IOException, InterruptedException {
+        List<JarEntry> classes = topLevelClasses(jarFile);
+        export.total = classes.size();
+        export.startNanos = System.nanoTime();
+
+        BlockingQueue<Source> queue = new ArrayBlockingQueue<>(workers * QUEUE_PER_WORKER);
+        AtomicInteger finished = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "source-export-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Sink sink = sourcesJar ? new JarSink(target) : new DirectorySink(target)) {
+            for (JarEntry entry : classes) {
+                pool.execute(() -> {
+                    try {
+                        if (export.isCancelled()) {
+                            return;
+                        }
+                        String name = entry.getName();
+                        String source;
+                        try {
+                            source = decompiler.decompile(jarFile, entry);
+                        } catch (Throwable e) {
+                            // In-process CFR can also fail with errors such as StackOverflowError
+                            export.failed.incrementAndGet();
+                            source = "/*\n * Decompilation of " + name + " failed:\n * " + e + "\n */\n";
+                        }
+                        queue.put(new Source(name.substring(0, name.length() - ".class".length()) + ".java", source));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        finished.incrementAndGet();
+                    }
+                });
+            }
+
+            while (export.written.get() < classes.size()) {
+                Source source = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (source == null) {
+                    // Stop once every task is done, even if one died before queueing its source
+                    if (export.isCancelled() || finished.get() == classes.size() && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                sink.write(source.path, source.text);
+                export.written.incrementAndGet();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Class entries that are not nested in another class of the JAR.
+     */
+    static List<JarEntry> topLevelClasses(Archive jarFile) {
+        List<JarEntry> classes = new ArrayList<>();
+        jarFile.stream().forEach(entry -> {
+            String name = entry.getName();
+            if (entry.isDirectory() || !name.endsWith(".class")) {
+                return;
+            }
+            int simpleStart = name.lastIndexOf('/') + 1;
+            int dollar = name.indexOf('$', simpleStart);
+            // Names with a '$' but no outer class in the JAR (e.g. generated ones) are top-level
+            if (dollar > simpleStart && jarFile.getJarEntry(name.substring(0, dollar) + ".class") != null) {
+                return;
+            }
+            classes.add(entry);
+        });
+        return classes;
+    }
+
+    private interface Sink extends Closeable {
+        void write(String path, String source) throws IOException;
+    }
+
+    private static final class DirectorySink implements Sink {
+        private final Path root;
+
+        DirectorySink(Path root) throws IOException {
+            this.root = root.toAbsolutePath().normalize();
+            Files.createDirectories(this.root);
+        }
+
+        @Override
+        public void write(String path, String source) throws IOException {
+            Path file = root.resolve(path).normalize();
+            if (!file.startsWith(root)) {
+                throw new IOException("Entry escapes the export directory: " + path);
+            }
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class JarSink implements Sink {
+        private final JarOutputStream out;
+
+        JarSink(Path file) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().putValue("Created-By", "JarViewerFX");
+            out = new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024), manifest);
+        }
+
+        @Override
+        public void write(String path, String source) throws IOException {
+            out.putNextEntry(new JarEntry(path));
+            out.write(source.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
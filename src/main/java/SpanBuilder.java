@@ -0,0 +1,94 @@
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Collects styled ranges in document order and fills the gaps with unstyled
+ * spans, plus the scanning helpers shared by the hand-written highlighters.
+ */
+final class SpanBuilder {
+
+    static final Collection<String> PLAIN = Collections.emptyList();
+    static final Collection<String> KEYWORD = Collections.singleton("keyword");
+    static final Collection<String> STRING = Collections.singleton("string");
+    static final Collection<String> NUMBER = Collections.singleton("number");
+    static final Collection<String> COMMENT = Collections.singleton("comment");
+    static final Collection<String> ANNOTATION = Collections.singleton("annotation");
+    static final Collection<String> TAG = Collections.singleton("tag");
+    static final Collection<String> ATTRIBUTE = Collections.singleton("attribute");
+    static final Collection<String> ATTRIBUTE_VALUE = Collections.singleton("attribute-value");
+
+    private final StyleSpansBuilder<Collection<String>> spans = new StyleSpansBuilder<>();
+    private int end; // End of the last styled range
+
+    /**
+     * Styles [start, stop). Ranges must be added in order and must not overlap.
+     */
+    void add(int start, int stop, Collection<String> style) {
+        if (stop <= start) {
+            return;
+        }
+        if (start > end) {
+            spans.add(PLAIN, start - end);
+        }
+        spans.add(style, stop - start);
+        end = stop;
+    }
+
+    StyleSpans<Collection<String>> create(int length) {
+        spans.add(PLAIN, length - end);
+        return spans.create();
+    }
+
+    /**
+     * Position of the next newline, or the end of the text.
+     */
+    static int lineEnd(String text, int pos) {
+        int end = text.indexOf('\n', pos);
+        return end < 0 ? text.length() : end;
+    }
+
+    /**
+     * End of a block comment whose body starts at {@code pos}; unterminated comments run to the end.
+     */
+    static int blockCommentEnd(String text, int pos) {
+        int end = text.indexOf("*/", pos);
+        return end < 0 ? text.length() : end + 2;
+    }
+
+    /**
+     * End of a quoted literal whose body starts at {@code pos}. Backslash escapes
+     * the next character; unless {@code multiline}, an unterminated literal stops
+     * at the end of the line.
+     */
+    static int quotedEnd(String text, int pos, char quote, boolean multiline) {
+        int length = text.length();
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == quote) {
+                return pos + 1;
+            } else if (c == '\n' && !multiline) {
+                return pos;
+            } else {
+                pos++;
+            }
+        }
+        return length;
+    }
+
+    static int skipWhitespace(String text, int pos) {
+        int length = text.length();
+        while (pos < length && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,495 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.jar.JarEntry;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Inverted index from symbol names (classes, methods, fields and string
+ * constants) to the class entries that declare or use them.
+ *
+ * <p>Symbols are kept in one array sorted case-insensitively, so prefix queries
+ * are a binary search. A second sorted array of camel-hump initials (e.g.
+ * {@code NPE} for {@code NullPointerException}) answers hump queries the same
+ * way. Indexes are persisted, gzip-compressed, under the viewer's cache
+ * directory and reused while the JAR is unchanged. Saving the index of a
+ * changed JAR deletes the one for its previous version.
+ */
+public class SymbolIndex {
+
+    public static final int CLASS = 0;
+    public static final int METHOD = 1;
+    public static final int FIELD = 2;
+    public static final int STRING = 3;
+    private static final String[] KIND_NAMES = { "class", "method", "field", "string" };
+
+    private static final int MAGIC = 0x4A565349; // "JVSI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_STRING_LENGTH = 200;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private final String[] entryNames;
+    private final String[] symbols;     // Sorted with String.CASE_INSENSITIVE_ORDER
+    private final int[] postingStart;   // symbols.length + 1 offsets into postings
+    private final int[] postings;       // entryId << 2 | kind
+    private final String[] humpKeys;    // Sorted camel-hump initials
+    private final int[] humpSymbols;    // Symbol id for each hump key
+
+    /**
+     * A symbol occurrence returned by {@link #query}.
+     */
+    public static final class Result {
+        public final String entryName;
+        public final String symbol;
+        public final String kind;
+
+        Result(String entryName, String symbol, String kind) {
+            this.entryName = entryName;
+            this.symbol = symbol;
+            this.kind = kind;
+        }
+
+        @Override
+        public String toString() {
+            return symbol + " [" + kind + "]  " + entryName;
+        }
+    }
+
+    private SymbolIndex(String[] entryNames, String[] symbols, int[] postingStart, int[] postings) {
+        this.entryNames = entryNames;
+        this.symbols = symbols;
+        this.postingStart = postingStart;
+        this.postings = postings;
+
+        // Camel-hump initials for identifier-like symbols
+        List<String> keys = new ArrayList<>();
+        List<Integer> keySymbols = new ArrayList<>();
+        for (int i = 0; i < symbols.length; i++) {
+            String humps = humpInitials(symbols[i]);
+            if (humps != null) {
+                keys.add(humps);
+                keySymbols.add(i);
+            }
+        }
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+        humpKeys = new String[order.length];
+        humpSymbols = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            humpKeys[i] = keys.get(order[i]);
+            humpSymbols[i] = keySymbols.get(order[i]);
+        }
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * Returns a cached index for the JAR if there is one, otherwise builds and
+     * caches it. Returns null if {@code cancelled} became true while building.
+     */
+    public static SymbolIndex loadOrBuild(Archive jarFile, Path cacheDirectory, BooleanSupplier cancelled) throws IOException {
+        File jar = new File(jarFile.getName());
+        Path file = cacheDirectory.resolve("symbols").resolve(pathKey(jar) + "-" + versionKey(jar) + ".idx");
+        if (Files.isRegularFile(file)) {
+            try {
+                return load(file);
+            } catch (IOException e) {
+                // Corrupt or from an older format; rebuild below
+                Files.deleteIfExists(file);
+            }
+        }
+        SymbolIndex index = build(jarFile, cancelled);
+        if (index != null) {
+            try {
+                index.save(file);
+                deleteSuperseded(file);
+            } catch (IOException e) {
+                System.err.println("Could not save symbol index " + file + ": " + e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Parses every class entry of the JAR. Returns null if cancelled.
+     */
+    public static SymbolIndex build(Archive jarFile, BooleanSupplier cancelled) throws IOException {
+        List<String> entryNames = new ArrayList<>();
+        Map<String, IntList> postingsBySymbol = new HashMap<>();
+
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+            JarEntry entry = entries.nextElement();
+            if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                continue;
+            }
+            // Collect the class's symbols before registering the entry, so a class with
+            // a bad constant-pool index is skipped as a whole
+            List<String> classSymbols = new ArrayList<>();
+            IntList classKinds = new IntList();
+            try {
+                ClassFileParser parser = new ClassFileParser(jarFile.readBuffer(entry));
+                String simpleName = simpleClassName(parser.getClassName());
+                if (simpleName != null) {
+                    classSymbols.add(simpleName);
+                    classKinds.add(CLASS);
+                }
+                for (ClassFileParser.Member method : parser.getMethods()) {
+                    String name = method.getName();
+                    if ((method.getAccessFlags() & ACC_SYNTHETIC) == 0 && !name.startsWith("<")) {
+                        classSymbols.add(name);
+                        classKinds.add(METHOD);
+                    }
+                }
+                for (ClassFileParser.Member field : parser.getFields()) {
+                    if ((field.getAccessFlags() & ACC_SYNTHETIC) == 0) {
+                        classSymbols.add(field.getName());
+                        classKinds.add(FIELD);
+                    }
+                }
+                for (String constant : parser.getStringConstants()) {
+                    if (!constant.isEmpty()) {
+                        String value = constant.length() > MAX_STRING_LENGTH ? constant.substring(0, MAX_STRING_LENGTH) : constant;
+                        classSymbols.add(value);
+                        classKinds.add(STRING);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                continue; // Not a parseable class; nothing to index
+            }
+
+            int entryId = entryNames.size();
+            entryNames.add(entry.getName());
+            for (int i = 0; i < classSymbols.size(); i++) {
+                addPosting(postingsBySymbol, classSymbols.get(i), entryId, classKinds.values[i]);
+            }
+        }
+
+        // Freeze into sorted arrays
+        String[] symbols = postingsBySymbol.keySet().toArray(new String[0]);
+        Arrays.sort(symbols, String.CASE_INSENSITIVE_ORDER);
+        int[] postingStart = new int[symbols.length + 1];
+        int total = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            postingStart[i] = total;
+            total += postingsBySymbol.get(symbols[i]).size;
+        }
+        postingStart[symbols.length] = total;
+        int[] postings = new int[total];
+        for (int i = 0; i < symbols.length; i++) {
+            IntList list = postingsBySymbol.get(symbols[i]);
+            System.arraycopy(list.values, 0, postings, postingStart[i], list.size);
+        }
+        return new SymbolIndex(entryNames.toArray(new String[0]), symbols, postingStart, postings);
+    }
+
+    /**
+     * Finds symbols whose name starts with the query (ignoring case) or whose
+     * camel humps match it ({@code NPE}, {@code NuPoEx} -> {@code NullPointerException}).
+     * Exact and prefix matches come first.
+     */
+    public List<Result> query(String query, int limit) {
+        List<Result> results = new ArrayList<>();
+        if (query.isEmpty()) {
+            return results;
+        }
+        boolean[] seen = new boolean[symbols.length];
+
+        // Exact (ignoring case) matches, then other prefix matches
+        int first = lowerBound(symbols, query, true);
+        for (int i = first; i < symbols.length && symbols[i].equalsIgnoreCase(query) && results.size() < limit; i++) {
+            seen[i] = true;
+            addResults(i, results, limit);
+        }
+        for (int i = first; i < symbols.length && symbols[i].regionMatches(true, 0, query, 0, query.length())
+                && results.size() < limit; i++) {
+            if (!seen[i]) {
+                seen[i] = true;
+                addResults(i, results, limit);
+            }
+        }
+
+        // Camel-hump matches
+        String initials = queryInitials(query);
+        if (initials != null) {
+            for (int i = lowerBound(humpKeys, initials, false);
+                 i < humpKeys.length && humpKeys[i].startsWith(initials) && results.size() < limit; i++) {
+                int symbol = humpSymbols[i];
+                if (!seen[symbol] && camelMatches(query, symbols[symbol])) {
+                    seen[symbol] = true;
+                    addResults(symbol, results, limit);
+                }
+            }
+        }
+        return results;
+    }
+
+    private void addResults(int symbol, List<Result> results, int limit) {
+        for (int p = postingStart[symbol]; p < postingStart[symbol + 1] && results.size() < limit; p++) {
+            int posting = postings[p];
+            results.add(new Result(entryNames[posting >>> 2], symbols[symbol], KIND_NAMES[posting & 3]));
+        }
+    }
+
+    private static int lowerBound(String[] sorted, String key, boolean ignoreCase) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = ignoreCase ? String.CASE_INSENSITIVE_ORDER.compare(sorted[mid], key) : sorted[mid].compareTo(key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Upper-cased first letter of each camel-case word, or null for non-identifiers.
+     */
+    static String humpInitials(String symbol) {
+        if (symbol.isEmpty() || !Character.isJavaIdentifierStart(symbol.charAt(0))) {
+            return null;
+        }
+        StringBuilder initials = new StringBuilder();
+        for (int i = 0; i < symbol.length(); i++) {
+            char c = symbol.charAt(i);
+            if (!Character.isJavaIdentifierPart(c)) {
+                return null;
+            }
+            if (isWordStart(symbol, i)) {
+                initials.append(Character.toUpperCase(c));
+            }
+        }
+        return initials.toString();
+    }
+
+    private static boolean isWordStart(String symbol, int i) {
+        char c = symbol.charAt(i);
+        if (c == '_' || c == '$') {
+            return false;
+        }
+        if (i == 0) {
+            return true;
+        }
+        char previous = symbol.charAt(i - 1);
+        return previous == '_' || previous == '$'
+                || (Character.isUpperCase(c) && !Character.isUpperCase(previous))
+                || (Character.isDigit(c) && !Character.isDigit(previous));
+    }
+
+    /**
+     * Initials of a hump query: its first letter plus every upper-case letter.
+     * Null if the query has no humps beyond the first letter.
+     */
+    private static String queryInitials(String query) {
+        StringBuilder initials = new StringBuilder();
+        initials.append(Character.toUpperCase(query.charAt(0)));
+        for (int i = 1; i < query.length(); i++) {
+            if (Character.isUpperCase(query.charAt(i))) {
+                initials.append(query.charAt(i));
+            }
+        }
+        return initials.length() > 1 ? initials.toString() : null;
+    }
+
+    /**
+     * True if each hump of the query is a prefix of the corresponding word of the symbol.
+     */
+    static boolean camelMatches(String query, String symbol) {
+        int s = 0;
+        int q = 0;
+        while (q < query.length()) {
+            // Find the start of the next word in the symbol
+            while (s < symbol.length() && !isWordStart(symbol, s)) {
+                s++;
+            }
+            if (s >= symbol.length()) {
+                return false;
+            }
+            // Match this query hump: first char ignoring case, rest until the next upper-case char
+            if (Character.toUpperCase(query.charAt(q)) != Character.toUpperCase(symbol.charAt(s))) {
+                return false;
+            }
+            q++;
+            s++;
+            while (q < query.length() && !Character.isUpperCase(query.charAt(q))) {
+                if (s >= symbol.length() || isWordStart(symbol, s)
+                        || Character.toLowerCase(query.charAt(q)) != Character.toLowerCase(symbol.charAt(s))) {
+                    return false;
+                }
+                q++;
+                s++;
+            }
+        }
+        return true;
+    }
+
+    private static String simpleClassName(String internalName) {
+        String name = internalName.substring(internalName.lastIndexOf('/') + 1);
+        int dollar = name.lastIndexOf('$');
+        if (dollar >= 0) {
+            name = name.substring(dollar + 1);
+        }
+        // Anonymous classes (Foo$1) have no name worth searching for
+        return name.isEmpty() || Character.isDigit(name.charAt(0)) ? null : name;
+    }
+
+    private static void addPosting(Map<String, IntList> postingsBySymbol, String symbol, int entryId, int kind) {
+        IntList list = postingsBySymbol.computeIfAbsent(symbol, k -> new IntList());
+        int posting = entryId << 2 | kind;
+        // Overloads and repeated constants in one class only need one posting
+        if (list.size == 0 || list.values[list.size - 1] != posting) {
+            list.add(posting);
+        }
+    }
+
+    /**
+     * Names the index files of one JAR path, whatever its version.
+     */
+    private static String pathKey(File jar) throws IOException {
+        return sha256(jar.getCanonicalPath());
+    }
+
+    /**
+     * Changes whenever the JAR or the index format does.
+     */
+    private static String versionKey(File jar) {
+        return sha256(jar.length() + "|" + jar.lastModified() + "|" + FORMAT_VERSION);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Deletes the indexes of earlier versions of the JAR the given index file belongs to.
+     */
+    private static void deleteSuperseded(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String prefix = name.substring(0, name.indexOf('-') + 1);
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(file.getParent(), prefix + "*.idx")) {
+            for (Path sibling : siblings) {
+                if (!sibling.equals(file)) {
+                    Files.deleteIfExists(sibling);
+                }
+            }
+        }
+    }
+
+    private void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "symbols", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entryNames.length);
+                for (String name : entryNames) {
+                    out.writeUTF(name);
+                }
+                out.writeInt(symbols.length);
+                for (int i = 0; i < symbols.length; i++) {
+                    out.writeUTF(symbols[i]);
+                    out.writeInt(postingStart[i + 1] - postingStart[i]);
+                    for (int p = postingStart[i]; p < postingStart[i + 1]; p++) {
+                        out.writeInt(postings[p]);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp); // Only still there if the write or move failed
+        }
+    }
+
+    /**
+     * Reads a saved index. The gzip trailer's CRC catches truncated or corrupt files.
+     */
+    private static SymbolIndex load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown symbol index format");
+            }
+            String[] entryNames = new String[in.readInt()];
+            for (int i = 0; i < entryNames.length; i++) {
+                entryNames[i] = in.readUTF();
+            }
+            String[] symbols = new String[in.readInt()];
+            int[] postingStart = new int[symbols.length + 1];
+            IntList postings = new IntList();
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = in.readUTF();
+                postingStart[i] = postings.size;
+                int count = in.readInt();
+                for (int p = 0; p < count; p++) {
+                    int posting = in.readInt();
+                    if ((posting >>> 2) >= entryNames.length) {
+                        throw new IOException("Corrupt symbol index");
+                    }
+                    postings.add(posting);
+                }
+            }
+            postingStart[symbols.length] = postings.size;
+            // Drain to the end so the gzip CRC is verified
+            if (in.read() != -1) {
+                throw new IOException("Trailing data in symbol index");
+            }
+            return new SymbolIndex(entryNames, symbols, postingStart, Arrays.copyOf(postings.values, postings.size));
+        }
+    }
+
+    /**
+     * Minimal growable int array.
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * Computes highlighting spans for a whole text. Implementations must be
+ * stateless and thread-safe: {@link AsyncHighlighter} calls them from a
+ * background thread, on the visible window as well as on the full document.
+ *
+ * <p>Highlighters are registered by file extension in {@link SyntaxHighlighters}.
+ */
+public interface SyntaxHighlighter {
+
+    StyleSpans<Collection<String>> computeHighlighting(String text);
+}
@@ -0,0 +1,50 @@
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of syntax highlighters by file extension or, for files like
+ * {@code MANIFEST.MF}, by file name.
+ */
+public final class SyntaxHighlighters {
+
+    private static final Map<String, SyntaxHighlighter> BY_EXTENSION = new ConcurrentHashMap<>();
+    private static final Map<String, SyntaxHighlighter> BY_FILE_NAME = new ConcurrentHashMap<>();
+
+    static {
+        register(new JavaHighlighter(), "java");
+        register(new XmlHighlighter(), "xml", "html", "xhtml", "xsd", "xsl", "wsdl", "pom", "fxml", "tld");
+        register(new CssHighlighter(), "css");
+        register(new JavaScriptHighlighter(), "js", "mjs", "cjs");
+        register(new JsonHighlighter(), "json");
+        register(new PropertiesHighlighter(), "properties");
+        SyntaxHighlighter manifest = new ManifestHighlighter();
+        register(manifest, "mf", "sf");
+        BY_FILE_NAME.put("manifest.mf", manifest);
+    }
+
+    private SyntaxHighlighters() {
+    }
+
+    /**
+     * Registers a highlighter for one or more extensions (without the dot), replacing earlier ones.
+     */
+    public static void register(SyntaxHighlighter highlighter, String... extensions) {
+        for (String extension : extensions) {
+            BY_EXTENSION.put(extension.toLowerCase(Locale.ROOT), highlighter);
+        }
+    }
+
+    /**
+     * Highlighter for an entry path or file name, or null if the type isn't known.
+     */
+    public static SyntaxHighlighter forFileName(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        SyntaxHighlighter highlighter = BY_FILE_NAME.get(name);
+        if (highlighter != null) {
+            return highlighter;
+        }
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : BY_EXTENSION.get(name.substring(dot + 1));
+    }
+}
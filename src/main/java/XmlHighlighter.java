@@ -0,0 +1,236 @@
+import org.fxmisc.richtext.model.StyleSpans;
+
+import java.util.Collection;
+
+/**
+ * Streaming XML/HTML highlighter: a small state machine over the characters
+ * that styles tag names, attribute names and values, comments, CDATA sections,
+ * declarations, processing instructions and entity references.
+ *
+ * <p>The state survives between chunks, so a {@link Cursor} can walk a
+ * multi-megabyte descriptor in fixed-size pieces. Unlike a StAX parser it never
+ * gives up on malformed input; it just keeps coloring.
+ */
+public class XmlHighlighter implements ChunkedHighlighter {
+
+    private static final int MAX_ENTITY_LENGTH = 32;
+
+    private enum State { TEXT, TAG_NAME, IN_TAG, ATTRIBUTE_NAME, ATTRIBUTE_VALUE, COMMENT, CDATA, DECLARATION }
+
+    @Override
+    public StyleSpans<Collection<String>> computeHighlighting(String text) {
+        return cursor(text).next(text.length());
+    }
+
+    @Override
+    public Cursor cursor(String text) {
+        return new XmlCursor(text);
+    }
+
+    private static final class XmlCursor implements Cursor {
+        private final String text;
+        private int pos;
+        private State state = State.TEXT;
+        private char quote; // Quote of the attribute value being read
+
+        XmlCursor(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int position() {
+            return pos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < text.length();
+        }
+
+        @Override
+        public StyleSpans<Collection<String>> next(int maxChars) {
+            int chunkStart = pos;
+            int limit = (int) Math.min(text.length(), (long) pos + maxChars);
+            SpanBuilder spans = new SpanBuilder();
+
+            while (pos < limit) {
+                int start = pos;
+                Collection<String> style;
+                switch (state) {
+                    case TEXT:
+                        style = text(limit);
+                        break;
+                    case TAG_NAME:
+                        pos = nameEnd(pos, limit);
+                        if (pos < limit || pos == text.length()) {
+                            state = State.IN_TAG;
+                        }
+                        style = SpanBuilder.TAG;
+                        break;
+                    case IN_TAG:
+                        style = inTag();
+                        break;
+                    case ATTRIBUTE_NAME:
+                        pos = nameEnd(pos, limit);
+                        if (pos < limit || pos == text.length()) {
+                            state = State.IN_TAG;
+                        }
+                        style = SpanBuilder.ATTRIBUTE;
+                        break;
+                    case ATTRIBUTE_VALUE:
+                        pos = until(quote, pos, limit);
+                        style = SpanBuilder.ATTRIBUTE_VALUE;
+                        break;
+                    case COMMENT:
+                        pos = until("-->", pos, limit);
+                        style = SpanBuilder.COMMENT;
+                        break;
+                    case CDATA:
+                        pos = until("]]>", pos, limit);
+                        style = SpanBuilder.STRING;
+                        break;
+                    default: // DECLARATION
+                        pos = until('>', pos, limit);
+                        style = SpanBuilder.KEYWORD;
+                        break;
+                }
+                spans.add(start - chunkStart, pos - chunkStart, style);
+            }
+
+            return spans.create(pos - chunkStart);
+        }
+
+        /**
+         * Character data up to the next markup. Returns the style of what was consumed.
+         */
+        private Collection<String> text(int limit) {
+            char c = text.charAt(pos);
+            if (c == '<') {
+                if (text.startsWith("<!--", pos)) {
+                    pos += 4;
+                    state = State.COMMENT;
+                    return SpanBuilder.COMMENT;
+                }
+                if (text.startsWith("<![CDATA[", pos)) {
+                    pos += 9;
+                    state = State.CDATA;
+                    return SpanBuilder.STRING;
+                }
+                if (text.startsWith("<!", pos)) {
+                    pos += 2;
+                    state = State.DECLARATION;
+                    return SpanBuilder.KEYWORD;
+                }
+                // Start tag, end tag or processing instruction
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '/' || text.charAt(pos) == '?')) {
+                    pos++;
+                }
+                state = State.TAG_NAME;
+                return SpanBuilder.TAG;
+            }
+            if (c == '&') {
+                int end = entityEnd(pos);
+                if (end > 0) {
+                    pos = end;
+                    return SpanBuilder.ANNOTATION;
+                }
+            }
+            pos++;
+            while (pos < limit && (c = text.charAt(pos)) != '<' && c != '&') {
+                pos++;
+            }
+            return SpanBuilder.PLAIN;
+        }
+
+        /**
+         * Inside a tag: attributes and the closing delimiter.
+         */
+        private Collection<String> inTag() {
+            char c = text.charAt(pos);
+            if (c == '>') {
+                pos++;
+                state = State.TEXT;
+                return SpanBuilder.TAG;
+            }
+            if ((c == '/' || c == '?') && pos + 1 < text.length() && text.charAt(pos + 1) == '>') {
+                pos += 2;
+                state = State.TEXT;
+                return SpanBuilder.TAG;
+            }
+            if (c == '"' || c == '\'') {
+                quote = c;
+                pos++;
+                state = State.ATTRIBUTE_VALUE;
+                return SpanBuilder.ATTRIBUTE_VALUE;
+            }
+            if (isNameChar(c)) {
+                state = State.ATTRIBUTE_NAME;
+                return SpanBuilder.PLAIN; // Nothing consumed; the name is styled next round
+            }
+            if (c == '<') {
+                state = State.TEXT; // Unclosed tag; start over with the new one
+                return SpanBuilder.PLAIN;
+            }
+            pos++; // Whitespace, '='
+            return SpanBuilder.PLAIN;
+        }
+
+        private int nameEnd(int from, int limit) {
+            while (from < limit && isNameChar(text.charAt(from))) {
+                from++;
+            }
+            return from;
+        }
+
+        /**
+         * Advances to just past {@code c}, switching back to {@link State#IN_TAG} or
+         * {@link State#TEXT}, or to {@code limit} if it isn't found before then.
+         */
+        private int until(char c, int from, int limit) {
+            for (int i = from; i < limit; i++) {
+                if (text.charAt(i) == c) {
+                    state = state == State.ATTRIBUTE_VALUE ? State.IN_TAG : State.TEXT;
+                    return i + 1;
+                }
+            }
+            return limit;
+        }
+
+        /**
+         * Like {@link #until(char, int, int)} for a multi-character terminator, which
+         * may straddle the chunk limit.
+         */
+        private int until(String terminator, int from, int limit) {
+            char first = terminator.charAt(0);
+            for (int i = from; i < limit; i++) {
+                if (text.charAt(i) == first && text.startsWith(terminator, i)) {
+                    state = State.TEXT;
+                    return i + terminator.length();
+                }
+            }
+            return limit;
+        }
+
+        /**
+         * End of an entity reference like {@code &amp;} or {@code &#x20;} at {@code from}, or -1.
+         */
+        private int entityEnd(int from) {
+            int end = Math.min(text.length(), from + MAX_ENTITY_LENGTH);
+            for (int i = from + 1; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == ';') {
+                    return i > from + 1 ? i + 1 : -1;
+                }
+                if (!isNameChar(c) && c != '#') {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':';
+        }
+    }
+}